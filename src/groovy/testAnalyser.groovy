@@ -14,6 +14,7 @@ analyser.fill(convertor.read());
 analyser.applyStrongConnectivity();                 
 //analyser.applyConnectivity(10);                   
 //analyser.applyClustering("GirvanNewman", 30);     
+//analyser.applyClustering("GirvanNewman:64", 30);  
 //analyser.applyClustering("LabelPropagation", 30); 
 //analyser.applyClustering("KSpanningTree", 30);    
                                                     
@@ -2,6 +2,7 @@ package com.Grapher.Analysis.Algorithms;
 
 import com.Grapher.CustomGraph.CustomEdge;
 import com.Grapher.CustomGraph.CustomVertex;
+import com.Grapher.CustomGraph.FrozenGraph;
 import com.Grapher.Utils.Params;
 
 // JGraphT
@@ -21,11 +22,12 @@ import org.jgrapht.alg.clustering.KSpanningTreeClustering;
 import java.util.Map;
 import java.util.List;
 import java.util.Set;
+import java.util.Collection;
+import java.util.ArrayList;
 import java.util.TreeSet;
 import java.util.LinkedHashSet;
 import java.util.LinkedHashMap;
-import java.util.stream.Collectors;
-import static java.util.stream.Collectors.toCollection;
+import java.util.function.IntFunction;
 
 // Log4J
 import org.apache.logging.log4j.Logger;
@@ -41,50 +43,67 @@ public class ConnectivityAlgorithm {
     *                 (or just count each edge as<tt>1</tt>). */
   public ConnectivityAlgorithm(Graph<CustomVertex, CustomEdge> graph,
                                boolean                         weighted) {
-    double w;
-    for (CustomVertex v : graph.vertexSet()) {
-      w = 0;
-      for (CustomEdge e : graph.edgesOf(v)) {
-        w += weighted ? e.weight() : 1;
-        }
-      _connectivity.put(v, w);
-      }
-    Map<CustomVertex, Double> sortedConnectivity = _connectivity.entrySet().
-                                                                 stream().
-                                                                 sorted(Map.Entry.comparingByValue()).
-                                                                 collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e1, LinkedHashMap::new));  
-    _connectivity = sortedConnectivity;
+    this(graph, graph.vertexSet(), weighted);
+    }
+  
+  /** Create and run for selected vertices.
+    * @param graph    The {@link Graph} to analyse.
+    * @param vertexes The {@link CustomVertex}s to evaluate.
+    * @param weighted Whether to take edge weights into account
+    *                 (or just count each edge as<tt>1</tt>). */
+  public ConnectivityAlgorithm(Graph<CustomVertex, CustomEdge> graph,
+                               Collection<CustomVertex>        vertexes,
+                               boolean                         weighted) {
+    List<CustomVertex> list = new ArrayList<>(vertexes);
+    _connectivity = Ranking.degrees(graph, list, weighted ? CustomEdge::weight : null);
+    _vertex = list::get;
+    }
+  
+  /** Create and run for selected vertices on a {@link FrozenGraph}.
+    * Only the reported vertices are resolved to {@link CustomVertex}s.
+    * Degrees are calculated sequentially if the {@link FrozenGraph} can't be read concurrently.
+    * @param frozen   The {@link FrozenGraph} to analyse.
+    * @param indexes  The ids of vertices to evaluate.
+    * @param weighted Whether to take edge weights into account
+    *                 (or just count each edge as<tt>1</tt>).
+    * @param <E>      The edge type of the {@link FrozenGraph}. */
+  public <E> ConnectivityAlgorithm(FrozenGraph<E>      frozen,
+                                   Collection<Integer> indexes,
+                                   boolean             weighted) {
+    Graph<Integer, E> graph = frozen.graph();
+    List<Integer> list = new ArrayList<>(indexes);
+    _connectivity = Ranking.degrees(graph, list, weighted ? graph::getEdgeWeight : null, frozen.concurrent());
+    _vertex = i -> frozen.vertex(list.get(i));
     }
     
    /** Give the most connected Vertexes.
      * @param n The number of entried to give. 
-     * @return  The most connected Vertexes. */
+     * @return  The most connected Vertexes, in ascending order of connectivity. */
    public Map<CustomVertex, Double> getMostConnected(int n) {
-     Map<CustomVertex, Double> least = new LinkedHashMap<>();
-     int k = 0;
-     for (Map.Entry<CustomVertex, Double> entry : _connectivity.entrySet()) {
-       if ((_connectivity.size() - k++) <= n) {
-         least.put(entry.getKey(), entry.getValue());
-         }
-       }
-     return least;
+     return entries(Ranking.highest(_connectivity, n));
      }
      
    /** Give the least connected Vertexes.
      * @param n The number of entried to give. 
-     * @return  The least connected Vertexes. */
+     * @return  The least connected Vertexes, in ascending order of connectivity. */
    public Map<CustomVertex, Double> getLeastConnected(int n) {
-     Map<CustomVertex, Double> most = new LinkedHashMap<>();
-     int k = 0;
-     for (Map.Entry<CustomVertex, Double> entry : _connectivity.entrySet()) {
-       if (k++ < n) {
-         most.put(entry.getKey(), entry.getValue());
-         }
+     return entries(Ranking.lowest(_connectivity, n));
+     }
+
+   /** Give selected Vertexes with their connectivity.
+     * @param selected The indexes of selected Vertexes.
+     * @return         The selected Vertexes with their connectivity. */
+   private Map<CustomVertex, Double> entries(int[] selected) {
+     Map<CustomVertex, Double> entries = new LinkedHashMap<>();
+     for (int i : selected) {
+       entries.put(_vertex.apply(i), _connectivity[i]);
        }
-     return most;
+     return entries;
      }
     
-   private Map<CustomVertex, Double> _connectivity = new LinkedHashMap<>();   
+   private double[] _connectivity;
+
+   private IntFunction<CustomVertex> _vertex;
 
    /** Logging . */
    private static Logger log = LogManager.getLogger(ConnectivityAlgorithm.class);
@@ -0,0 +1,547 @@
+package com.Grapher.Analysis.Algorithms;
+
+// JGraphT
+import org.jgrapht.Graph;
+import org.jgrapht.alg.interfaces.ClusteringAlgorithm;
+
+// Java
+import java.util.Map;
+import java.util.Set;
+import java.util.List;
+import java.util.HashMap;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+// Log4J
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/** <code>LouvainClustering</code> finds communities maximising the modularity
+  * by the <em>Louvain</em> method, optionally with the <em>Leiden</em> refinement.
+  * The {@link Graph} is taken as undirected, with its edge weights
+  * (which should not be negative), directed edges in both directions are summed.
+  * Each level moves vertices between communities in parallel,
+  * then aggregates communities into vertices of the next level,
+  * until no more aggregation is possible.
+  * A singleton community only moves into another singleton community with a lower id,
+  * so parallel moves don't swap vertices forever.
+  * The <em>Leiden</em> refinement splits each community into well-connected parts before the aggregation,
+  * so the found communities are guaranteed to be connected.
+  * The modularity of each level is logged and kept.
+  * @param <V> The vertex type.
+  * @param <E> The edge type.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class LouvainClustering<V, E> implements ClusteringAlgorithm<V> {
+
+  /** Create with the <em>Louvain</em> method.
+    * @param graph The {@link Graph} to cluster. */
+  public LouvainClustering(Graph<V, E> graph) {
+    this(graph, false);
+    }
+
+  /** Create.
+    * @param graph  The {@link Graph} to cluster.
+    * @param leiden Whether to apply the <em>Leiden</em> refinement. */
+  public LouvainClustering(Graph<V, E> graph,
+                           boolean     leiden) {
+    _graph  = graph;
+    _leiden = leiden;
+    }
+
+  @Override
+  public Clustering<V> getClustering() {
+    if (_clustering == null) {
+      run();
+      }
+    return _clustering;
+    }
+
+  /** Give the modularity reached at each level.
+    * @return The modularities, from the first level. */
+  public List<Double> getModularities() {
+    getClustering();
+    return Collections.unmodifiableList(_modularities);
+    }
+
+  /** Find communities. */
+  private void run() {
+    long start = System.currentTimeMillis();
+    List<V> vertexes = new ArrayList<>(_graph.vertexSet());
+    int n = vertexes.size();
+    Level level = new Level(_graph, vertexes, false);
+    if (level._m2 <= 0) {
+      log.warn("Total edge weight is not positive, using unit weights");
+      level = new Level(_graph, vertexes, true);
+      }
+    if (level._m2 <= 0) {
+      log.warn("Graph has no edges, each vertex is a community");
+      level._m2 = 1;
+      }
+    int[] node = IntStream.range(0, n).toArray();
+    int[] communities;
+    _modularities = new ArrayList<>();
+    for (int depth = 1;; depth++) {
+      communities = level.move();
+      int k = count(communities);
+      double modularity = level.modularity(communities);
+      _modularities.add(modularity);
+      log.info("Level " + depth + ": " + level._n + " vertices in " + k + " communities, modularity " + modularity);
+      int[] groups = _leiden ? level.refine(communities, k) : communities;
+      int r = _leiden ? count(groups) : k;
+      if (k == level._n || r == level._n) {
+        break;
+        }
+      for (int i = 0; i < n; i++) {
+        node[i] = groups[node[i]];
+        }
+      Level next = level.aggregate(groups, r);
+      if (_leiden) {
+        for (int i = 0; i < level._n; i++) {
+          next._initial[groups[i]] = communities[i];
+          }
+        }
+      level = next;
+      }
+    List<Set<V>> clusters = new ArrayList<>();
+    for (int c = count(communities); c > 0; c--) {
+      clusters.add(new HashSet<>());
+      }
+    for (int i = 0; i < n; i++) {
+      clusters.get(communities[node[i]]).add(vertexes.get(i));
+      }
+    _clustering = new ClusteringImpl<>(clusters);
+    log.info(clusters.size() + " communities found in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+  /** Give the number of communities with ids from <tt>0</tt>.
+    * @param communities The community of each vertex.
+    * @return            The number of communities. */
+  private static int count(int[] communities) {
+    int k = 0;
+    for (int c : communities) {
+      k = Math.max(k, c + 1);
+      }
+    return k;
+    }
+
+  /** Renumber communities by their first occurence.
+    * @param communities The community of each vertex, ids lower than their number.
+    * @return            The number of communities. */
+  private static int compact(int[] communities) {
+    int[] ids = new int[communities.length];
+    Arrays.fill(ids, -1);
+    int k = 0;
+    for (int i = 0; i < communities.length; i++) {
+      if (ids[communities[i]] < 0) {
+        ids[communities[i]] = k++;
+        }
+      communities[i] = ids[communities[i]];
+      }
+    return k;
+    }
+
+  /** Add to a <code>double</code> kept as bits in an {@link AtomicLongArray}.
+    * @param array The {@link AtomicLongArray}.
+    * @param i     The index.
+    * @param value The value to add. */
+  private static void add(AtomicLongArray array,
+                          int             i,
+                          double          value) {
+    long bits;
+    do {
+      bits = array.get(i);
+      } while (!array.compareAndSet(i, bits, Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + value)));
+    }
+
+  /** Give a <code>double</code> kept as bits in an {@link AtomicLongArray}.
+    * @param array The {@link AtomicLongArray}.
+    * @param i     The index.
+    * @return      The value. */
+  private static double get(AtomicLongArray array,
+                            int             i) {
+    return Double.longBitsToDouble(array.get(i));
+    }
+
+  /** <code>Level</code> is a weighted undirected graph in the <em>CSR</em> layout,
+    * each edge is in the rows of both its ends, self-loops are kept aside. */
+  private static class Level {
+
+    /** Create the first level.
+      * @param graph    The {@link Graph}.
+      * @param vertexes The vertices of the {@link Graph}.
+      * @param unit     Whether to use unit weights. */
+    <V, E> Level(Graph<V, E> graph,
+                 List<V>     vertexes,
+                 boolean     unit) {
+      this(vertexes.size());
+      Map<V, Integer> index = new HashMap<>(2 * _n);
+      for (int i = 0; i < _n; i++) {
+        index.put(vertexes.get(i), i);
+        }
+      int m = graph.edgeSet().size();
+      int[] sources = new int[m];
+      int[] targets = new int[m];
+      double[] weights = new double[m];
+      int[] degrees = new int[_n + 1];
+      int k = 0;
+      for (E e : graph.edgeSet()) {
+        sources[k] = index.get(graph.getEdgeSource(e));
+        targets[k] = index.get(graph.getEdgeTarget(e));
+        weights[k] = unit ? 1 : graph.getEdgeWeight(e);
+        if (sources[k] != targets[k]) {
+          degrees[sources[k] + 1]++;
+          degrees[targets[k] + 1]++;
+          }
+        k++;
+        }
+      _offsets = degrees;
+      for (int i = 0; i < _n; i++) {
+        _offsets[i + 1] += _offsets[i];
+        }
+      _neighbours = new int[_offsets[_n]];
+      _weights    = new double[_offsets[_n]];
+      int[] next = Arrays.copyOf(_offsets, _n);
+      for (k = 0; k < m; k++) {
+        int s = sources[k];
+        int t = targets[k];
+        if (s == t) {
+          _loops[s] += 2 * weights[k];
+          }
+        else {
+          _neighbours[next[s]] = t;
+          _weights[next[s]++]  = weights[k];
+          _neighbours[next[t]] = s;
+          _weights[next[t]++]  = weights[k];
+          }
+        }
+      strengths();
+      }
+
+    /** Create an empty level.
+      * @param n The number of vertices. */
+    private Level(int n) {
+      _n        = n;
+      _loops    = new double[n];
+      _strength = new double[n];
+      _initial  = IntStream.range(0, n).toArray();
+      _scratch  = ThreadLocal.withInitial(() -> new Scratch(n));
+      }
+
+    /** Calculate strengths of vertices and the total weight. */
+    private void strengths() {
+      _m2 = 0;
+      for (int i = 0; i < _n; i++) {
+        double s = _loops[i];
+        for (int j = _offsets[i]; j < _offsets[i + 1]; j++) {
+          s += _weights[j];
+          }
+        _strength[i] = s;
+        _m2 += s;
+        }
+      }
+
+    /** Move vertices between communities, starting from the initial communities,
+      * until the modularity stops increasing.
+      * @return The community of each vertex, with ids from <tt>0</tt>. */
+    int[] move() {
+      int[] communities = _initial.clone();
+      AtomicLongArray totals = new AtomicLongArray(_n);
+      AtomicIntegerArray sizes = new AtomicIntegerArray(_n);
+      for (int i = 0; i < _n; i++) {
+        add(totals, communities[i], _strength[i]);
+        sizes.incrementAndGet(communities[i]);
+        }
+      double modularity = modularity(communities);
+      for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+        AtomicInteger moved = new AtomicInteger();
+        IntStream.range(0, _n).parallel().forEach(i -> {
+          if (move(i, communities, totals, sizes)) {
+            moved.incrementAndGet();
+            }
+          });
+        double q = modularity(communities);
+        log.debug("Sweep " + sweep + ": " + moved + " vertices moved, modularity " + q);
+        if (moved.get() == 0 || q - modularity < MIN_GAIN) {
+          break;
+          }
+        modularity = q;
+        }
+      compact(communities);
+      return communities;
+      }
+
+    /** Move one vertex into the neighbouring community with the best modularity gain.
+      * @return Whether the vertex has been moved. */
+    private boolean move(int                i,
+                         int[]              communities,
+                         AtomicLongArray    totals,
+                         AtomicIntegerArray sizes) {
+      Scratch scratch = _scratch.get();
+      int a = communities[i];
+      double k = _strength[i];
+      for (int j = _offsets[i]; j < _offsets[i + 1]; j++) {
+        scratch.add(communities[_neighbours[j]], _weights[j]);
+        }
+      int best = a;
+      double bestGain = scratch._weight[a] - (get(totals, a) - k) * k / _m2;
+      for (int t = 0; t < scratch._size; t++) {
+        int c = scratch._touched[t];
+        if (c != a) {
+          double gain = scratch._weight[c] - get(totals, c) * k / _m2;
+          if (gain > bestGain || (gain == bestGain && best != a && c < best)) {
+            best = c;
+            bestGain = gain;
+            }
+          }
+        }
+      scratch.clear();
+      if (best == a || (sizes.get(a) == 1 && sizes.get(best) == 1 && best > a)) {
+        return false;
+        }
+      add(totals, a,    -k);
+      add(totals, best,  k);
+      sizes.decrementAndGet(a);
+      sizes.incrementAndGet(best);
+      communities[i] = best;
+      return true;
+      }
+
+    /** Calculate the modularity.
+      * @param communities The community of each vertex.
+      * @return            The modularity. */
+    double modularity(int[] communities) {
+      double[] totals = new double[_n];
+      for (int i = 0; i < _n; i++) {
+        totals[communities[i]] += _strength[i];
+        }
+      double internal = IntStream.range(0, _n).parallel().mapToDouble(i -> {
+        double s = _loops[i];
+        for (int j = _offsets[i]; j < _offsets[i + 1]; j++) {
+          if (communities[_neighbours[j]] == communities[i]) {
+            s += _weights[j];
+            }
+          }
+        return s;
+        }).sum();
+      double expected = 0;
+      for (double total : totals) {
+        expected += total * total;
+        }
+      return internal / _m2 - expected / (_m2 * _m2);
+      }
+
+    /** Refine communities into well-connected parts (the <em>Leiden</em> refinement).
+      * Within each community, each still single vertex, which is well connected to the community,
+      * joins the well-connected part with the best positive modularity gain.
+      * @param communities The community of each vertex, with ids from <tt>0</tt>.
+      * @param k           The number of communities.
+      * @return            The refined part of each vertex, with ids from <tt>0</tt>. */
+    int[] refine(int[] communities,
+                 int   k) {
+      int[] starts = new int[k + 1];
+      for (int c : communities) {
+        starts[c + 1]++;
+        }
+      for (int c = 0; c < k; c++) {
+        starts[c + 1] += starts[c];
+        }
+      int[] members = new int[_n];
+      int[] next = Arrays.copyOf(starts, k);
+      for (int i = 0; i < _n; i++) {
+        members[next[communities[i]]++] = i;
+        }
+      int[] parts = IntStream.range(0, _n).toArray();
+      double[] totals = _strength.clone();
+      double[] external = new double[_n];
+      int[] sizes = new int[_n];
+      IntStream.range(0, k).parallel().forEach(c -> {
+        Scratch scratch = _scratch.get();
+        double total = 0;
+        for (int m = starts[c]; m < starts[c + 1]; m++) {
+          int i = members[m];
+          total += _strength[i];
+          sizes[i] = 1;
+          for (int j = _offsets[i]; j < _offsets[i + 1]; j++) {
+            if (communities[_neighbours[j]] == c) {
+              external[i] += _weights[j];
+              }
+            }
+          }
+        for (int m = starts[c]; m < starts[c + 1]; m++) {
+          int i = members[m];
+          double s = _strength[i];
+          if (sizes[parts[i]] != 1 || external[i] < s * (total - s) / _m2) {
+            continue;
+            }
+          for (int j = _offsets[i]; j < _offsets[i + 1]; j++) {
+            if (communities[_neighbours[j]] == c) {
+              scratch.add(parts[_neighbours[j]], _weights[j]);
+              }
+            }
+          int best = -1;
+          double bestGain = 0;
+          for (int t = 0; t < scratch._size; t++) {
+            int p = scratch._touched[t];
+            if (p != parts[i] && external[p] >= totals[p] * (total - totals[p]) / _m2) {
+              double gain = scratch._weight[p] - totals[p] * s / _m2;
+              if (gain > bestGain) {
+                best = p;
+                bestGain = gain;
+                }
+              }
+            }
+          if (best >= 0) {
+            external[best] += external[i] - 2 * scratch._weight[best];
+            totals[best]   += s;
+            sizes[best]++;
+            sizes[parts[i]]--;
+            parts[i] = best;
+            }
+          scratch.clear();
+          }
+        });
+      compact(parts);
+      return parts;
+      }
+
+    /** Aggregate groups of vertices into vertices of the next level.
+      * @param groups The group of each vertex, with ids from <tt>0</tt>.
+      * @param r      The number of groups.
+      * @return       The next {@link Level}. */
+    Level aggregate(int[] groups,
+                    int   r) {
+      Level next = new Level(r);
+      int[] starts = new int[r + 1];
+      for (int g : groups) {
+        starts[g + 1]++;
+        }
+      for (int g = 0; g < r; g++) {
+        starts[g + 1] += starts[g];
+        }
+      int[] members = new int[_n];
+      int[] fill = Arrays.copyOf(starts, r);
+      for (int i = 0; i < _n; i++) {
+        members[fill[groups[i]]++] = i;
+        }
+      int[][] neighbours = new int[r][];
+      double[][] weights = new double[r][];
+      IntStream.range(0, r).parallel().forEach(g -> {
+        Scratch scratch = _scratch.get();
+        double loop = 0;
+        for (int m = starts[g]; m < starts[g + 1]; m++) {
+          int i = members[m];
+          loop += _loops[i];
+          for (int j = _offsets[i]; j < _offsets[i + 1]; j++) {
+            int h = groups[_neighbours[j]];
+            if (h == g) {
+              loop += _weights[j];
+              }
+            else {
+              scratch.add(h, _weights[j]);
+              }
+            }
+          }
+        next._loops[g] = loop;
+        neighbours[g] = Arrays.copyOf(scratch._touched, scratch._size);
+        weights[g] = new double[scratch._size];
+        for (int t = 0; t < scratch._size; t++) {
+          weights[g][t] = scratch._weight[scratch._touched[t]];
+          }
+        scratch.clear();
+        });
+      next._offsets = new int[r + 1];
+      for (int g = 0; g < r; g++) {
+        next._offsets[g + 1] = next._offsets[g] + neighbours[g].length;
+        }
+      next._neighbours = new int[next._offsets[r]];
+      next._weights    = new double[next._offsets[r]];
+      for (int g = 0; g < r; g++) {
+        System.arraycopy(neighbours[g], 0, next._neighbours, next._offsets[g], neighbours[g].length);
+        System.arraycopy(weights[g],    0, next._weights,    next._offsets[g], weights[g].length);
+        }
+      next.strengths();
+      return next;
+      }
+
+    private int _n;
+
+    private int[] _offsets;
+
+    private int[] _neighbours;
+
+    private double[] _weights;
+
+    private double[] _loops;
+
+    private double[] _strength;
+
+    /** The total weight, each edge counted from both ends. */
+    private double _m2;
+
+    /** The communities to start moving from. */
+    private int[] _initial;
+
+    private ThreadLocal<Scratch> _scratch;
+
+    }
+
+  /** <code>Scratch</code> accumulates weights towards communities of one vertex. */
+  private static class Scratch {
+
+    Scratch(int n) {
+      _weight  = new double[n];
+      _touched = new int[n];
+      _seen    = new boolean[n];
+      }
+
+    void add(int    c,
+             double w) {
+      if (!_seen[c]) {
+        _seen[c] = true;
+        _touched[_size++] = c;
+        }
+      _weight[c] += w;
+      }
+
+    void clear() {
+      for (int t = 0; t < _size; t++) {
+        _weight[_touched[t]] = 0;
+        _seen[_touched[t]]   = false;
+        }
+      _size = 0;
+      }
+
+    private double[] _weight;
+
+    private int[] _touched;
+
+    private boolean[] _seen;
+
+    private int _size;
+
+    }
+
+  private Graph<V, E> _graph;
+
+  private boolean _leiden;
+
+  private Clustering<V> _clustering;
+
+  private List<Double> _modularities;
+
+  /** The maximal number of sweeps of moves on one level. */
+  private static final int MAX_SWEEPS = 64;
+
+  /** The minimal modularity increase of one sweep to continue. */
+  private static final double MIN_GAIN = 1e-7;
+
+  /** Logging . */
+  private static Logger log = LogManager.getLogger(LouvainClustering.class);
+
+  }
@@ -0,0 +1,167 @@
+package com.Grapher.Analysis.Algorithms;
+
+// JGraphT
+import org.jgrapht.Graph;
+
+// Java
+import java.util.List;
+import java.util.Arrays;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+/** <code>Ranking</code> selects the highest and the lowest values
+  * without sorting all of them.
+  * Values are ordered by their value, equal values by their index,
+  * so the result is the same as taking both ends of a stable sort.
+  * Only the selected indexes are kept, in a bounded heap,
+  * so the selection takes <tt>O(N log n)</tt> time and <tt>O(n)</tt> memory.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class Ranking {
+
+  /** Calculate (weighted) degrees of vertices in parallel.
+    * Each edge is counted once, self-loops too.
+    * @param graph    The {@link Graph}.
+    * @param vertexes The vertices to evaluate.
+    * @param weight   The weight of an edge.
+    * @param <V>      The vertex type.
+    * @param <E>      The edge type.
+    * @return         The degrees, in the order of <tt>vertexes</tt>. */
+  public static <V, E> double[] degrees(Graph<V, E>         graph,
+                                        List<V>             vertexes,
+                                        ToDoubleFunction<E> weight) {
+    return degrees(graph, vertexes, weight, true);
+    }
+
+  /** Calculate (weighted) degrees of vertices.
+    * Each edge is counted once, self-loops too.
+    * @param graph    The {@link Graph}.
+    * @param vertexes The vertices to evaluate.
+    * @param weight   The weight of an edge.
+    * @param parallel Whether to calculate in parallel,
+    *                 the {@link Graph} should be safe for concurrent reading.
+    * @param <V>      The vertex type.
+    * @param <E>      The edge type.
+    * @return         The degrees, in the order of <tt>vertexes</tt>. */
+  public static <V, E> double[] degrees(Graph<V, E>         graph,
+                                        List<V>             vertexes,
+                                        ToDoubleFunction<E> weight,
+                                        boolean             parallel) {
+    double[] degrees = new double[vertexes.size()];
+    IntStream range = IntStream.range(0, degrees.length);
+    if (parallel) {
+      range = range.parallel();
+      }
+    range.forEach(i -> {
+      double w = 0;
+      for (E e : graph.edgesOf(vertexes.get(i))) {
+        w += weight == null ? 1 : weight.applyAsDouble(e);
+        }
+      degrees[i] = w;
+      });
+    return degrees;
+    }
+
+  /** Give the indexes of the highest values.
+    * @param values The values.
+    * @param n      The number of indexes to give.
+    * @return       The indexes of the <tt>n</tt> highest values, in ascending order of values. */
+  public static int[] highest(double[] values,
+                              int      n) {
+    return select(values, n, 1);
+    }
+
+  /** Give the indexes of the lowest values.
+    * @param values The values.
+    * @param n      The number of indexes to give.
+    * @return       The indexes of the <tt>n</tt> lowest values, in ascending order of values. */
+  public static int[] lowest(double[] values,
+                             int      n) {
+    return select(values, n, -1);
+    }
+
+  /** Select the indexes of the highest or the lowest values.
+    * The heap keeps the selected indexes with the worst one at its root.
+    * @param values The values.
+    * @param n      The number of indexes to give.
+    * @param sign   <tt>1</tt> to select the highest, <tt>-1</tt> the lowest values.
+    * @return       The selected indexes, in ascending order of values. */
+  private static int[] select(double[] values,
+                              int      n,
+                              int      sign) {
+    n = Math.max(0, Math.min(n, values.length));
+    int[] heap = new int[n];
+    if (n == 0) {
+      return heap;
+      }
+    for (int i = 0; i < n; i++) {
+      heap[i] = i;
+      up(values, heap, i, sign);
+      }
+    for (int i = n; i < values.length; i++) {
+      if (sign * compare(values, i, heap[0]) > 0) {
+        heap[0] = i;
+        down(values, heap, n, sign);
+        }
+      }
+    Integer[] sorted = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      sorted[i] = heap[i];
+      }
+    Arrays.sort(sorted, (a, b) -> compare(values, a, b));
+    for (int i = 0; i < n; i++) {
+      heap[i] = sorted[i];
+      }
+    return heap;
+    }
+
+  /** Move a new heap element up. */
+  private static void up(double[] values,
+                         int[]    heap,
+                         int      k,
+                         int      sign) {
+    while (k > 0) {
+      int parent = (k - 1) / 2;
+      if (sign * compare(values, heap[k], heap[parent]) >= 0) {
+        return;
+        }
+      swap(heap, k, parent);
+      k = parent;
+      }
+    }
+
+  /** Move a new heap root down. */
+  private static void down(double[] values,
+                           int[]    heap,
+                           int      size,
+                           int      sign) {
+    int k = 0;
+    while (2 * k + 1 < size) {
+      int child = 2 * k + 1;
+      if (child + 1 < size && sign * compare(values, heap[child + 1], heap[child]) < 0) {
+        child++;
+        }
+      if (sign * compare(values, heap[k], heap[child]) <= 0) {
+        return;
+        }
+      swap(heap, k, child);
+      k = child;
+      }
+    }
+
+  private static void swap(int[] heap,
+                           int   i,
+                           int   j) {
+    int h   = heap[i];
+    heap[i] = heap[j];
+    heap[j] = h;
+    }
+
+  /** Compare two values, equal values by their indexes. */
+  private static int compare(double[] values,
+                             int      i,
+                             int      j) {
+    int c = Double.compare(values[i], values[j]);
+    return c != 0 ? c : Integer.compare(i, j);
+    }
+
+  }
@@ -0,0 +1,485 @@
+package com.Grapher.Analysis.Algorithms;
+
+// JGraphT
+import org.jgrapht.Graph;
+import org.jgrapht.alg.interfaces.ClusteringAlgorithm;
+
+// Java
+import java.util.Map;
+import java.util.Set;
+import java.util.List;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Log4J
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/** <code>SampledGirvanNewmanClustering</code> is the <em>Girvan-Newman</em> clustering
+  * with the edge betweenness estimated from random pivot sources.
+  * The edge with the highest betweenness is removed until there are enough connected components.
+  * If the number of clusters is not given, all edges are removed
+  * and the components with the highest modularity are kept.
+  * The betweenness of each component is estimated from at most the given number of pivots
+  * (all its vertices if it is smaller), the pivots are processed in parallel in a {@link ForkJoinPool}.
+  * After a removal, only the component(s) containing the removed edge are re-estimated,
+  * the betweenness elsewhere can't change.
+  * The {@link Graph} is taken as undirected and unweighted, self-loops are ignored.
+  * The standard error of the estimate of each removed edge is evaluated,
+  * the maximal relative error is logged with the number of pivots.
+  * @param <V> The vertex type.
+  * @param <E> The edge type.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class SampledGirvanNewmanClustering<V, E> implements ClusteringAlgorithm<V> {
+
+  /** Create with a fixed random seed.
+    * @param graph  The {@link Graph} to cluster.
+    * @param k      The required number of clusters,
+    *               chosen by the modularity if not positive.
+    * @param pivots The maximal number of pivots per component. */
+  public SampledGirvanNewmanClustering(Graph<V, E> graph,
+                                       int         k,
+                                       int         pivots) {
+    this(graph, k, pivots, 0);
+    }
+
+  /** Create.
+    * @param graph  The {@link Graph} to cluster.
+    * @param k      The required number of clusters,
+    *               chosen by the modularity if not positive.
+    * @param pivots The maximal number of pivots per component.
+    * @param seed   The seed of the pivot selection. */
+  public SampledGirvanNewmanClustering(Graph<V, E> graph,
+                                       int         k,
+                                       int         pivots,
+                                       long        seed) {
+    if (pivots < 1) {
+      throw new IllegalArgumentException("Number of pivots must be positive");
+      }
+    _graph  = graph;
+    _k      = k;
+    _pivots = pivots;
+    _random = new Random(seed);
+    }
+
+  @Override
+  public Clustering<V> getClustering() {
+    if (_clustering == null) {
+      run();
+      }
+    return _clustering;
+    }
+
+  /** Give the maximal relative standard error of the betweenness of removed edges.
+    * Edges whose betweenness was sampled with a single pivot have no error estimate and are skipped.
+    * @return The maximal relative error, <tt>0</tt> if all betweennesses were exact,
+    *         <tt>NaN</tt> if it could not be estimated for any removed edge. */
+  public double getMaxError() {
+    getClustering();
+    return _maxError;
+    }
+
+  /** Remove edges until there are enough components,
+    * or until there are no edges if the number of components should be chosen. */
+  private void run() {
+    long start = System.currentTimeMillis();
+    List<V> vertexes = new ArrayList<>(_graph.vertexSet());
+    build(vertexes);
+    int n = vertexes.size();
+    int m = _source.length;
+    _alive       = new boolean[m];
+    _betweenness = new double[m];
+    _error       = new double[m];
+    _local       = new int[m];
+    _component   = new int[n];
+    _queue       = new int[n];
+    _edges       = new int[m];
+    _workspace   = ThreadLocal.withInitial(() -> new Workspace(n));
+    Arrays.fill(_alive, true);
+    Arrays.fill(_component, -1);
+    int labels = 0;
+    int components = 0;
+    for (int i = 0; i < n; i++) {
+      if (_component[i] < 0) {
+        update(i, labels++);
+        components++;
+        }
+      }
+    int removals = 0;
+    int unestimated = 0;
+    _maxError = 0;
+    int[] bestComponents = null;
+    double bestModularity = Double.NEGATIVE_INFINITY;
+    double modularity;
+    if (_k < 1 && m > 0) {
+      bestModularity = modularity(labels);
+      bestComponents = _component.clone();
+      }
+    while (_k < 1 || components < _k) {
+      int best = -1;
+      for (int e = 0; e < m; e++) {
+        if (_alive[e] && (best < 0 || _betweenness[e] > _betweenness[best])) {
+          best = e;
+          }
+        }
+      if (best < 0) {
+        break;
+        }
+      _alive[best] = false;
+      removals++;
+      if (Double.isNaN(_error[best])) {
+        unestimated++;
+        }
+      else if (_betweenness[best] > 0) {
+        _maxError = Math.max(_maxError, _error[best] / _betweenness[best]);
+        }
+      log.debug("Removing " + vertexes.get(_source[best]) + " - " + vertexes.get(_target[best])
+              + " with betweenness " + _betweenness[best] + " +- " + _error[best]);
+      int u = _source[best];
+      int v = _target[best];
+      update(u, labels++);
+      if (_component[v] != _component[u]) {
+        update(v, labels++);
+        components++;
+        if (bestComponents != null && (modularity = modularity(labels)) > bestModularity) {
+          bestModularity = modularity;
+          bestComponents = _component.clone();
+          }
+        }
+      }
+    if (bestComponents != null) {
+      _component = bestComponents;
+      log.info("Modularity " + bestModularity + " is the highest with " + Arrays.stream(bestComponents).distinct().count() + " clusters");
+      }
+    Map<Integer, Set<V>> clusters = new LinkedHashMap<>();
+    for (int i = 0; i < n; i++) {
+      clusters.computeIfAbsent(_component[i], c -> new HashSet<>()).add(vertexes.get(i));
+      }
+    _clustering = new ClusteringImpl<>(new ArrayList<>(clusters.values()));
+    if (unestimated > 0 && unestimated == removals) {
+      _maxError = Double.NaN;
+      }
+    log.info(removals + " edges removed into " + clusters.size() + " clusters, using at most " + _pivots + " pivots per component, "
+           + "maximal relative error " + (Double.isNaN(_maxError) ? "not estimated" : _maxError)
+           + (unestimated > 0 && unestimated < removals ? " (not estimated for " + unestimated + " edges)" : "")
+           + ", " + (System.currentTimeMillis() - start) + " ms");
+    _alive       = null;
+    _betweenness = null;
+    _error       = null;
+    _local       = null;
+    _queue       = null;
+    _edges       = null;
+    _workspace   = null;
+    }
+
+  /** Give the modularity of the current components, measured on the original {@link Graph}.
+    * @param labels The number of used component labels.
+    * @return       The modularity. */
+  private double modularity(int labels) {
+    int n = _component.length;
+    double m = _source.length;
+    double[] inside = new double[labels];
+    double[] degree = new double[labels];
+    for (int e = 0; e < _source.length; e++) {
+      if (_component[_source[e]] == _component[_target[e]]) {
+        inside[_component[_source[e]]]++;
+        }
+      }
+    for (int i = 0; i < n; i++) {
+      degree[_component[i]] += _offsets[i + 1] - _offsets[i];
+      }
+    double q = 0;
+    for (int c = 0; c < labels; c++) {
+      q += inside[c] / m - (degree[c] / (2 * m)) * (degree[c] / (2 * m));
+      }
+    return q;
+    }
+
+  /** Build the undirected adjacency in the <em>CSR</em> layout, without self-loops.
+    * @param vertexes The vertices of the {@link Graph}. */
+  private void build(List<V> vertexes) {
+    int n = vertexes.size();
+    Map<V, Integer> index = new HashMap<>(2 * n);
+    for (int i = 0; i < n; i++) {
+      index.put(vertexes.get(i), i);
+      }
+    int m = 0;
+    for (E e : _graph.edgeSet()) {
+      if (!_graph.getEdgeSource(e).equals(_graph.getEdgeTarget(e))) {
+        m++;
+        }
+      }
+    _source  = new int[m];
+    _target  = new int[m];
+    _offsets = new int[n + 1];
+    int k = 0;
+    for (E e : _graph.edgeSet()) {
+      int s = index.get(_graph.getEdgeSource(e));
+      int t = index.get(_graph.getEdgeTarget(e));
+      if (s != t) {
+        _source[k] = s;
+        _target[k] = t;
+        _offsets[s + 1]++;
+        _offsets[t + 1]++;
+        k++;
+        }
+      }
+    for (int i = 0; i < n; i++) {
+      _offsets[i + 1] += _offsets[i];
+      }
+    _neighbours = new int[2 * m];
+    _edge       = new int[2 * m];
+    int[] next = Arrays.copyOf(_offsets, n);
+    for (int e = 0; e < m; e++) {
+      _neighbours[next[_source[e]]] = _target[e];
+      _edge[next[_source[e]]++]     = e;
+      _neighbours[next[_target[e]]] = _source[e];
+      _edge[next[_target[e]]++]     = e;
+      }
+    }
+
+  /** Label the component of a vertex and estimate the betweenness of its edges.
+    * @param root  The vertex.
+    * @param label The new label of its component. */
+  private void update(int root,
+                      int label) {
+    int nv = 0;
+    int ne = 0;
+    _queue[nv++] = root;
+    _component[root] = label;
+    for (int h = 0; h < nv; h++) {
+      int x = _queue[h];
+      for (int j = _offsets[x]; j < _offsets[x + 1]; j++) {
+        if (_alive[_edge[j]]) {
+          int y = _neighbours[j];
+          if (x < y) {
+            _edges[ne++] = _edge[j];
+            }
+          if (_component[y] != label) {
+            _component[y] = label;
+            _queue[nv++] = y;
+            }
+          }
+        }
+      }
+    if (ne > 0) {
+      estimate(nv, ne);
+      }
+    }
+
+  /** Estimate the betweenness of edges of one component.
+    * Each pair of vertices is counted once.
+    * @param nv The number of vertices of the component, in the queue.
+    * @param ne The number of edges of the component, in the edge list. */
+  private void estimate(int nv,
+                        int ne) {
+    for (int j = 0; j < ne; j++) {
+      _local[_edges[j]] = j;
+      }
+    int p = Math.min(_pivots, nv);
+    if (p < nv) {
+      for (int i = 0; i < p; i++) {
+        int j = i + _random.nextInt(nv - i);
+        int q = _queue[i];
+        _queue[i] = _queue[j];
+        _queue[j] = q;
+        }
+      }
+    double[][] sums = ForkJoinPool.commonPool().invoke(new Pivots(0, p, ne));
+    double scale = (double)nv / p / 2;
+    for (int j = 0; j < ne; j++) {
+      int e = _edges[j];
+      _betweenness[e] = sums[0][j] * scale;
+      if (p == nv) {
+        _error[e] = 0;
+        }
+      else if (p == 1) {
+        _error[e] = Double.NaN;
+        }
+      else {
+        double mean     = sums[0][j] / p;
+        double variance = Math.max(0, (sums[1][j] - p * mean * mean) / (p - 1));
+        _error[e] = nv * Math.sqrt(variance / p * (1 - (double)p / nv)) / 2;
+        }
+      }
+    }
+
+  /** <code>Pivots</code> accumulates dependencies of edges on a range of pivots,
+    * splitting it in halves, so the result doesn't depend on the number of threads. */
+  private class Pivots extends RecursiveTask<double[][]> {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Create.
+      * @param from The first pivot in the queue.
+      * @param to   The pivot after the last one.
+      * @param ne   The number of edges of the component. */
+    Pivots(int from,
+           int to,
+           int ne) {
+      _from = from;
+      _to   = to;
+      _ne   = ne;
+      }
+
+    /** Give sums of dependencies and of their squares.
+      * @return The sums of dependencies and of their squares, indexed by local edge indexes. */
+    @Override
+    protected double[][] compute() {
+      if (_to - _from <= LEAF) {
+        double[][] sums = new double[2][_ne];
+        Workspace workspace = _workspace.get();
+        for (int s = _from; s < _to; s++) {
+          workspace.accumulate(_queue[s], sums);
+          }
+        return sums;
+        }
+      int middle = (_from + _to) >>> 1;
+      Pivots left = new Pivots(_from, middle, _ne);
+      left.fork();
+      double[][] right = new Pivots(middle, _to, _ne).compute();
+      double[][] sums = left.join();
+      for (int j = 0; j < _ne; j++) {
+        sums[0][j] += right[0][j];
+        sums[1][j] += right[1][j];
+        }
+      return sums;
+      }
+
+    private int _from;
+
+    private int _to;
+
+    private int _ne;
+
+    }
+
+  /** <code>Workspace</code> keeps arrays of one thread for <em>Brandes</em> searches. */
+  private class Workspace {
+
+    /** Create.
+      * @param n The number of vertices. */
+    Workspace(int n) {
+      _distance = new int[n];
+      _paths    = new double[n];
+      _delta    = new double[n];
+      _order    = new int[n];
+      Arrays.fill(_distance, -1);
+      }
+
+    /** Add dependencies of edges on one source.
+      * @param s    The source.
+      * @param sums The sums of dependencies and of their squares to add to. */
+    void accumulate(int        s,
+                    double[][] sums) {
+      int head = 0;
+      int tail = 0;
+      _order[tail++] = s;
+      _distance[s] = 0;
+      _paths[s] = 1;
+      while (head < tail) {
+        int x = _order[head++];
+        for (int j = _offsets[x]; j < _offsets[x + 1]; j++) {
+          if (_alive[_edge[j]]) {
+            int y = _neighbours[j];
+            if (_distance[y] < 0) {
+              _distance[y] = _distance[x] + 1;
+              _order[tail++] = y;
+              }
+            if (_distance[y] == _distance[x] + 1) {
+              _paths[y] += _paths[x];
+              }
+            }
+          }
+        }
+      for (int t = tail - 1; t > 0; t--) {
+        int w = _order[t];
+        double c0 = (1 + _delta[w]) / _paths[w];
+        for (int j = _offsets[w]; j < _offsets[w + 1]; j++) {
+          if (_alive[_edge[j]]) {
+            int v = _neighbours[j];
+            if (_distance[v] == _distance[w] - 1) {
+              double c = _paths[v] * c0;
+              int l = _local[_edge[j]];
+              sums[0][l] += c;
+              sums[1][l] += c * c;
+              _delta[v] += c;
+              }
+            }
+          }
+        }
+      for (int t = 0; t < tail; t++) {
+        int x = _order[t];
+        _distance[x] = -1;
+        _paths[x]    = 0;
+        _delta[x]    = 0;
+        }
+      }
+
+    private int[] _distance;
+
+    private double[] _paths;
+
+    private double[] _delta;
+
+    private int[] _order;
+
+    }
+
+  private Graph<V, E> _graph;
+
+  private int _k;
+
+  private int _pivots;
+
+  private Random _random;
+
+  private Clustering<V> _clustering;
+
+  private double _maxError;
+
+  private int[] _offsets;
+
+  private int[] _neighbours;
+
+  /** The edge of each adjacency entry. */
+  private int[] _edge;
+
+  private int[] _source;
+
+  private int[] _target;
+
+  private boolean[] _alive;
+
+  private double[] _betweenness;
+
+  /** The standard error of the betweenness. */
+  private double[] _error;
+
+  /** The component of each vertex. */
+  private int[] _component;
+
+  /** The vertices of the current component. */
+  private int[] _queue;
+
+  /** The edges of the current component. */
+  private int[] _edges;
+
+  /** The index of each edge in the current component. */
+  private int[] _local;
+
+  private ThreadLocal<Workspace> _workspace;
+
+  /** The maximal number of pivots processed in one task. */
+  private static final int LEAF = 8;
+
+  /** Logging . */
+  private static Logger log = LogManager.getLogger(SampledGirvanNewmanClustering.class);
+
+  }
@@ -2,15 +2,26 @@ package com.Grapher.Analysis;
 
 import com.Grapher.CustomGraph.CustomEdge;
 import com.Grapher.CustomGraph.CustomVertex;
+import com.Grapher.CustomGraph.VertexLabelIndex;
+import com.Grapher.CustomGraph.FrozenGraph;
+import com.Grapher.CustomGraph.MappedGraph;
+import com.Grapher.Convertors.WebGraphConvertor;
 import com.Grapher.Utils.Params;
 import com.Grapher.Analysis.Algorithms.ConnectivityAlgorithm;
+import com.Grapher.Analysis.Algorithms.Ranking;
+import com.Grapher.Analysis.Algorithms.LouvainClustering;
+import com.Grapher.Analysis.Algorithms.SampledGirvanNewmanClustering;
+import com.Grapher.Analysis.Indexes.KDTree;
+import com.Grapher.Analysis.Indexes.HNSWIndex;
+import com.Grapher.Analysis.Indexes.SkyIndex;
 
 // JGraphT
 import org.jgrapht.Graph;
+import org.jgrapht.ListenableGraph;
+import org.jgrapht.graph.DefaultListenableGraph;
+import org.jgrapht.graph.AsSubgraph;
 import org.jgrapht.graph.AsUndirectedGraph;
 import org.jgrapht.nio.DefaultAttribute;
-import org.jgrapht.nio.Attribute;
-import org.jgrapht.nio.AttributeType;
 import org.jgrapht.alg.connectivity.KosarajuStrongConnectivityInspector;
 import org.jgrapht.alg.interfaces.StrongConnectivityAlgorithm;
 import org.jgrapht.alg.interfaces.ClusteringAlgorithm;
@@ -19,15 +30,16 @@ import org.jgrapht.alg.clustering.LabelPropagationClustering;
 import org.jgrapht.alg.clustering.KSpanningTreeClustering;
 
 // Java
+import java.io.IOException;
 import java.util.Map;
 import java.util.List;
+import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Random;
 import java.util.Set;
-import java.util.TreeSet;
-import java.util.LinkedHashSet;
-import java.util.TreeMap;
-import java.util.LinkedHashMap;
+import java.util.HashSet;
 import java.util.stream.Collectors;
-import static java.util.stream.Collectors.toCollection;
+import java.util.stream.IntStream;
 
 // Log4J
 import org.apache.logging.log4j.Logger;
@@ -44,9 +56,18 @@ public class Analyser {
     }
     
   /** Fill the {@link Graph} to be acted upon.
+    * The {@link Graph} is wrapped into {@link ListenableGraph} (if it is not one already)
+    * to keep the {@link VertexLabelIndex} in sync.
     * @param graph The graph to be acted upon. */
   public void fill(Graph<CustomVertex, CustomEdge> graph) {
-    _graph = graph;
+    if (_index != null) {
+      _index.close();
+      }
+    ListenableGraph<CustomVertex, CustomEdge> g = graph instanceof ListenableGraph ? (ListenableGraph<CustomVertex, CustomEdge>)graph
+                                                                                    : new DefaultListenableGraph<>(graph);
+    _graph = g;
+    _index = new VertexLabelIndex(g);
+    _frozen = null;
     }
   
   /** Apply the algorithms. */
@@ -56,6 +77,10 @@ public class Analyser {
       algpar = alg.split(",");
       switch (algpar[0]) {
         case "add":
+          if (_frozen != null) {
+            log.info("Dropping frozen graph, the graph will be modified");
+            _frozen = null;
+            }
           switch (algpar[1]) {
           case "all":
             addDistances("alert", "distance", "difference", null, 0, 1);
@@ -64,32 +89,97 @@ public class Analyser {
             addDistances("alert", "distance", "difference", new String[]{"ra", "dec"}, 0, 1);
             break;
           case "isolation":
-            addDistances("alert", "distance", "difference", ALERTs, new Double(algpar[2]), new Double(algpar[3]));
+            addDistances("alert", "distance", "difference", ALERTs, Double.parseDouble(algpar[2]), Double.parseDouble(algpar[3]));
             break;
           case "isolationRD":
-            addDistances("alert", "distance", "difference", RADECs, new Double(algpar[2]), new Double(algpar[3]));
+            addDistances("alert", "distance", "difference", RADECs, Double.parseDouble(algpar[2]), Double.parseDouble(algpar[3]));
             break;
           case "pca":
             addDistances("PCA", "distance", "difference", PCAs, 0, 1);
             break;
           case "immersion":
-            addImmersion("alert", "connectivity", ALERTs, new Integer(algpar[2]));
+            addImmersion("alert", "connectivity", ALERTs, Integer.parseInt(algpar[2]), algpar.length > 3 ? Double.parseDouble(algpar[3]) : 0);
             break;
           case "immersionRD":
-            addImmersion("alert", "connectivity", RADECs, new Integer(algpar[2]));
+            addImmersion("alert", "connectivity", RADECs, Integer.parseInt(algpar[2]), algpar.length > 3 ? Double.parseDouble(algpar[3]) : 0);
+            break;
+          case "knn":
+            switch (algpar.length > 3 ? algpar[3] : "radec") {
+              case "pca":
+                addNeighbours("PCA",   "distance", "difference", PCAs,   Integer.parseInt(algpar[2]));
+                break;
+              case "alert":
+                addNeighbours("alert", "distance", "difference", ALERTs, Integer.parseInt(algpar[2]));
+                break;
+              case "all":
+                addNeighbours("alert", "distance", "difference", null,   Integer.parseInt(algpar[2]));
+                break;
+              default:
+                addNeighbours("alert", "distance", "difference", RADECs, Integer.parseInt(algpar[2]));
+              }
+            break;
+          case "sky":
+            addSkyDistances("alert", "distance", "difference", 0, Double.parseDouble(algpar[2]));
+            break;
+          case "skyIsolation":
+            addSkyDistances("alert", "distance", "difference", Double.parseDouble(algpar[2]), Double.parseDouble(algpar[3]));
+            break;
+          case "hnsw":
+            addApproximateNeighbours("PCA", "distance", "difference", PCAs,
+                                     Integer.parseInt(algpar[2]),
+                                     0,
+                                     algpar.length > 3 ? Integer.parseInt(algpar[3]) : 16,
+                                     algpar.length > 4 ? Integer.parseInt(algpar[4]) : 200,
+                                     algpar.length > 5 ? Integer.parseInt(algpar[5]) : 64);
+            break;
+          case "hnswRadius":
+            addApproximateNeighbours("PCA", "distance", "difference", PCAs,
+                                     0,
+                                     Double.parseDouble(algpar[2]),
+                                     algpar.length > 3 ? Integer.parseInt(algpar[3]) : 16,
+                                     algpar.length > 4 ? Integer.parseInt(algpar[4]) : 200,
+                                     algpar.length > 5 ? Integer.parseInt(algpar[5]) : 64);
             break;
           default:
             addDistances(algpar[1], algpar[2], algpar[3], new String[]{algpar[4]}, 0, 1);
             }
           break;
+        case "freeze":
+          _frozen = FrozenGraph.freeze(_graph);
+          break;
+        case "webgraph":
+          try {
+            _frozen = new WebGraphConvertor().freeze(algpar[1]);
+            }
+          catch (IOException e) {
+            log.error("Cannot map " + algpar[1], e);
+            }
+          break;
+        case "mapped":
+          try {
+            _frozen = new MappedGraph(algpar[1]).frozen();
+            }
+          catch (IOException e) {
+            log.error("Cannot map " + algpar[1], e);
+            }
+          break;
+        case "norm":
+          _normalisation = Normalisation.valueOf(algpar[1].toUpperCase());
+          log.info("Using " + _normalisation + " normalisation");
+          break;
+        case "kernel":
+          _kernel = DistanceKernel.valueOf(algpar[1].toUpperCase());
+          _verify = algpar.length > 2 && algpar[2].equals("verify");
+          log.info("Using " + _kernel + " distance kernel" + (_verify ? ", verified against " + DistanceKernel.SCALAR : ""));
+          break;
         case "sc":
           applyStrongConnectivity();
           break;
         case "cl":
-          applyClustering(algpar[1], new Integer(algpar[2]));
+          applyClustering(algpar[1], algpar.length > 2 ? Integer.parseInt(algpar[2]) : 0, algpar.length > 3 ? algpar[3] : null);
           break;
         case "co":
-          applyConnectivity(new Integer(algpar[1]), new Boolean(algpar[2]));
+          applyConnectivity(Integer.parseInt(algpar[1]), Boolean.parseBoolean(algpar[2]), algpar.length > 3 ? algpar[3] : null);
           break;
         default:
           log.error("Unknown algorithm: " + alg);
@@ -103,14 +193,28 @@ public class Analyser {
   
   /** Apply <em>Strong Connectivity</em> algorithm. */
   public void applyStrongConnectivity() {            
-    log.info("Applying Strong Connectivity Algorithm ...");
-    StrongConnectivityAlgorithm<CustomVertex, CustomEdge> scAlg = new KosarajuStrongConnectivityInspector<>(_graph);
-    List<Set<CustomVertex>> stronglyConnectedSets = scAlg.stronglyConnectedSets();
+    log.info("Applying Strong Connectivity Algorithm" + (_frozen == null ? "" : " on frozen graph") + " ...");
+    List<Set<CustomVertex>> stronglyConnectedSets;
+    if (_frozen == null) {
+      StrongConnectivityAlgorithm<CustomVertex, CustomEdge> scAlg = new KosarajuStrongConnectivityInspector<>(_graph);
+      stronglyConnectedSets = scAlg.stronglyConnectedSets();
+      }
+    else {
+      stronglyConnectedSets = stronglyConnectedSets(_frozen);
+      }
     log.info("Strongly Connected Sets:");
     for (Set<CustomVertex> set : stronglyConnectedSets) {
       log.info("\t" + set);
       }
     }
+
+  /** Run <em>Strong Connectivity</em> algorithm on a {@link FrozenGraph}.
+    * @param frozen The {@link FrozenGraph} to analyse.
+    * @return       The strongly connected sets of {@link CustomVertex}s. */
+  private static <E> List<Set<CustomVertex>> stronglyConnectedSets(FrozenGraph<E> frozen) {
+    StrongConnectivityAlgorithm<Integer, E> scAlg = new KosarajuStrongConnectivityInspector<>(frozen.graph());
+    return scAlg.stronglyConnectedSets().stream().map(frozen::vertexes).collect(Collectors.toList());
+    }
     
   /** Apply <em>Connectivity</em> algorithm.
     * @param n        The number of most and least connected vertexes to show.
@@ -118,8 +222,27 @@ public class Analyser {
     *                 (or just count each edge as<tt>1</tt>). */
   public void applyConnectivity(int     n,
                                 boolean weighted) {            
-    log.info("Applying Connectivity Algorithm ...");
-    ConnectivityAlgorithm coAlg = new ConnectivityAlgorithm(_graph, weighted);
+    applyConnectivity(n, weighted, null);
+    }
+    
+  /** Apply <em>Connectivity</em> algorithm to {@link CustomVertex}s with one label.
+    * @param n         The number of most and least connected vertexes to show.
+    * @param weighted  Whether to take edge weights into account
+    *                  (or just count each edge as<tt>1</tt>).
+    * @param vertexLbl The label of the {@link CustomVertex}s to evaluate.
+    *                  All {@link CustomVertex}s are evaluated if <tt>null</tt>. */
+  public void applyConnectivity(int     n,
+                                boolean weighted,
+                                String  vertexLbl) {            
+    log.info("Applying Connectivity Algorithm" + (vertexLbl == null ? "" : " to " + vertexLbl + "s") + " ...");
+    ConnectivityAlgorithm coAlg;
+    if (_frozen == null) {
+      coAlg = new ConnectivityAlgorithm(_graph, vertexLbl == null ? _graph.vertexSet() : _index.vertexes(vertexLbl), weighted);
+      }
+    else {
+      coAlg = new ConnectivityAlgorithm(_frozen, vertexLbl == null ? IntStream.range(0, _frozen.size()).boxed().collect(Collectors.toList())
+                                                                   : _frozen.indexes(vertexLbl), weighted);
+      }
     log.info("Most Connected:");
     for (Map.Entry<CustomVertex, Double> entry : coAlg.getMostConnected(n).entrySet()) {
       log.info("\t" + entry);
@@ -135,29 +258,113 @@ public class Analyser {
     * @param nClusters The required number of clusters. */
   public void applyClustering(String alg,
                               int    nClusters) { 
+    applyClustering(alg, nClusters, null);
+    }
+    
+  /** Apply <em>Clustering</em> algorithm to the subgraph induced by {@link CustomVertex}s with one label.
+    * <tt>Louvain</tt> and <tt>Leiden</tt> use the edge weights and find the number of clusters themselves.
+    * <tt>GirvanNewman:p</tt> estimates the betweenness from <tt>p</tt> random pivots per component,
+    * it chooses the number of clusters by the modularity if it is not given.
+    * @param alg       The algorithm name.
+    * @param nClusters The required number of clusters, ignored by <tt>Louvain</tt> and <tt>Leiden</tt>,
+    *                  <tt>0</tt> if not given.
+    * @param vertexLbl The label of the {@link CustomVertex}s to cluster.
+    *                  The whole {@link Graph} is clustered if <tt>null</tt>. */
+  public void applyClustering(String alg,
+                              int    nClusters,
+                              String vertexLbl) { 
     log.info("Applying Clustering Algorithm ...");
     log.info("\tusingt " + alg + " algoritm");    
-    log.info("\tsearching for " + nClusters + " clusters");    
-    ClusteringAlgorithm<CustomVertex> clAlg;
-    switch (alg) {
+    if (nClusters > 0) {
+      log.info("\tsearching for " + nClusters + " clusters");    
+      }
+    if (vertexLbl != null) {
+      log.info("\tamong " + vertexLbl + "s");    
+      }
+    List<Set<CustomVertex>> clusterSets;
+    if (_frozen == null) {
+      Graph<CustomVertex, CustomEdge> graph = _graph;
+      if (vertexLbl != null) {
+        graph = new AsSubgraph<>(_graph, new HashSet<>(_index.vertexes(vertexLbl)));
+        }
+      clusterSets = clusters(alg, graph, nClusters);
+      }
+    else {
+      log.info("\ton frozen graph");    
+      clusterSets = clusters(alg, _frozen, nClusters, vertexLbl);
+      }
+    if (clusterSets == null) {
+      return;
+      }
+    log.info("Clusters:");
+    for (Set<CustomVertex> cluster : clusterSets) {
+      log.info("\t" + cluster);
+      }
+    }
+    
+  /** Run <em>Clustering</em> algorithm on a {@link FrozenGraph}.
+    * @param alg       The algorithm name.
+    * @param frozen    The {@link FrozenGraph} to cluster.
+    * @param nClusters The required number of clusters.
+    * @param vertexLbl The label of the {@link CustomVertex}s to cluster.
+    *                  The whole {@link FrozenGraph} is clustered if <tt>null</tt>.
+    * @return          The clusters, <tt>null</tt> if the algorithm is unknown. */
+  private static <E> List<Set<CustomVertex>> clusters(String         alg,
+                                                      FrozenGraph<E> frozen,
+                                                      int            nClusters,
+                                                      String         vertexLbl) {
+    Graph<Integer, E> graph = frozen.graph();
+    if (vertexLbl != null) {
+      graph = new AsSubgraph<>(graph, new HashSet<>(frozen.indexes(vertexLbl)));
+      }
+    List<Set<Integer>> clusters = clusters(alg, graph, nClusters);
+    return clusters == null ? null : clusters.stream().map(frozen::vertexes).collect(Collectors.toList());
+    }
+    
+  /** Run <em>Clustering</em> algorithm.
+    * @param alg       The algorithm name.
+    * @param graph     The {@link Graph} to cluster.
+    * @param nClusters The required number of clusters.
+    * @return          The clusters, <tt>null</tt> if the algorithm is unknown. */
+  private static <V, E> List<Set<V>> clusters(String      alg,
+                                              Graph<V, E> graph,
+                                              int         nClusters) {
+    ClusteringAlgorithm<V> clAlg;
+    String[] name = alg.split(":");
+    switch (name[0]) {
       case "GirvanNewman":
-        clAlg = new GirvanNewmanClustering(_graph, nClusters);
+        if (name.length > 1) {
+          clAlg = new SampledGirvanNewmanClustering<>(graph, nClusters, Integer.parseInt(name[1]));
+          }
+        else if (nClusters > 0) {
+          clAlg = new GirvanNewmanClustering<>(graph, nClusters);
+          }
+        else {
+          log.error(alg + " needs the number of clusters");
+          return null;
+          }
         break;
       case "LabelPropagation":
-        clAlg = new LabelPropagationClustering(new AsUndirectedGraph(_graph));
+        clAlg = new LabelPropagationClustering<>(new AsUndirectedGraph<>(graph));
         break;
       case "KSpanningTree":
-        clAlg = new KSpanningTreeClustering(new AsUndirectedGraph(_graph), nClusters);
+        if (nClusters < 1) {
+          log.error(alg + " needs the number of clusters");
+          return null;
+          }
+        clAlg = new KSpanningTreeClustering<>(new AsUndirectedGraph<>(graph), nClusters);
+        break;
+      case "Louvain":
+        clAlg = new LouvainClustering<>(graph);
+        break;
+      case "Leiden":
+        clAlg = new LouvainClustering<>(graph, true);
         break;
        default:
          log.error("Unknown algorithm: " + alg);
-         return;
+         return null;
        }
-    List<Set<CustomVertex>> clusterSets = clAlg.getClustering().getClusters();
-    log.info("Clusters:");
-    for (Set<CustomVertex> cluster : clusterSets) {
-      log.info("\t" + cluster);
-      }
+    return clAlg.getClustering().getClusters();
     }
     
    /** Add immersion, i.e. accumulated distance to all other {@link CustomVertex}s.
@@ -170,87 +377,100 @@ public class Analyser {
                             String   immersionAttributeName,
                             String[] differenceAttributeNames,
                             int      kn) {
-     Set<CustomVertex> vs = _graph.vertexSet();
-     if (differenceAttributeNames == null) {
-       log.info("Using all attributes");
-       Set<String> allAttributeNames = new TreeSet<>();
-       for (CustomVertex v : vs) {
-         if (v.getLbl().equals(vertexLbl)) {
-           for (Map.Entry<String, AttributeType> entry : v.attributesReg().entrySet()) {
-             if (entry.getValue().equals(AttributeType.INT   ) ||
-                 entry.getValue().equals(AttributeType.LONG  ) ||
-                 entry.getValue().equals(AttributeType.FLOAT ) ||
-                 entry.getValue().equals(AttributeType.DOUBLE) ) {
-               allAttributeNames.add(entry.getKey());
-               }
-             }
+     addImmersion(vertexLbl, immersionAttributeName, differenceAttributeNames, kn, 0);
+     }
+    
+   /** Add immersion, i.e. accumulated distance to all other {@link CustomVertex}s.
+     * The approximate immersion is calculated using <em>Barnes-Hut</em> aggregation
+     * over {@link KDTree}, the achieved error bound and the error observed
+     * on a sample of exact sums are reported.
+     * @param vertexLbl                The label of the {@link CustomVertex}s to connect with distances.
+     * @param immersionAttributeName   The name of the new attribute carrying the accumulated distance value.
+     * @param differenceAttributeNames The names of {@link CustomVertex} attributes to be used to calculate the distance.
+     *                                 All numerical attributes will be used if <tt>null</tt>.
+     * @param kn                       The number of most and least immersed {@link CustomVertex}s to report.
+     * @param eps                      The target relative error of the approximate immersion.
+     *                                 The exact immersion is calculated if not positive. */
+   public void addImmersion(String   vertexLbl,
+                            String   immersionAttributeName,
+                            String[] differenceAttributeNames,
+                            int      kn,
+                            double   eps) {
+     FeatureMatrix fm = features(vertexLbl, differenceAttributeNames);
+     log.info("Adding " + (eps > 0 ? "approximate " : "") + "immersion of " + vertexLbl + ".[" + String.join(",", fm.names()) + "] recorded as " + immersionAttributeName);
+     if (fm.rows() == 0) {
+       log.warn("No " + vertexLbl + "s to immerse");
+       return;
+       }
+     double[] immersion = new double[fm.rows()];
+     if (eps > 0) {
+       KDTree tree = new KDTree(fm);
+       double[] bound = new double[fm.rows()];
+       IntStream.range(0, fm.rows()).parallel().forEach(i -> {
+         double[] result = tree.distanceSum(i, eps);
+         immersion[i] = result[0];
+         bound[i]     = result[1];
+         });
+       double achieved = 0;
+       for (int i = 0; i < fm.rows(); i++) {
+         if (bound[i] > 0) {
+           achieved = Math.max(achieved, bound[i] / (immersion[i] - bound[i]));
            }
          }
-       differenceAttributeNames = allAttributeNames.toArray(new String[0]);
-       }
-     log.info("Normalising");
-     TreeMap<String, Double> norm = new TreeMap<>();
-     double sum = 0;
-     int n  = 0;
-     for (String x : differenceAttributeNames) {
-       for (CustomVertex v : vs) {
-         if (v.getLbl().equals(vertexLbl)) {
-           sum += Double.valueOf(v.getAttribute(x).getValue());
-           n++;
+       log.info("Relative error target " + eps + ", achieved bound " + achieved);
+       double observed = new Random(0).ints(Math.min(RECALL_SAMPLES, fm.rows()), 0, fm.rows()).parallel().mapToDouble(i -> {
+         double exact = 0;
+         for (int j = 0; j < fm.rows(); j++) {
+           exact += fm.difference(i, j, DifferenceAlg.SQR);
            }
+         return exact > 0 ? Math.abs(immersion[i] - exact) / exact : 0;
+         }).max().orElse(0);
+       log.info("Relative error observed on " + Math.min(RECALL_SAMPLES, fm.rows()) + " exact samples " + observed);
+       }
+     else {
+       if (_verify) {
+         _kernel.verify(fm, DifferenceAlg.SQR, RECALL_SAMPLES);
          }
-       norm.put(x, sum / n);
-       } 
-     log.info("Adding immersion of " + vertexLbl + ".[" + String.join(",", differenceAttributeNames) + "] recorded as " + immersionAttributeName);
-     double min = Integer.MAX_VALUE;
-     double max = Integer.MIN_VALUE;
-     CustomVertex minV = null;
-     CustomVertex maxV = null;
-     Map<CustomVertex, Double> connectivity = new LinkedHashMap<>();
-     for (CustomVertex v1 : vs) {
-       if (v1.getLbl().equals(vertexLbl)) {
+       double[] diffs = new double[fm.rows()];
+       double sum;
+       for (int i = 0; i < fm.rows(); i++) {
+         _kernel.differences(fm, i, 0, fm.rows(), DifferenceAlg.SQR, diffs);
          sum = 0;
-         for (CustomVertex v2 : vs) {
-           if (v2.getLbl().equals(vertexLbl)) {
-             sum += difference(v1, v2, differenceAttributeNames, norm, DifferenceAlg.SQR);
-             }
-           }
-         v1.putAttribute(immersionAttributeName, DefaultAttribute.createAttribute(sum));
-         connectivity.put(v1, sum);
-         if (sum < min) {
-           min = sum;
-           minV = v1;
-           }
-         if (sum > max) {
-           max = sum;
-           maxV = v1;
+         for (int j = 0; j < fm.rows(); j++) {
+           sum += diffs[j];
            }
+         immersion[i] = sum;
          }
        }
-     Map<CustomVertex, Double> sortedConnectivity = connectivity.
-                                                    entrySet().
-                                                    stream().
-                                                    sorted(Map.Entry.comparingByValue()).
-                                                    collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e1, LinkedHashMap::new));  
-     CustomVertex cv;
-     int k  = 0;
+     for (int i = 0; i < fm.rows(); i++) {
+       fm.vertex(i).putAttribute(immersionAttributeName, DefaultAttribute.createAttribute(immersion[i]));
+       }
+     int k = 0;
      log.info("Most connected: " + vertexLbl + "s");
-     for (Map.Entry<CustomVertex, Double> entry : sortedConnectivity.entrySet()) {
-       if (k++ < kn) {
-         cv = entry.getKey();
-         log.info("\t" + k + "\t:" + cv + "(connectivity=" + entry.getValue() + ")");
-         }
-       }     
-     k = 0;
+     for (int i : Ranking.lowest(immersion, kn)) {
+       log.info("\t" + ++k + "\t:" + fm.vertex(i) + "(connectivity=" + immersion[i] + ")");
+       }
+     k = fm.rows() - Math.min(kn, fm.rows());
      log.info("Most isolated: " + vertexLbl + "s");
-     for (Map.Entry<CustomVertex, Double> entry : sortedConnectivity.entrySet()) {
-       if ((connectivity.size() - k++) <= kn) {
-         cv = entry.getKey();
-         log.info("\t" + k + "\t:" + cv + "(connectivity=" + entry.getValue() + ")");
-         }
-       }      
+     for (int i : Ranking.highest(immersion, kn)) {
+       log.info("\t" + ++k + "\t:" + fm.vertex(i) + "(connectivity=" + immersion[i] + ")");
+       }
      }
     
+   /** Extract the features and normalise them using the current {@link Normalisation}.
+     * {@link FeatureStatistics} are calculated on each call,
+     * so attributes changed since the previous call are taken into account.
+     * @param vertexLbl      The label of the {@link CustomVertex}s to use.
+     * @param attributeNames The names of {@link CustomVertex} attributes to use.
+     *                       All numerical attributes will be used if <tt>null</tt>.
+     * @return               The normalised {@link FeatureMatrix}. */
+   private FeatureMatrix features(String   vertexLbl,
+                                  String[] attributeNames) {
+     FeatureMatrix fm = new FeatureMatrix(_index.vertexes(vertexLbl), vertexLbl, attributeNames);
+     fm.normalise(_normalisation, new FeatureStatistics(fm));
+     return fm;
+     }
+
    /** Add distances between {@link CustomVertex}s.
      * @param vertexLbl                The label of the {@link CustomVertex}s to connect with distances.
      * @param edgeLbl                  The label of the new {@link CustomEdge}.
@@ -267,134 +487,194 @@ public class Analyser {
                             String[] differenceAttributeNames,
                             double   minDifference,
                             double   maxDifference) {
-     Set<CustomVertex> vs = _graph.vertexSet().stream().collect(toCollection(LinkedHashSet::new)); //.stream().limit(2000).collect(toCollection(LinkedHashSet::new));
-     //Set<CustomVertex> vs = _graph.vertexSet().stream().limit(200).collect(toCollection(LinkedHashSet::new)); //.stream().limit(2000).collect(toCollection(LinkedHashSet::new));
-     if (differenceAttributeNames == null) {
-       log.info("Using all attributes");
-       Set<String> allAttributeNames = new TreeSet<>();
-       for (CustomVertex v : vs) {
-         if (v.getLbl().equals(vertexLbl)) {
-           for (Map.Entry<String, AttributeType> entry : v.attributesReg().entrySet()) {
-             if (entry.getValue().equals(AttributeType.INT   ) ||
-                 entry.getValue().equals(AttributeType.LONG  ) ||
-                 entry.getValue().equals(AttributeType.FLOAT ) ||
-                 entry.getValue().equals(AttributeType.DOUBLE) ) {
-               allAttributeNames.add(entry.getKey());
-               }
-             }
-           }
-         }
-       differenceAttributeNames = allAttributeNames.toArray(new String[0]);
-       }
-     log.info("Normalising");
-     TreeMap<String, Double> norm = new TreeMap<>();
-     double sum = 0;
-     int n  = 0;
-     for (String x : differenceAttributeNames) {
-       for (CustomVertex v : vs) {
-         if (v.getLbl().equals(vertexLbl)) {
-           sum += Double.valueOf(v.getAttribute(x).getValue());
-           n++;
-           }
-         }
-       norm.put(x, sum / n);
-       } 
-     log.info("Adding distances between " + vertexLbl + ".[" + String.join(",", differenceAttributeNames) + "] recorded as " + edgeLbl + "." + edgeAttributeName);
-     CustomEdge e;
-     double diff;
-     int n1 = 0;
-     int n2 = 0;
-     double min = Integer.MAX_VALUE;
-     double max = Integer.MIN_VALUE;
-     for (CustomVertex v1 : vs) {
-         n1++;
-       if (v1.getLbl().equals(vertexLbl)) {
-         n2 = 0;
-         for (CustomVertex v2 : vs) {
-             n2++;
-           if (v2.getLbl().equals(vertexLbl)) {
-             if (n2 > n1) {
-               diff = difference(v1, v2, differenceAttributeNames, norm, DifferenceAlg.SQR);
-               if (diff > max) {
-                 max = diff;
-                 }
-               if (diff == 0) {
-                 log.info(" " + n1 + " " + n2 + " " + v1 + " " + v2);
-                 }
-               if (diff != 0 && diff < min) {
-                 min = diff;
-                 }
-               }
-             }
-           }
-         }
+     FeatureMatrix fm = features(vertexLbl, differenceAttributeNames);
+     log.info("Adding distances between " + vertexLbl + ".[" + String.join(",", fm.names()) + "] recorded as " + edgeLbl + "." + edgeAttributeName);
+     if (_verify) {
+       _kernel.verify(fm, DifferenceAlg.SQR, RECALL_SAMPLES);
        }
+     DistanceEngine engine = new DistanceEngine(fm, DifferenceAlg.SQR, _kernel);
+     double min = engine.min();
+     double max = engine.max();
      log.info("difference in (" + min + ", " + max + ")");
-     n1 = 0;
-     n2 = 0;
-     for (CustomVertex v1 : vs) {
-       if (v1.getLbl().equals(vertexLbl)) {
-         n1++;
-         n2 = 0;
-         for (CustomVertex v2 : vs) {
-           if (v2.getLbl().equals(vertexLbl)) {
-             n2++;
-             if (n2 > n1) {
-               diff = difference(v1, v2, differenceAttributeNames, norm, DifferenceAlg.SQR);
-               if (diff > min * minDifference && diff < max * maxDifference) {
-                 e = new CustomEdge();
-                 e.putAttribute(edgeAttributeName, DefaultAttribute.createAttribute(1 / diff));
-                 e.putAttribute("labelE",          DefaultAttribute.createAttribute(edgeLbl ));
-                 _graph.addEdge(v1, v2, e);
-                 _graph.setEdgeWeight(e, e.generateWeight());
-                 }
-               }
-             }
-           }
-         }
+     engine.forEach(min * minDifference, max * maxDifference, (i, j, diff) -> addDistance(fm.vertex(i), fm.vertex(j), edgeLbl, edgeAttributeName, diff));
+     }
+     
+   /** Add distances between {@link CustomVertex}s and their <em>k</em> nearest neighbours.
+     * Neighbours are found using {@link KDTree} in the Euclidean metric,
+     * each pair is connected only once.
+     * @param vertexLbl                The label of the {@link CustomVertex}s to connect with distances.
+     * @param edgeLbl                  The label of the new {@link CustomEdge}.
+     * @param edgeAttributeName        The name of the new {@link CustomEdge} attribute carrying the distance value.
+     * @param differenceAttributeNames The names of {@link CustomVertex} attributes to be used to calculate the distance.
+     *                                 All numerical attributes will be used if <tt>null</tt>. 
+     * @param k                        The number of nearest neighbours to connect. */
+   public void addNeighbours(String   vertexLbl,
+                             String   edgeLbl,
+                             String   edgeAttributeName,
+                             String[] differenceAttributeNames,
+                             int      k) {
+     if (k < 1) {
+       log.error("Number of nearest neighbours must be positive, not " + k);
+       return;
+       }
+     FeatureMatrix fm = features(vertexLbl, differenceAttributeNames);
+     log.info("Adding distances between " + vertexLbl + ".[" + String.join(",", fm.names()) + "] and their " + k + " nearest neighbours recorded as " + edgeLbl + "." + edgeAttributeName);
+     int size;
+     try {
+       size = Math.multiplyExact(fm.rows(), k);
+       }
+     catch (ArithmeticException e) {
+       log.error("Too many neighbours: " + fm.rows() + " x " + k);
+       return;
        }
+     KDTree tree = new KDTree(fm);
+     int[]    rows  = new int[   size];
+     double[] dists = new double[size];
+     IntStream.range(0, fm.rows()).parallel().forEach(i -> {
+       int[]    r = new int[k];
+       double[] d = new double[k];
+       tree.nearest(i, k, r, d);
+       System.arraycopy(r, 0, rows,  i * k, k);
+       System.arraycopy(d, 0, dists, i * k, k);
+       });
+     addNeighbourDistances(fm, rows, dists, k, edgeLbl, edgeAttributeName);
      }
      
-   /** Give the difference between {@link CustomVertex}s.
-     * @param v1                       The first {@link CustomVertex}.
-     * @param v2                       The second {@link CustomVertex}.
+   /** Add distances between {@link CustomVertex}s and their approximate nearest neighbours.
+     * Neighbours are found using {@link HNSWIndex} in the Euclidean metric,
+     * each pair is connected only once. The recall is estimated on a sample
+     * against the exact search.
+     * @param vertexLbl                The label of the {@link CustomVertex}s to connect with distances.
+     * @param edgeLbl                  The label of the new {@link CustomEdge}.
+     * @param edgeAttributeName        The name of the new {@link CustomEdge} attribute carrying the distance value.
      * @param differenceAttributeNames The names of {@link CustomVertex} attributes to be used to calculate the distance.
-     * @param norm                     The normalisation factors for attributes. Ignored if <tt>null</tt>.
-     * @param alg                      The DifferenceAlg to use to calculate the distance.
-     * @return                         The distance. */
-   private double difference(CustomVertex            v1,
-                             CustomVertex            v2,
-                             String[]                differenceAttributeNames,
-                             TreeMap<String, Double> norm,
-                             DifferenceAlg           alg) {
-     double diff = 0;
-     double val1;
-     double val2;
-     for (String x : differenceAttributeNames) {
-       val1 = Double.valueOf(v1.getAttribute(x).getValue());
-       val2 = Double.valueOf(v2.getAttribute(x).getValue());
-       if (norm !=  null) {
-         val1 = val1 / norm.get(x);
-         val2 = val2 / norm.get(x);
+     *                                 All numerical attributes will be used if <tt>null</tt>. 
+     * @param k                        The number of nearest neighbours to connect.
+     *                                 If not positive, all neighbours within <tt>radius</tt>
+     *                                 (up to <tt>efSearch</tt>) are connected.
+     * @param radius                   The maximal distance of connected neighbours. No limit if not positive.
+     * @param m                        The number of links per {@link HNSWIndex} node.
+     * @param efConstruction           The size of the candidate list during {@link HNSWIndex} construction.
+     * @param efSearch                 The size of the candidate list during {@link HNSWIndex} search. */
+   public void addApproximateNeighbours(String   vertexLbl,
+                                        String   edgeLbl,
+                                        String   edgeAttributeName,
+                                        String[] differenceAttributeNames,
+                                        int      k,
+                                        double   radius,
+                                        int      m,
+                                        int      efConstruction,
+                                        int      efSearch) {
+     FeatureMatrix fm = features(vertexLbl, differenceAttributeNames);
+     int width = k > 0 ? k : efSearch;
+     log.info("Adding distances between " + vertexLbl + ".[" + String.join(",", fm.names()) + "] and their " + (k > 0 ? (k + " nearest neighbours") : ("neighbours within " + radius)) + " recorded as " + edgeLbl + "." + edgeAttributeName);
+     int size;
+     try {
+       size = Math.multiplyExact(fm.rows(), width);
+       }
+     catch (ArithmeticException e) {
+       log.error("Too many neighbours: " + fm.rows() + " x " + width);
+       return;
+       }
+     HNSWIndex index = new HNSWIndex(fm, m, efConstruction);
+     log.info("Estimated recall (efSearch = " + efSearch + "): " + index.recall(width, efSearch, radius, RECALL_SAMPLES));
+     int[]    rows  = new int[   size];
+     double[] dists = new double[size];
+     IntStream.range(0, fm.rows()).parallel().forEach(i -> {
+       int[]    r = new int[width];
+       double[] d = new double[width];
+       index.nearest(i, width, efSearch, radius, r, d);
+       System.arraycopy(r, 0, rows,  i * width, width);
+       System.arraycopy(d, 0, dists, i * width, width);
+       });
+     addNeighbourDistances(fm, rows, dists, width, edgeLbl, edgeAttributeName);
+     }
+     
+   /** Add great-circle distances between {@link CustomVertex}s on the sky.
+     * Pairs are found using {@link SkyIndex} from the <tt>ra</tt> and <tt>dec</tt> attributes,
+     * each pair is connected only once. 
+     * @param vertexLbl         The label of the {@link CustomVertex}s to connect with distances.
+     * @param edgeLbl           The label of the new {@link CustomEdge}.
+     * @param edgeAttributeName The name of the new {@link CustomEdge} attribute carrying the distance value.
+     * @param minSeparation     The minimal separation [arcsec] for the edge to be recorded (exclusive).
+     * @param maxSeparation     The maximal separation [arcsec] for the edge to be recorded (inclusive). */
+   public void addSkyDistances(String vertexLbl,
+                               String edgeLbl,
+                               String edgeAttributeName,
+                               double minSeparation,
+                               double maxSeparation) {
+     FeatureMatrix fm = new FeatureMatrix(_index.vertexes(vertexLbl), vertexLbl, RADECs);
+     log.info("Adding sky distances between " + vertexLbl + "s in (" + minSeparation + ", " + maxSeparation + "] arcsec recorded as " + edgeLbl + "." + edgeAttributeName);
+     SkyIndex index = new SkyIndex(fm.column(0), fm.column(1), maxSeparation / 3600);
+     int[][]    rows = new int[   fm.rows()][];
+     double[][] seps = new double[fm.rows()][];
+     IntStream.range(0, fm.rows()).parallel().forEach(i -> {
+       List<Integer> js = new ArrayList<>();
+       List<Double>  ss = new ArrayList<>();
+       index.neighbours(i, minSeparation / 3600, maxSeparation / 3600, (j, sep) -> {
+         if (j > i) {
+           js.add(j);
+           ss.add(sep * 3600);
+           }
+         });
+       rows[i] = js.stream().mapToInt(Integer::intValue).toArray();
+       seps[i] = ss.stream().mapToDouble(Double::doubleValue).toArray();
+       });
+     int n = 0;
+     for (int i = 0; i < fm.rows(); i++) {
+       for (int j = 0; j < rows[i].length; j++) {
+         addDistance(fm.vertex(i), fm.vertex(rows[i][j]), edgeLbl, edgeAttributeName, seps[i][j]);
+         n++;
          }
-       switch(alg) {
-         case LIN:
-           diff += Math.abs(val1 - val2);
-           break;
-         case SQR:
-           diff += Math.pow(val1 - val2, 2);
-           break;
-         case LOG:
-           diff += Math.log1p(Math.abs(val1 - val2));
-           break;
+       }
+     log.info(n + " " + edgeLbl + "s added");
+     }
+     
+   /** Add distances between {@link FeatureMatrix} rows and their neighbours.
+     * Each pair is connected only once, from the lower to the higher row.
+     * @param fm                The {@link FeatureMatrix} of {@link CustomVertex}s.
+     * @param rows              The neighbour rows, <tt>width</tt> per row, terminated by <tt>-1</tt>.
+     * @param dists             The neighbour distances.
+     * @param width             The number of neighbour slots per row.
+     * @param edgeLbl           The label of the new {@link CustomEdge}.
+     * @param edgeAttributeName The name of the new {@link CustomEdge} attribute carrying the distance value. */
+   private void addNeighbourDistances(FeatureMatrix fm,
+                                      int[]         rows,
+                                      double[]      dists,
+                                      int           width,
+                                      String        edgeLbl,
+                                      String        edgeAttributeName) {
+     Set<Long> done = new HashSet<>();
+     int i1;
+     int i2;
+     for (int i = 0; i < fm.rows(); i++) {
+       for (int j = i * width; j < (i + 1) * width && rows[j] >= 0; j++) {
+         i1 = Math.min(i, rows[j]);
+         i2 = Math.max(i, rows[j]);
+         if (done.add((long)i1 * fm.rows() + i2)) {
+           addDistance(fm.vertex(i1), fm.vertex(i2), edgeLbl, edgeAttributeName, dists[j]);
+           }
          }
        }
-     switch(alg) {
-       case SQR: 
-         return Math.sqrt(diff);  
-       default:
-         return diff;
-       }       
+     log.info(done.size() + " " + edgeLbl + "s added");
+     }
+     
+   /** Add one distance {@link CustomEdge}.
+     * @param v1                The source {@link CustomVertex}.
+     * @param v2                The target {@link CustomVertex}.
+     * @param edgeLbl           The label of the new {@link CustomEdge}.
+     * @param edgeAttributeName The name of the new {@link CustomEdge} attribute carrying the distance value.
+     * @param diff              The distance. */
+   private void addDistance(CustomVertex v1,
+                            CustomVertex v2,
+                            String       edgeLbl,
+                            String       edgeAttributeName,
+                            double       diff) {
+     CustomEdge e = new CustomEdge();
+     e.putAttribute(edgeAttributeName, 1 / diff);
+     e.putAttribute("labelE",          DefaultAttribute.createAttribute(edgeLbl ));
+     _graph.addEdge(v1, v2, e);
+     _graph.setEdgeWeight(e, e.generateWeight());
      }
      
 // =============================================================================     
@@ -406,11 +686,30 @@ public class Analyser {
     }
     
    public enum DifferenceAlg {LIN, SQR, LOG}; 
+
+   /** The normalisation of features:
+     * <ul>
+     * <li><b>MEAN</b> divides by the mean.</li>
+     * <li><b>ZSCORE</b> subtracts the mean and divides by the standard deviation.</li>
+     * <li><b>MINMAX</b> maps the range to <tt>[0, 1]</tt>.</li>
+     * <li><b>NONE</b> keeps raw values.</li>
+     * </ul> */
+   public enum Normalisation {MEAN, ZSCORE, MINMAX, NONE};
     
    private Graph<CustomVertex, CustomEdge> _graph;
+
+   private VertexLabelIndex _index;
+
+   private FrozenGraph<?> _frozen;
    
    private Params _params;
-   
+
+   private DistanceKernel _kernel = DistanceKernel.BLOCK;
+
+   private boolean _verify = false;
+
+   private Normalisation _normalisation = Normalisation.MEAN;
+
    private static String[] PCAs = new String[]{"pca00",
                                                "pca01",
                                                "pca02",
@@ -451,6 +750,9 @@ public class Analyser {
   private static String[] RADECs = new String[]{"ra",
                                                 "dec"};
     
+  /** The number of sampled {@link CustomVertex}s to estimate the recall or error of approximate calculations. */
+  private static final int RECALL_SAMPLES = 200;
+    
   /** Logging . */
   private static Logger log = LogManager.getLogger(Analyser.class);
   
@@ -0,0 +1,310 @@
+package com.Grapher.Analysis;
+
+import com.Grapher.Analysis.Analyser.DifferenceAlg;
+
+// Java
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ForkJoinPool;
+
+// Log4J
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/** <code>DistanceEngine</code> calculates all pairwise differences
+  * between rows of a {@link FeatureMatrix}.
+  * The upper triangle is split into cache-sized tiles, which are
+  * calculated in parallel in the {@link ForkJoinPool}.
+  * The first sweep only finds the global minimal and maximal difference.
+  * The second sweep goes over one row of tiles at a time, keeps only pairs
+  * within the requested interval and gives them back
+  * in the deterministic row-major order,
+  * so no more than the selected pairs of one row of tiles is kept in memory.
+  * Each row is compared with a block of columns by a {@link DistanceKernel}.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class DistanceEngine {
+
+  /** Create and run with the {@link DistanceKernel#BLOCK} kernel.
+    * @param fm  The {@link FeatureMatrix} to process.
+    * @param alg The {@link DifferenceAlg} to use to calculate the distance. */
+  public DistanceEngine(FeatureMatrix fm,
+                        DifferenceAlg alg) {
+    this(fm, alg, DistanceKernel.BLOCK);
+    }
+
+  /** Create and run.
+    * @param fm     The {@link FeatureMatrix} to process.
+    * @param alg    The {@link DifferenceAlg} to use to calculate the distance.
+    * @param kernel The {@link DistanceKernel} to use. */
+  public DistanceEngine(FeatureMatrix  fm,
+                        DifferenceAlg  alg,
+                        DistanceKernel kernel) {
+    _fm     = fm;
+    _alg    = alg;
+    _kernel = kernel;
+    int n = fm.rows();
+    if (n < 2) {
+      _tiles = new Tile[0];
+      return;
+      }
+    int p = ForkJoinPool.getCommonPoolParallelism();
+    _tileSize = Math.max(MIN_TILE, Math.min(CACHE_BYTES / (2 * Double.BYTES * Math.max(1, fm.columns())),
+                                            (n + 4 * p - 1) / (4 * p)));
+    _nTiles = (n + _tileSize - 1) / _tileSize;
+    _tiles = new Tile[_nTiles * (_nTiles + 1) / 2];
+    int t = 0;
+    for (int ti = 0; ti < _nTiles; ti++) {
+      for (int tj = ti; tj < _nTiles; tj++) {
+        _tiles[t++] = new Tile(ti * _tileSize, Math.min(n, (ti + 1) * _tileSize),
+                               tj * _tileSize, Math.min(n, (tj + 1) * _tileSize));
+        }
+      }
+    log.info("Calculating " + ((long)n * (n - 1) / 2) + " differences in " + _tiles.length + " tiles of " + _tileSize + " rows using " + kernel + " kernel");
+    ForkJoinPool.commonPool().invoke(new TileTask(0, _tiles.length, false));
+    for (Tile tile : _tiles) {
+      _min   = Math.min(_min, tile._min);
+      _max   = Math.max(_max, tile._max);
+      _zeros += tile._zeros;
+      }
+    if (_zeros > 0) {
+      log.info(_zeros + " pairs with zero difference");
+      }
+    }
+
+  /** Give all pairs with the difference in the open interval
+    * <tt>(lower, upper)</tt> to the {@link PairConsumer},
+    * ordered by the first and then by the second row.
+    * Differences are calculated again, one row of tiles at a time.
+    * @param lower    The lower limit of the difference.
+    * @param upper    The upper limit of the difference.
+    * @param consumer The {@link PairConsumer} to receive selected pairs. */
+  public void forEach(double       lower,
+                      double       upper,
+                      PairConsumer consumer) {
+    _lower = lower;
+    _upper = upper;
+    int tileRow = 0;
+    Tile tile;
+    int r;
+    for (int ti = 0; ti < _nTiles; ti++) {
+      ForkJoinPool.commonPool().invoke(new TileTask(tileRow, tileRow + _nTiles - ti, true));
+      for (int i = _tiles[tileRow]._i0; i < _tiles[tileRow]._i1; i++) {
+        for (int tj = ti; tj < _nTiles; tj++) {
+          tile = _tiles[tileRow + tj - ti];
+          r = i - tile._i0;
+          for (int c = tile._rowStart[r]; c < tile._rowStart[r + 1]; c++) {
+            consumer.accept(i, tile._cols[c], tile._diffs[c]);
+            }
+          }
+        }
+      for (int tj = ti; tj < _nTiles; tj++) {
+        _tiles[tileRow + tj - ti].clear();
+        }
+      tileRow += _nTiles - ti;
+      }
+    }
+
+  /** Give the minimal non-zero difference.
+    * @return The minimal non-zero difference. */
+  public double min() {
+    return _min;
+    }
+
+  /** Give the maximal difference.
+    * @return The maximal difference. */
+  public double max() {
+    return _max;
+    }
+
+  /** <code>PairConsumer</code> receives one pair of {@link FeatureMatrix} rows with their difference. */
+  public interface PairConsumer {
+
+    /** Accept one pair.
+      * @param i    The first row.
+      * @param j    The second row.
+      * @param diff The difference. */
+    public void accept(int    i,
+                       int    j,
+                       double diff);
+
+    }
+
+  /** <code>TileTask</code> calculates a range of {@link Tile}s,
+    * splitting it recursively. */
+  private class TileTask extends RecursiveAction {
+
+    /** Create.
+      * @param from    The first {@link Tile}.
+      * @param to      The {@link Tile} after the last one.
+      * @param collect Whether to collect selected pairs or only the statistics. */
+    TileTask(int     from,
+             int     to,
+             boolean collect) {
+      _from    = from;
+      _to      = to;
+      _collect = collect;
+      }
+
+    @Override
+    protected void compute() {
+      if (_to - _from <= 1) {
+        if (_to > _from) {
+          if (_collect) {
+            _tiles[_from].collect(_lower, _upper);
+            }
+          else {
+            _tiles[_from].statistics();
+            }
+          }
+        }
+      else {
+        int mid = (_from + _to) >>> 1;
+        invokeAll(new TileTask(_from, mid, _collect), new TileTask(mid, _to, _collect));
+        }
+      }
+
+    private int _from;
+
+    private int _to;
+
+    private boolean _collect;
+
+    private static final long serialVersionUID = 1L;
+
+    }
+
+  /** <code>Tile</code> is one block of rows against one block of columns.
+    * Selected differences of the upper triangle are kept, indexed by row,
+    * until they are given to the {@link PairConsumer}. */
+  private class Tile {
+
+    Tile(int i0,
+         int i1,
+         int j0,
+         int j1) {
+      _i0 = i0;
+      _i1 = i1;
+      _j0 = j0;
+      _j1 = j1;
+      }
+
+    /** Find the minimal non-zero and the maximal difference. */
+    void statistics() {
+      double[] block = new double[_j1 - _j0];
+      int from;
+      double diff;
+      for (int i = _i0; i < _i1; i++) {
+        from = Math.max(_j0, i + 1);
+        _kernel.differences(_fm, i, from, _j1, _alg, block);
+        for (int j = from; j < _j1; j++) {
+          diff = block[j - from];
+          if (diff > _max) {
+            _max = diff;
+            }
+          if (diff == 0) {
+            _zeros++;
+            log.debug("Zero difference: " + _fm.vertex(i) + " " + _fm.vertex(j));
+            }
+          else if (diff < _min) {
+            _min = diff;
+            }
+          }
+        }
+      }
+
+    /** Keep pairs with the difference in the open interval <tt>(lower, upper)</tt>.
+      * @param lower The lower limit of the difference.
+      * @param upper The upper limit of the difference. */
+    void collect(double lower,
+                 double upper) {
+      _rowStart = new int[_i1 - _i0 + 1];
+      _cols     = new int[INITIAL_CAPACITY];
+      _diffs    = new double[INITIAL_CAPACITY];
+      double[] block = new double[_j1 - _j0];
+      int c = 0;
+      int from;
+      double diff;
+      for (int i = _i0; i < _i1; i++) {
+        _rowStart[i - _i0] = c;
+        from = Math.max(_j0, i + 1);
+        _kernel.differences(_fm, i, from, _j1, _alg, block);
+        for (int j = from; j < _j1; j++) {
+          diff = block[j - from];
+          if (diff > lower && diff < upper) {
+            if (c == _cols.length) {
+              _cols  = Arrays.copyOf(_cols,  2 * c);
+              _diffs = Arrays.copyOf(_diffs, 2 * c);
+              }
+            _cols[c]  = j;
+            _diffs[c] = diff;
+            c++;
+            }
+          }
+        }
+      _rowStart[_i1 - _i0] = c;
+      }
+
+    /** Release kept pairs. */
+    void clear() {
+      _rowStart = null;
+      _cols     = null;
+      _diffs    = null;
+      }
+
+    private int _i0;
+
+    private int _i1;
+
+    private int _j0;
+
+    private int _j1;
+
+    private int[] _rowStart;
+
+    private int[] _cols;
+
+    private double[] _diffs;
+
+    private double _min = Integer.MAX_VALUE;
+
+    private double _max = Integer.MIN_VALUE;
+
+    private long _zeros = 0;
+
+    }
+
+  private FeatureMatrix _fm;
+
+  private DifferenceAlg _alg;
+
+  private DistanceKernel _kernel;
+
+  private int _tileSize;
+
+  private int _nTiles;
+
+  private Tile[] _tiles;
+
+  private double _min = Integer.MAX_VALUE;
+
+  private double _max = Integer.MIN_VALUE;
+
+  private long _zeros = 0;
+
+  private double _lower;
+
+  private double _upper;
+
+  /** The cache size to fit two blocks of rows into. */
+  private static final int CACHE_BYTES = 256 * 1024;
+
+  /** The minimal number of rows in a tile. */
+  private static final int MIN_TILE = 16;
+
+  /** The initial capacity for selected pairs of a tile. */
+  private static final int INITIAL_CAPACITY = 1024;
+
+  /** Logging . */
+  private static Logger log = LogManager.getLogger(DistanceEngine.class);
+
+  }
@@ -0,0 +1,217 @@
+package com.Grapher.Analysis;
+
+import com.Grapher.CustomGraph.CustomVertex;
+import com.Grapher.Analysis.Analyser.DifferenceAlg;
+import com.Grapher.Analysis.Analyser.Normalisation;
+
+// JGraphT
+import org.jgrapht.nio.AttributeType;
+
+// Java
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collection;
+
+// Log4J
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/** <code>FeatureMatrix</code> keeps selected numerical attributes
+  * of all {@link CustomVertex}s with one label as a dense,
+  * row-major <code>double[]</code> matrix. Attributes are extracted
+  * and parsed only once, then optionally normalised using {@link FeatureStatistics},
+  * all pairwise kernels then run over the matrix.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class FeatureMatrix {
+
+  /** Extract the raw features.
+    * @param vertexes       The {@link CustomVertex}s to select from.
+    * @param vertexLbl      The label of the {@link CustomVertex}s to use.
+    * @param attributeNames The names of {@link CustomVertex} attributes to use.
+    *                       All numerical attributes will be used if <tt>null</tt>. */
+  public FeatureMatrix(Collection<CustomVertex> vertexes,
+                       String                   vertexLbl,
+                       String[]                 attributeNames) {
+    List<CustomVertex> selected = new ArrayList<>();
+    for (CustomVertex v : vertexes) {
+      if (vertexLbl.equals(v.getLbl())) {
+        selected.add(v);
+        }
+      }
+    if (attributeNames == null) {
+      log.info("Using all attributes");
+      attributeNames = numericalAttributeNames(selected);
+      }
+    _names    = attributeNames;
+    _vertexes = selected.toArray(new CustomVertex[0]);
+    _rows     = _vertexes.length;
+    _columns  = _names.length;
+    _data     = new double[_rows * _columns];
+    int missing = 0;
+    for (int i = 0; i < _rows; i++) {
+      for (int j = 0; j < _columns; j++) {
+        if (_vertexes[i].hasAttribute(_names[j])) {
+          _data[i * _columns + j] = _vertexes[i].getNumber(_names[j]);
+          }
+        else {
+          missing++;
+          }
+        }
+      }
+    if (missing > 0) {
+      log.warn(missing + " missing attribute values replaced by 0");
+      }
+    }
+
+  /** Normalise all columns.
+    * @param normalisation The {@link Normalisation} scheme.
+    * @param stats         The {@link FeatureStatistics} of the raw features. */
+  public void normalise(Normalisation     normalisation,
+                        FeatureStatistics stats) {
+    if (normalisation == Normalisation.NONE) {
+      return;
+      }
+    log.info("Normalising using " + normalisation);
+    double shift;
+    double scale;
+    for (int j = 0; j < _columns; j++) {
+      switch (normalisation) {
+        case MEAN:
+          shift = 0;
+          scale = stats.mean(j);
+          break;
+        case ZSCORE:
+          shift = stats.mean(j);
+          scale = stats.sigma(j);
+          break;
+        case MINMAX:
+          shift = stats.min(j);
+          scale = stats.max(j) - stats.min(j);
+          break;
+        default:
+          shift = 0;
+          scale = 1;
+        }
+      if (scale == 0) {
+        log.warn("Attribute " + _names[j] + " can't be scaled, " + normalisation + " scale is 0");
+        scale = 1;
+        }
+      for (int i = 0; i < _rows; i++) {
+        _data[i * _columns + j] = (_data[i * _columns + j] - shift) / scale;
+        }
+      }
+    }
+
+  /** Give the names of all numerical attributes
+    * available for all {@link CustomVertex}s.
+    * @param vertexes The {@link CustomVertex}s to check.
+    * @return         The names of numerical attributes, sorted. */
+  private static String[] numericalAttributeNames(List<CustomVertex> vertexes) {
+    Set<String> allAttributeNames = new TreeSet<>();
+    for (Map.Entry<String, AttributeType> entry : CustomVertex.attributesReg().entrySet()) {
+      if (entry.getValue().equals(AttributeType.INT   ) ||
+          entry.getValue().equals(AttributeType.LONG  ) ||
+          entry.getValue().equals(AttributeType.FLOAT ) ||
+          entry.getValue().equals(AttributeType.DOUBLE) ) {
+        allAttributeNames.add(entry.getKey());
+        }
+      }
+    for (CustomVertex v : vertexes) {
+      allAttributeNames.removeIf(x -> !v.hasAttribute(x));
+      }
+    return allAttributeNames.toArray(new String[0]);
+    }
+
+  /** Give the difference between two rows.
+    * @param i   The first row.
+    * @param j   The second row.
+    * @param alg The {@link DifferenceAlg} to use to calculate the distance.
+    * @return    The distance. */
+  public double difference(int           i,
+                           int           j,
+                           DifferenceAlg alg) {
+    int o1 = i * _columns;
+    int o2 = j * _columns;
+    double diff = 0;
+    double d;
+    switch (alg) {
+      case LIN:
+        for (int k = 0; k < _columns; k++) {
+          diff += Math.abs(_data[o1 + k] - _data[o2 + k]);
+          }
+        return diff;
+      case SQR:
+        for (int k = 0; k < _columns; k++) {
+          d = _data[o1 + k] - _data[o2 + k];
+          diff += d * d;
+          }
+        return Math.sqrt(diff);
+      case LOG:
+        for (int k = 0; k < _columns; k++) {
+          diff += Math.log1p(Math.abs(_data[o1 + k] - _data[o2 + k]));
+          }
+        return diff;
+      default:
+        return diff;
+      }
+    }
+
+  /** Give the number of rows, i.e. {@link CustomVertex}s.
+    * @return The number of rows. */
+  public int rows() {
+    return _rows;
+    }
+
+  /** Give the number of columns, i.e. attributes.
+    * @return The number of columns. */
+  public int columns() {
+    return _columns;
+    }
+
+  /** Give one column.
+    * @param j The column.
+    * @return  The copy of the column values. */
+  public double[] column(int j) {
+    double[] column = new double[_rows];
+    for (int i = 0; i < _rows; i++) {
+      column[i] = _data[i * _columns + j];
+      }
+    return column;
+    }
+
+  /** Give the row-major data.
+    * @return The row-major data. */
+  public double[] data() {
+    return _data;
+    }
+
+  /** Give the attribute names (columns).
+    * @return The attribute names. */
+  public String[] names() {
+    return _names;
+    }
+
+  /** Give the {@link CustomVertex} of one row.
+    * @param i The row.
+    * @return  The corresponding {@link CustomVertex}. */
+  public CustomVertex vertex(int i) {
+    return _vertexes[i];
+    }
+
+  private CustomVertex[] _vertexes;
+
+  private String[] _names;
+
+  private double[] _data;
+
+  private int _rows;
+
+  private int _columns;
+
+  /** Logging . */
+  private static Logger log = LogManager.getLogger(FeatureMatrix.class);
+
+  }
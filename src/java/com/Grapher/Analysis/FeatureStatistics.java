@@ -0,0 +1,165 @@
+package com.Grapher.Analysis;
+
+// Java
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Log4J
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/** <code>FeatureStatistics</code> keeps the count, mean, variance,
+  * minimum and maximum of all columns of a {@link FeatureMatrix}.
+  * All columns are accumulated in one parallel pass over rows,
+  * partial results are merged using the <em>Welford</em>/<em>Chan</em> formulas.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class FeatureStatistics {
+
+  /** Calculate the statistics of raw (not normalised) features.
+    * @param fm The {@link FeatureMatrix} to process. */
+  public FeatureStatistics(FeatureMatrix fm) {
+    _names = fm.names();
+    int d = fm.columns();
+    double[] data = fm.data();
+    Accumulator acc = IntStream.range(0, fm.rows())
+                               .parallel()
+                               .collect(() -> new Accumulator(d),
+                                        (a, i) -> a.add(data, i * d),
+                                        Accumulator::merge);
+    _count = acc._n;
+    _mean  = acc._mean;
+    _m2    = acc._m2;
+    _min   = acc._min;
+    _max   = acc._max;
+    for (int j = 0; j < d; j++) {
+      log.debug(_names[j] + ": mean = " + _mean[j] + ", sigma = " + sigma(j) + ", range = (" + _min[j] + ", " + _max[j] + ")");
+      }
+    }
+
+  /** Give the number of values.
+    * @return The number of values in each column. */
+  public long count() {
+    return _count;
+    }
+
+  /** Give the mean of one column.
+    * @param j The column.
+    * @return  The mean. */
+  public double mean(int j) {
+    return _mean[j];
+    }
+
+  /** Give the (population) variance of one column.
+    * @param j The column.
+    * @return  The variance. */
+  public double variance(int j) {
+    return _count > 0 ? _m2[j] / _count : 0;
+    }
+
+  /** Give the standard deviation of one column.
+    * @param j The column.
+    * @return  The standard deviation. */
+  public double sigma(int j) {
+    return Math.sqrt(variance(j));
+    }
+
+  /** Give the minimum of one column.
+    * @param j The column.
+    * @return  The minimum. */
+  public double min(int j) {
+    return _min[j];
+    }
+
+  /** Give the maximum of one column.
+    * @param j The column.
+    * @return  The maximum. */
+  public double max(int j) {
+    return _max[j];
+    }
+
+  /** Give the attribute names (columns).
+    * @return The attribute names. */
+  public String[] names() {
+    return _names;
+    }
+
+  /** <code>Accumulator</code> collects statistics of a part of rows. */
+  private static class Accumulator {
+
+    Accumulator(int d) {
+      _mean = new double[d];
+      _m2   = new double[d];
+      _min  = new double[d];
+      _max  = new double[d];
+      Arrays.fill(_min, Double.POSITIVE_INFINITY);
+      Arrays.fill(_max, Double.NEGATIVE_INFINITY);
+      }
+
+    /** Add one row.
+      * @param data   The row-major data.
+      * @param offset The offset of the row. */
+    void add(double[] data,
+             int      offset) {
+      _n++;
+      double x;
+      double delta;
+      for (int j = 0; j < _mean.length; j++) {
+        x = data[offset + j];
+        delta = x - _mean[j];
+        _mean[j] += delta / _n;
+        _m2[j]   += delta * (x - _mean[j]);
+        if (x < _min[j]) {
+          _min[j] = x;
+          }
+        if (x > _max[j]) {
+          _max[j] = x;
+          }
+        }
+      }
+
+    /** Merge another partial result into this one.
+      * @param other The other {@link Accumulator}. */
+    void merge(Accumulator other) {
+      if (other._n == 0) {
+        return;
+        }
+      long n = _n + other._n;
+      double delta;
+      for (int j = 0; j < _mean.length; j++) {
+        delta = other._mean[j] - _mean[j];
+        _mean[j] += delta * other._n / n;
+        _m2[j]   += other._m2[j] + delta * delta * _n * other._n / n;
+        _min[j]   = Math.min(_min[j], other._min[j]);
+        _max[j]   = Math.max(_max[j], other._max[j]);
+        }
+      _n = n;
+      }
+
+    private long _n;
+
+    private double[] _mean;
+
+    private double[] _m2;
+
+    private double[] _min;
+
+    private double[] _max;
+
+    }
+
+  private String[] _names;
+
+  private long _count;
+
+  private double[] _mean;
+
+  private double[] _m2;
+
+  private double[] _min;
+
+  private double[] _max;
+
+  /** Logging . */
+  private static Logger log = LogManager.getLogger(FeatureStatistics.class);
+
+  }
@@ -0,0 +1,475 @@
+package com.Grapher.Analysis.Indexes;
+
+import com.Grapher.Analysis.FeatureMatrix;
+
+// Java
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+// Log4J
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/** <code>HNSWIndex</code> is an approximate nearest neighbour index
+  * (<em>Hierarchical Navigable Small World</em> graph)
+  * over the rows of a {@link FeatureMatrix} in the Euclidean metric.
+  * It is suitable for high-dimensional features, where {@link KDTree}
+  * degrades to the brute-force search.
+  * The index is built sequentially with a fixed random seed,
+  * so it is reproducible, searches can run in parallel.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class HNSWIndex {
+
+  /** Build the index.
+    * @param fm             The {@link FeatureMatrix} to index.
+    * @param m              The number of links per node on upper layers
+    *                       (<tt>2m</tt> on the bottom layer).
+    * @param efConstruction The size of the candidate list during construction. */
+  public HNSWIndex(FeatureMatrix fm,
+                   int           m,
+                   int           efConstruction) {
+    _data  = fm.data();
+    _d     = fm.columns();
+    _n     = fm.rows();
+    _m     = Math.max(2, m);
+    _efC   = Math.max(_m, efConstruction);
+    _mL    = 1.0 / Math.log(_m);
+    _links = new int[_n][][];
+    _sizes = new int[_n][];
+    _search = ThreadLocal.withInitial(() -> new Search(_n));
+    Random random = new Random(SEED);
+    long start = System.currentTimeMillis();
+    Search search = new Search(_n);
+    for (int i = 0; i < _n; i++) {
+      insert(i, (int)(-Math.log(1.0 - random.nextDouble()) * _mL), search);
+      }
+    log.info("HNSWIndex(M = " + _m + ", efConstruction = " + _efC + ") with " + (_top + 1) + " layers built over " + _n + " rows of " + _d + " columns in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+  /** Insert one row.
+    * @param q      The row to insert.
+    * @param level  The top layer of the row.
+    * @param search The {@link Search} workspace. */
+  private void insert(int    q,
+                      int    level,
+                      Search search) {
+    _links[q] = new int[level + 1][];
+    _sizes[q] = new int[level + 1];
+    for (int l = 0; l <= level; l++) {
+      _links[q][l] = new int[maxLinks(l) + 1];
+      }
+    if (_entry < 0) {
+      _entry = q;
+      _top   = level;
+      return;
+      }
+    int ep = _entry;
+    for (int l = _top; l > level; l--) {
+      ep = greedy(q, ep, l);
+      }
+    for (int l = Math.min(level, _top); l >= 0; l--) {
+      search.layer(q, ep, _efC, l);
+      int[]    cs = search.sorted();
+      double[] ds = search.sortedDists();
+      int      nc = search.size();
+      int[] selected = select(cs, ds, nc, _m);
+      for (int s : selected) {
+        link(q, s, l);
+        link(s, q, l);
+        }
+      ep = cs[0];
+      }
+    if (level > _top) {
+      _top   = level;
+      _entry = q;
+      }
+    }
+
+  /** Add one directed link, shrinking the neighbour list if it overflows.
+    * @param from The source row.
+    * @param to   The target row.
+    * @param l    The layer. */
+  private void link(int from,
+                    int to,
+                    int l) {
+    int[] ns = _links[from][l];
+    int size = _sizes[from][l];
+    ns[size++] = to;
+    if (size > maxLinks(l)) {
+      double[] ds = new double[size];
+      int[]    cs = Arrays.copyOf(ns, size);
+      for (int k = 0; k < size; k++) {
+        ds[k] = distance(from, cs[k]);
+        }
+      sort(cs, ds, size);
+      int[] selected = select(cs, ds, size, maxLinks(l));
+      System.arraycopy(selected, 0, ns, 0, selected.length);
+      size = selected.length;
+      }
+    _sizes[from][l] = size;
+    }
+
+  /** Select neighbours using the diversity heuristic: a candidate is
+    * kept only if it is nearer to the base than to all already kept ones.
+    * Remaining slots are filled with the nearest skipped candidates.
+    * @param cs The candidates, ordered by distance.
+    * @param ds The candidate distances.
+    * @param nc The number of candidates.
+    * @param m  The maximal number of neighbours.
+    * @return   The selected neighbours. */
+  private int[] select(int[]    cs,
+                       double[] ds,
+                       int      nc,
+                       int      m) {
+    int[]     selected = new int[Math.min(m, nc)];
+    boolean[] used     = new boolean[nc];
+    int n = 0;
+    for (int k = 0; k < nc && n < selected.length; k++) {
+      boolean good = true;
+      for (int s = 0; s < n; s++) {
+        if (distance(cs[k], selected[s]) < ds[k]) {
+          good = false;
+          break;
+          }
+        }
+      if (good) {
+        selected[n++] = cs[k];
+        used[k] = true;
+        }
+      }
+    for (int k = 0; k < nc && n < selected.length; k++) {
+      if (!used[k]) {
+        selected[n++] = cs[k];
+        }
+      }
+    return selected;
+    }
+
+  /** Descend greedily on one layer.
+    * @param q  The query row.
+    * @param ep The entry point.
+    * @param l  The layer.
+    * @return   The nearest row found. */
+  private int greedy(int q,
+                     int ep,
+                     int l) {
+    double best = distance(q, ep);
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (int k = 0; k < _sizes[ep][l]; k++) {
+        int c = _links[ep][l][k];
+        double dist = distance(q, c);
+        if (dist < best) {
+          best    = dist;
+          ep      = c;
+          changed = true;
+          }
+        }
+      }
+    return ep;
+    }
+
+  /** Find approximate <em>k</em> nearest neighbours of one row.
+    * The row itself and rows with zero distance are not included.
+    * @param i        The row to search neighbours for.
+    * @param k        The number of neighbours to search for.
+    * @param efSearch The size of the candidate list during search.
+    * @param radius   The maximal distance of neighbours. No limit if not positive.
+    * @param rows     The array to receive neighbour rows, ordered by distance.
+    *                 Unused entries are set to <tt>-1</tt>.
+    * @param dists    The array to receive neighbour distances.
+    * @return         The number of neighbours found. */
+  public int nearest(int      i,
+                     int      k,
+                     int      efSearch,
+                     double   radius,
+                     int[]    rows,
+                     double[] dists) {
+    Search search = _search.get();
+    int ep = _entry;
+    for (int l = _top; l > 0; l--) {
+      ep = greedy(i, ep, l);
+      }
+    search.layer(i, ep, Math.max(efSearch, k + 1), 0);
+    int[]    cs = search.sorted();
+    double[] ds = search.sortedDists();
+    Arrays.fill(rows, -1);
+    double limit = radius > 0 ? radius * radius : Double.POSITIVE_INFINITY;
+    int found = 0;
+    for (int c = 0; c < search.size() && found < k; c++) {
+      if (cs[c] != i && ds[c] > 0 && ds[c] <= limit) {
+        rows[found]  = cs[c];
+        dists[found] = Math.sqrt(ds[c]);
+        found++;
+        }
+      }
+    return found;
+    }
+
+  /** Estimate the recall against the exact brute-force search
+    * on a sample of rows.
+    * @param k        The number of neighbours to search for.
+    * @param efSearch The size of the candidate list during search.
+    * @param radius   The maximal distance of neighbours. No limit if not positive.
+    * @param samples  The number of sampled rows.
+    * @return         The fraction of exact neighbours found, <tt>1</tt> if there are no rows. */
+  public double recall(int    k,
+                       int    efSearch,
+                       double radius,
+                       int    samples) {
+    if (_n == 0) {
+      return 1.0;
+      }
+    Random random = new Random(SEED);
+    int[] sample = random.ints(Math.min(samples, _n), 0, _n).toArray();
+    double limit = radius > 0 ? radius * radius : Double.POSITIVE_INFINITY;
+    long[] counts = IntStream.of(sample).parallel().mapToObj(i -> {
+      int[]    rows  = new int[k];
+      double[] dists = new double[k];
+      int found = nearest(i, k, efSearch, radius, rows, dists);
+      double[] exact = new double[_n];
+      int ne = 0;
+      for (int j = 0; j < _n; j++) {
+        double dist = distance(i, j);
+        if (j != i && dist > 0 && dist <= limit) {
+          exact[ne++] = dist;
+          }
+        }
+      Arrays.sort(exact, 0, ne);
+      ne = Math.min(ne, k);
+      // all neighbours not farther than the k-th exact one are correct
+      int hit = 0;
+      double kth = ne > 0 ? Math.sqrt(exact[ne - 1]) : -1;
+      for (int f = 0; f < found; f++) {
+        if (dists[f] <= kth) {
+          hit++;
+          }
+        }
+      return new long[]{Math.min(hit, ne), ne};
+      }).reduce(new long[]{0, 0}, (a, b) -> new long[]{a[0] + b[0], a[1] + b[1]});
+    return counts[1] == 0 ? 1.0 : (double)counts[0] / counts[1];
+    }
+
+  /** Give the squared distance between two rows.
+    * @param i The first row.
+    * @param j The second row.
+    * @return  The squared Euclidean distance. */
+  private double distance(int i,
+                          int j) {
+    int o1 = i * _d;
+    int o2 = j * _d;
+    double dist = 0;
+    double x;
+    for (int k = 0; k < _d; k++) {
+      x = _data[o1 + k] - _data[o2 + k];
+      dist += x * x;
+      }
+    return dist;
+    }
+
+  /** Give the maximal number of links on a layer.
+    * @param l The layer.
+    * @return  The maximal number of links. */
+  private int maxLinks(int l) {
+    return l == 0 ? 2 * _m : _m;
+    }
+
+  /** Sort candidates by distance (insertion sort, lists are short).
+    * @param cs The candidates.
+    * @param ds The candidate distances.
+    * @param n  The number of candidates. */
+  private static void sort(int[]    cs,
+                           double[] ds,
+                           int      n) {
+    for (int i = 1; i < n; i++) {
+      int    c = cs[i];
+      double d = ds[i];
+      int j = i - 1;
+      while (j >= 0 && ds[j] > d) {
+        cs[j + 1] = cs[j];
+        ds[j + 1] = ds[j];
+        j--;
+        }
+      cs[j + 1] = c;
+      ds[j + 1] = d;
+      }
+    }
+
+  /** <code>Search</code> is a workspace for the beam search on one layer,
+    * with a candidate min-heap, a bounded result max-heap
+    * and visit stamps. One per thread. */
+  private class Search {
+
+    Search(int n) {
+      _visited = new int[n];
+      }
+
+    void layer(int q,
+               int ep,
+               int ef,
+               int l) {
+      if (++_stamp == Integer.MAX_VALUE) {
+        Arrays.fill(_visited, 0);
+        _stamp = 1;
+        }
+      ensure(ef);
+      _nCand = 0;
+      _nRes  = 0;
+      double dist = distance(q, ep);
+      _visited[ep] = _stamp;
+      push(true,  ep, dist);
+      push(false, ep, dist);
+      while (_nCand > 0) {
+        int    c  = _cand[0];
+        double cd = _candD[0];
+        if (cd > _resD[0]) {
+          break;
+          }
+        pop(true);
+        int[] ns = _links[c][l];
+        for (int k = 0; k < _sizes[c][l]; k++) {
+          int e = ns[k];
+          if (_visited[e] != _stamp) {
+            _visited[e] = _stamp;
+            dist = distance(q, e);
+            if (_nRes < ef || dist < _resD[0]) {
+              push(true,  e, dist);
+              push(false, e, dist);
+              if (_nRes > ef) {
+                pop(false);
+                }
+              }
+            }
+          }
+        }
+      }
+
+    int size() {
+      return _nRes;
+      }
+
+    int[] sorted() {
+      _sorted  = Arrays.copyOf(_res,  _nRes);
+      _sortedD = Arrays.copyOf(_resD, _nRes);
+      sort(_sorted, _sortedD, _nRes);
+      return _sorted;
+      }
+
+    double[] sortedDists() {
+      return _sortedD;
+      }
+
+    private void ensure(int ef) {
+      if (_res == null || _res.length < ef + 2) {
+        _res   = new int[ef + 2];
+        _resD  = new double[ef + 2];
+        }
+      }
+
+    /** Push into the candidate min-heap or into the result max-heap. */
+    private void push(boolean cand,
+                      int     r,
+                      double  dist) {
+      if (cand) {
+        if (_nCand == _cand.length) {
+          _cand  = Arrays.copyOf(_cand,  2 * _nCand);
+          _candD = Arrays.copyOf(_candD, 2 * _nCand);
+          }
+        int c = _nCand++;
+        while (c > 0 && _candD[(c - 1) / 2] > dist) {
+          _cand[c]  = _cand[(c - 1) / 2];
+          _candD[c] = _candD[(c - 1) / 2];
+          c = (c - 1) / 2;
+          }
+        _cand[c]  = r;
+        _candD[c] = dist;
+        }
+      else {
+        int c = _nRes++;
+        while (c > 0 && _resD[(c - 1) / 2] < dist) {
+          _res[c]  = _res[(c - 1) / 2];
+          _resD[c] = _resD[(c - 1) / 2];
+          c = (c - 1) / 2;
+          }
+        _res[c]  = r;
+        _resD[c] = dist;
+        }
+      }
+
+    /** Pop the top of the candidate min-heap or of the result max-heap. */
+    private void pop(boolean cand) {
+      int[]    h  = cand ? _cand  : _res;
+      double[] hd = cand ? _candD : _resD;
+      int size = cand ? --_nCand : --_nRes;
+      int    r    = h[size];
+      double dist = hd[size];
+      int c = 0;
+      int child;
+      while ((child = 2 * c + 1) < size) {
+        if (child + 1 < size && (cand ? hd[child + 1] < hd[child] : hd[child + 1] > hd[child])) {
+          child++;
+          }
+        if (cand ? hd[child] >= dist : hd[child] <= dist) {
+          break;
+          }
+        h[c]  = h[child];
+        hd[c] = hd[child];
+        c = child;
+        }
+      h[c]  = r;
+      hd[c] = dist;
+      }
+
+    private int[] _visited;
+
+    private int _stamp = 0;
+
+    private int[] _cand = new int[64];
+
+    private double[] _candD = new double[64];
+
+    private int _nCand;
+
+    private int[] _res;
+
+    private double[] _resD;
+
+    private int _nRes;
+
+    private int[] _sorted;
+
+    private double[] _sortedD;
+
+    }
+
+  private ThreadLocal<Search> _search;
+
+  private double[] _data;
+
+  private int _d;
+
+  private int _n;
+
+  private int _m;
+
+  private int _efC;
+
+  private double _mL;
+
+  private int[][][] _links;
+
+  private int[][] _sizes;
+
+  private int _entry = -1;
+
+  private int _top = -1;
+
+  /** The seed of the layer assignment and of the recall sample. */
+  private static final long SEED = 42;
+
+  /** Logging . */
+  private static Logger log = LogManager.getLogger(HNSWIndex.class);
+
+  }
@@ -0,0 +1,450 @@
+package com.Grapher.Analysis.Indexes;
+
+import com.Grapher.Analysis.FeatureMatrix;
+
+// Java
+import java.util.Arrays;
+
+// Log4J
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/** <code>KDTree</code> is a spatial index over the rows of a {@link FeatureMatrix}.
+  * It gives exact <em>k</em> nearest neighbours in the Euclidean metric
+  * and approximate sums of distances (<em>Barnes-Hut</em> aggregation).
+  * Nodes are kept in primitive arrays, each node covers a contiguous
+  * range of the row permutation and keeps its bounding box,
+  * centroid and radius. Rows are copied in the permutation order,
+  * so leaves are scanned sequentially.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class KDTree {
+
+  /** Build the tree.
+    * @param fm The {@link FeatureMatrix} to index. */
+  public KDTree(FeatureMatrix fm) {
+    _data = fm.data();
+    _d    = fm.columns();
+    _n    = fm.rows();
+    _perm = new int[_n];
+    for (int i = 0; i < _n; i++) {
+      _perm[i] = i;
+      }
+    int capacity = Math.max(1, 2 * ((_n + LEAF_SIZE - 1) / LEAF_SIZE));
+    _from  = new int[capacity];
+    _to    = new int[capacity];
+    _left  = new int[capacity];
+    _right = new int[capacity];
+    _boxLo    = new double[capacity * _d];
+    _boxHi    = new double[capacity * _d];
+    _centroid = new double[capacity * _d];
+    _radius   = new double[capacity];
+    build(0, _n);
+    _points = new double[_n * _d];
+    for (int p = 0; p < _n; p++) {
+      System.arraycopy(_data, _perm[p] * _d, _points, p * _d, _d);
+      }
+    log.info("KDTree with " + _nodes + " nodes built over " + _n + " rows of " + _d + " columns");
+    }
+
+  /** Build one node recursively.
+    * @param from The first position in the permutation.
+    * @param to   The position after the last one in the permutation.
+    * @return     The node index. */
+  private int build(int from,
+                    int to) {
+    int node = _nodes++;
+    if (node == _from.length) {
+      grow();
+      }
+    _from[node]  = from;
+    _to[node]    = to;
+    _left[node]  = -1;
+    _right[node] = -1;
+    int o = node * _d;
+    Arrays.fill(_boxLo, o, o + _d, Double.POSITIVE_INFINITY);
+    Arrays.fill(_boxHi, o, o + _d, Double.NEGATIVE_INFINITY);
+    Arrays.fill(_centroid, o, o + _d, 0);
+    for (int p = from; p < to; p++) {
+      int r = _perm[p] * _d;
+      for (int k = 0; k < _d; k++) {
+        _boxLo[o + k] = Math.min(_boxLo[o + k], _data[r + k]);
+        _boxHi[o + k] = Math.max(_boxHi[o + k], _data[r + k]);
+        _centroid[o + k] += _data[r + k];
+        }
+      }
+    for (int k = 0; k < _d; k++) {
+      _centroid[o + k] /= Math.max(1, to - from);
+      }
+    double radius = 0;
+    for (int p = from; p < to; p++) {
+      int r = _perm[p] * _d;
+      double dist = 0;
+      for (int k = 0; k < _d; k++) {
+        double x = _data[r + k] - _centroid[o + k];
+        dist += x * x;
+        }
+      radius = Math.max(radius, dist);
+      }
+    _radius[node] = Math.sqrt(radius);
+    if (to - from > LEAF_SIZE) {
+      int dim = 0;
+      double spread = -1;
+      for (int k = 0; k < _d; k++) {
+        if (_boxHi[o + k] - _boxLo[o + k] > spread) {
+          spread = _boxHi[o + k] - _boxLo[o + k];
+          dim = k;
+          }
+        }
+      if (spread > 0) {
+        int mid = (from + to) >>> 1;
+        select(from, to - 1, mid, dim);
+        int l = build(from, mid);
+        int r = build(mid,  to );
+        _left[node]  = l;
+        _right[node] = r;
+        }
+      }
+    return node;
+    }
+
+  /** Partially sort the permutation so that the <em>k</em>-th position
+    * holds the median in one dimension (<em>quickselect</em>).
+    * @param lo  The first position.
+    * @param hi  The last position (inclusive).
+    * @param k   The position to select.
+    * @param dim The dimension to compare. */
+  private void select(int lo,
+                      int hi,
+                      int k,
+                      int dim) {
+    while (hi > lo) {
+      double pivot = _data[_perm[(lo + hi) >>> 1] * _d + dim];
+      int i = lo;
+      int j = hi;
+      while (i <= j) {
+        while (_data[_perm[i] * _d + dim] < pivot) {
+          i++;
+          }
+        while (_data[_perm[j] * _d + dim] > pivot) {
+          j--;
+          }
+        if (i <= j) {
+          int t = _perm[i];
+          _perm[i] = _perm[j];
+          _perm[j] = t;
+          i++;
+          j--;
+          }
+        }
+      if (k <= j) {
+        hi = j;
+        }
+      else if (k >= i) {
+        lo = i;
+        }
+      else {
+        return;
+        }
+      }
+    }
+
+  /** Enlarge node arrays. */
+  private void grow() {
+    int capacity = 2 * _from.length;
+    _from  = Arrays.copyOf(_from,  capacity);
+    _to    = Arrays.copyOf(_to,    capacity);
+    _left  = Arrays.copyOf(_left,  capacity);
+    _right = Arrays.copyOf(_right, capacity);
+    _boxLo    = Arrays.copyOf(_boxLo,    capacity * _d);
+    _boxHi    = Arrays.copyOf(_boxHi,    capacity * _d);
+    _centroid = Arrays.copyOf(_centroid, capacity * _d);
+    _radius   = Arrays.copyOf(_radius,   capacity);
+    }
+
+  /** Find <em>k</em> nearest neighbours of one row.
+    * The row itself and rows with zero distance are not included.
+    * @param i     The row to search neighbours for.
+    * @param k     The number of neighbours to search for.
+    * @param rows  The array to receive neighbour rows, ordered by distance.
+    *              Unused entries are set to <tt>-1</tt>.
+    * @param dists The array to receive neighbour distances.
+    * @return      The number of neighbours found.
+    * @throws IllegalArgumentException If <tt>k</tt> is not positive. */
+  public int nearest(int      i,
+                     int      k,
+                     int[]    rows,
+                     double[] dists) {
+    if (k < 1) {
+      throw new IllegalArgumentException("Number of neighbours must be positive");
+      }
+    Heap heap = new Heap(k);
+    search(0, i, heap);
+    return heap.drain(rows, dists);
+    }
+
+  /** Search one node recursively, nearer child first.
+    * @param node The node to search.
+    * @param i    The query row.
+    * @param heap The {@link Heap} of the best candidates so far. */
+  private void search(int  node,
+                      int  i,
+                      Heap heap) {
+    if (_left[node] < 0) {
+      int q = i * _d;
+      for (int p = _from[node]; p < _to[node]; p++) {
+        int j = _perm[p];
+        if (j != i) {
+          double dist = 0;
+          int r = p * _d;
+          for (int k = 0; k < _d; k++) {
+            double x = _data[q + k] - _points[r + k];
+            dist += x * x;
+            }
+          if (dist > 0) {
+            heap.offer(j, dist);
+            }
+          }
+        }
+      return;
+      }
+    double dl = boxDistance(_left[node],  i);
+    double dr = boxDistance(_right[node], i);
+    int first  = dl <= dr ? _left[node]  : _right[node];
+    int second = dl <= dr ? _right[node] : _left[node];
+    if (Math.min(dl, dr) <= heap.bound()) {
+      search(first, i, heap);
+      }
+    if (Math.max(dl, dr) <= heap.bound()) {
+      search(second, i, heap);
+      }
+    }
+
+  /** Give the approximate sum of distances from one row to all rows.
+    * A node with <em>N</em> rows within radius <em>r</em> from their centroid
+    * at the distance <em>D</em> contributes between <em>N D</em> (convexity)
+    * and <em>N D + N r<sup>2</sup> / 2(D - r)</em>, it is replaced by the middle
+    * of this interval if the interval is small enough.
+    * The lower limit <tt>L</tt> of the sum is given by the same convexity
+    * on the first levels of the tree. Nodes are replaced if their relative error
+    * is up to <tt>eps / 2</tt> or if their error per row is up to <tt>eps L / 2n</tt>,
+    * so the total relative error is at most <tt>eps</tt>.
+    * With <tt>eps = 0</tt> the sum is exact.
+    * @param i   The row.
+    * @param eps The target relative error.
+    * @return    The approximate sum and the absolute bound of its error. */
+  public double[] distanceSum(int    i,
+                              double eps) {
+    double[] result = new double[2];
+    if (eps > 0) {
+      distanceSum(0, i, eps / 2, eps * lowerSum(0, i, LOWER_DEPTH) / (2 * _n), result);
+      }
+    else {
+      distanceSum(0, i, 0, 0, result);
+      }
+    return result;
+    }
+
+  /** Give the lower limit of the sum of distances from one node,
+    * replacing nodes on one level by their centroids.
+    * @param node  The node.
+    * @param i     The row.
+    * @param depth The number of levels to descend.
+    * @return      The lower limit of the sum of distances. */
+  private double lowerSum(int node,
+                          int i,
+                          int depth) {
+    if (depth > 0 && _left[node] >= 0) {
+      return lowerSum(_left[node], i, depth - 1) + lowerSum(_right[node], i, depth - 1);
+      }
+    int q = i * _d;
+    int o = node * _d;
+    double dist = 0;
+    for (int k = 0; k < _d; k++) {
+      double x = _data[q + k] - _centroid[o + k];
+      dist += x * x;
+      }
+    return (_to[node] - _from[node]) * Math.sqrt(dist);
+    }
+
+  /** Accumulate the sum of distances from one node recursively.
+    * @param node   The node.
+    * @param i      The row.
+    * @param rel    The maximal relative error of a replaced node.
+    * @param abs    The maximal error per row of a replaced node.
+    * @param result The sum and the error bound to accumulate. */
+  private void distanceSum(int      node,
+                           int      i,
+                           double   rel,
+                           double   abs,
+                           double[] result) {
+    int q = i * _d;
+    if (rel > 0 || abs > 0) {
+      int o = node * _d;
+      double dist = 0;
+      for (int k = 0; k < _d; k++) {
+        double x = _data[q + k] - _centroid[o + k];
+        dist += x * x;
+        }
+      dist = Math.sqrt(dist);
+      double r = _radius[node];
+      if (dist > r) {
+        double width = r * r / (2 * (dist - r));
+        if (width <= rel * dist || width <= abs) {
+          int count = _to[node] - _from[node];
+          result[0] += count * (dist + width / 2);
+          result[1] += count * width / 2;
+          return;
+          }
+        }
+      }
+    if (_left[node] < 0) {
+      for (int p = _from[node]; p < _to[node]; p++) {
+        int r = p * _d;
+        double dist = 0;
+        for (int k = 0; k < _d; k++) {
+          double x = _data[q + k] - _points[r + k];
+          dist += x * x;
+          }
+        result[0] += Math.sqrt(dist);
+        }
+      return;
+      }
+    distanceSum(_left[node],  i, rel, abs, result);
+    distanceSum(_right[node], i, rel, abs, result);
+    }
+
+  /** Give the squared distance between a row and the bounding box of a node.
+    * @param node The node.
+    * @param i    The row.
+    * @return     The squared distance, <tt>0</tt> if inside. */
+  private double boxDistance(int node,
+                             int i) {
+    int o = node * _d;
+    int q = i * _d;
+    double dist = 0;
+    double x;
+    for (int k = 0; k < _d; k++) {
+      x = _data[q + k];
+      if (x < _boxLo[o + k]) {
+        dist += (_boxLo[o + k] - x) * (_boxLo[o + k] - x);
+        }
+      else if (x > _boxHi[o + k]) {
+        dist += (x - _boxHi[o + k]) * (x - _boxHi[o + k]);
+        }
+      }
+    return dist;
+    }
+
+  /** <code>Heap</code> is a bounded max-heap of candidate rows
+    * keyed by their squared distance. */
+  private static class Heap {
+
+    Heap(int k) {
+      _k     = k;
+      _rows  = new int[k];
+      _dists = new double[k];
+      }
+
+    double bound() {
+      return _size < _k ? Double.POSITIVE_INFINITY : _dists[0];
+      }
+
+    void offer(int    row,
+               double dist) {
+      if (_size < _k) {
+        int c = _size++;
+        while (c > 0 && _dists[(c - 1) / 2] < dist) {
+          _rows[c]  = _rows[(c - 1) / 2];
+          _dists[c] = _dists[(c - 1) / 2];
+          c = (c - 1) / 2;
+          }
+        _rows[c]  = row;
+        _dists[c] = dist;
+        }
+      else if (dist < _dists[0]) {
+        siftDown(row, dist);
+        }
+      }
+
+    private void siftDown(int    row,
+                          double dist) {
+      int c = 0;
+      int child;
+      while ((child = 2 * c + 1) < _size) {
+        if (child + 1 < _size && _dists[child + 1] > _dists[child]) {
+          child++;
+          }
+        if (_dists[child] <= dist) {
+          break;
+          }
+        _rows[c]  = _rows[child];
+        _dists[c] = _dists[child];
+        c = child;
+        }
+      _rows[c]  = row;
+      _dists[c] = dist;
+      }
+
+    int drain(int[]    rows,
+              double[] dists) {
+      int found = _size;
+      Arrays.fill(rows, -1);
+      while (_size > 0) {
+        rows[_size - 1]  = _rows[0];
+        dists[_size - 1] = Math.sqrt(_dists[0]);
+        _size--;
+        if (_size > 0) {
+          siftDown(_rows[_size], _dists[_size]);
+          }
+        }
+      return found;
+      }
+
+    private int _k;
+
+    private int _size = 0;
+
+    private int[] _rows;
+
+    private double[] _dists;
+
+    }
+
+  private double[] _data;
+
+  private int _d;
+
+  private int _n;
+
+  private int[] _perm;
+
+  private double[] _points;
+
+  private int _nodes = 0;
+
+  private int[] _from;
+
+  private int[] _to;
+
+  private int[] _left;
+
+  private int[] _right;
+
+  private double[] _boxLo;
+
+  private double[] _boxHi;
+
+  private double[] _centroid;
+
+  private double[] _radius;
+
+  /** The tree depth used for the lower limit of distance sums. */
+  private static final int LOWER_DEPTH = 6;
+
+  /** The maximal number of rows in a leaf node. */
+  private static final int LEAF_SIZE = 16;
+
+  /** Logging . */
+  private static Logger log = LogManager.getLogger(KDTree.class);
+
+  }
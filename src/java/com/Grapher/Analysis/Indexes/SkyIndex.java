@@ -0,0 +1,181 @@
+package com.Grapher.Analysis.Indexes;
+
+// Log4J
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/** <code>SkyIndex</code> is a spherical pixelisation of sky positions.
+  * The sphere is cut into isolatitude zones of the same height,
+  * each zone is cut in right ascension into cells of nearly equal area
+  * and not narrower than the zone height (similar to <em>HEALPix</em> rings).
+  * Positions are sorted by cell, so all positions within a radius
+  * are found by looking only into the neighbouring cells
+  * and the cost grows with the local density.
+  * Separations are the true great-circle distances.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class SkyIndex {
+
+  /** Build the index.
+    * @param ra      The right ascensions [deg].
+    * @param dec     The declinations [deg].
+    * @param minCell The minimal cell size [deg], usually the largest search radius. */
+  public SkyIndex(double[] ra,
+                  double[] dec,
+                  double   minCell) {
+    _n      = ra.length;
+    _ra     = new double[_n];
+    _dec    = new double[_n];
+    _cosDec = new double[_n];
+    for (int i = 0; i < _n; i++) {
+      _ra[i]     = ((ra[i] % 360) + 360) % 360;
+      _dec[i]    = Math.max(-90, Math.min(90, dec[i]));
+      _cosDec[i] = Math.cos(Math.toRadians(_dec[i]));
+      }
+    // at most about two cells per position
+    _h      = Math.min(180, Math.max(minCell, Math.sqrt(SKY_AREA / (2.0 * Math.max(1, _n)))));
+    _nZones = (int)Math.ceil(180 / _h);
+    _zoneStart = new int[_nZones + 1];
+    _zoneCells = new int[_nZones];
+    for (int z = 0; z < _nZones; z++) {
+      double lo = -90 + z * _h;
+      double hi = Math.min(90, lo + _h);
+      double far  = Math.max(Math.abs(lo), Math.abs(hi));
+      // cells must be at least _h wide everywhere in the zone
+      _zoneCells[z]     = (int)Math.max(1, Math.floor(360 * Math.cos(Math.toRadians(far)) / _h));
+      _zoneStart[z + 1] = _zoneStart[z] + _zoneCells[z];
+      }
+    int nCells = _zoneStart[_nZones];
+    _cellStart = new int[nCells + 1];
+    int[] cells = new int[_n];
+    for (int i = 0; i < _n; i++) {
+      cells[i] = cell(_ra[i], _dec[i]);
+      _cellStart[cells[i] + 1]++;
+      }
+    for (int c = 0; c < nCells; c++) {
+      _cellStart[c + 1] += _cellStart[c];
+      }
+    _members = new int[_n];
+    int[] fill = new int[nCells];
+    for (int i = 0; i < _n; i++) {
+      _members[_cellStart[cells[i]] + fill[cells[i]]++] = i;
+      }
+    log.info("SkyIndex with " + _nZones + " zones and " + nCells + " cells of " + _h + " deg built over " + _n + " positions");
+    }
+
+  /** Give the zone of a declination.
+    * @param dec The declination [deg].
+    * @return    The zone. */
+  private int zone(double dec) {
+    return Math.max(0, Math.min(_nZones - 1, (int)Math.floor((dec + 90) / _h)));
+    }
+
+  /** Give the cell of a position.
+    * @param ra  The right ascension [deg], in <tt>[0, 360)</tt>.
+    * @param dec The declination [deg].
+    * @return    The cell. */
+  private int cell(double ra,
+                   double dec) {
+    int z = zone(dec);
+    int c = (int)Math.floor(ra * _zoneCells[z] / 360);
+    return _zoneStart[z] + Math.min(c, _zoneCells[z] - 1);
+    }
+
+  /** Give the great-circle separation between two indexed positions.
+    * @param i The first position.
+    * @param j The second position.
+    * @return  The separation [deg]. */
+  public double separation(int i,
+                           int j) {
+    double sd = Math.sin(Math.toRadians(_dec[j] - _dec[i]) / 2);
+    double sr = Math.sin(Math.toRadians(_ra[j]  - _ra[i] ) / 2);
+    double hav = sd * sd + _cosDec[i] * _cosDec[j] * sr * sr;
+    return Math.toDegrees(2 * Math.asin(Math.sqrt(Math.min(1, hav))));
+    }
+
+  /** Visit all positions within a separation range from one position.
+    * Only the neighbouring cells are examined.
+    * @param i        The position to search around.
+    * @param minSep   The minimal separation [deg] (exclusive).
+    * @param maxSep   The maximal separation [deg] (inclusive), should not exceed the cell size.
+    * @param consumer The {@link NeighbourConsumer} receiving found positions. */
+  public void neighbours(int               i,
+                         double            minSep,
+                         double            maxSep,
+                         NeighbourConsumer consumer) {
+    double dra;
+    if (Math.abs(_dec[i]) + maxSep >= 90) {
+      dra = 180;
+      }
+    else {
+      dra = Math.toDegrees(Math.asin(Math.min(1, Math.sin(Math.toRadians(maxSep)) / _cosDec[i])));
+      }
+    int z0 = zone(_dec[i] - maxSep);
+    int z1 = zone(_dec[i] + maxSep);
+    double sep;
+    for (int z = z0; z <= z1; z++) {
+      int nc = _zoneCells[z];
+      int c0 = (int)Math.floor((_ra[i] - dra) * nc / 360);
+      int c1 = (int)Math.floor((_ra[i] + dra) * nc / 360);
+      if (c1 - c0 + 1 >= nc) {
+        c0 = 0;
+        c1 = nc - 1;
+        }
+      for (int c = c0; c <= c1; c++) {
+        int cell = _zoneStart[z] + ((c % nc) + nc) % nc;
+        for (int m = _cellStart[cell]; m < _cellStart[cell + 1]; m++) {
+          int j = _members[m];
+          if (j != i) {
+            sep = separation(i, j);
+            if (sep > minSep && sep <= maxSep) {
+              consumer.accept(j, sep);
+              }
+            }
+          }
+        }
+      }
+    }
+
+  /** Give the number of indexed positions.
+    * @return The number of indexed positions. */
+  public int size() {
+    return _n;
+    }
+
+  /** <code>NeighbourConsumer</code> receives one found position with its separation. */
+  public interface NeighbourConsumer {
+
+    /** Accept one position.
+      * @param j   The found position.
+      * @param sep The separation [deg]. */
+    public void accept(int    j,
+                       double sep);
+
+    }
+
+  private int _n;
+
+  private double[] _ra;
+
+  private double[] _dec;
+
+  private double[] _cosDec;
+
+  private double _h;
+
+  private int _nZones;
+
+  private int[] _zoneStart;
+
+  private int[] _zoneCells;
+
+  private int[] _cellStart;
+
+  private int[] _members;
+
+  /** The area of the sky [deg<sup>2</sup>]. */
+  private static final double SKY_AREA = 41252.96;
+
+  /** Logging . */
+  private static Logger log = LogManager.getLogger(SkyIndex.class);
+
+  }
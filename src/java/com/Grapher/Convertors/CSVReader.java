@@ -0,0 +1,153 @@
+package com.Grapher.Convertors;
+
+import com.Grapher.CustomGraph.CustomEdge;
+import com.Grapher.CustomGraph.CustomVertex;
+import com.Grapher.CustomGraph.ConcurrentGraphBuilder.Worker;
+
+// JGraphT
+import org.jgrapht.Graph;
+import org.jgrapht.nio.ImportException;
+import org.jgrapht.nio.csv.CSVFormat;
+
+// Java
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.ArrayList;
+
+/** <code>CSVReader</code> reads {@link Graph}s in the <em>CSV</em> format in parallel,
+  * as written by {@link Convertor#writeCSV}.
+  * Each line is one record, fields may be quoted, but they can't span lines:
+  * <ul>
+  * <li>{@link CSVFormat#EDGE_LIST}: <tt>source,target[,weight]</tt>,</li>
+  * <li>{@link CSVFormat#ADJACENCY_LIST}: <tt>source,target1[,weight1],target2[,weight2],...</tt>.</li>
+  * </ul>
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class CSVReader extends ChunkedReader {
+
+  /** Create.
+    * @param format   The {@link CSVFormat}, {@link CSVFormat#EDGE_LIST} or {@link CSVFormat#ADJACENCY_LIST}.
+    * @param weighted Whether weights follow targets. */
+  public CSVReader(CSVFormat format,
+                   boolean   weighted) {
+    if (format == CSVFormat.MATRIX) {
+      throw new IllegalArgumentException("Matrix CSV format is not supported");
+      }
+    _format   = format;
+    _weighted = weighted;
+    }
+
+  @Override
+  protected int boundary(ByteBuffer buffer,
+                         int        from) {
+    for (int i = from - 1; i < buffer.limit() - 1; i++) {
+      if (buffer.get(i) == '\n') {
+        return i + 1;
+        }
+      }
+    return -1;
+    }
+
+  @Override
+  protected void parse(ByteBuffer chunk,
+                       long       offset,
+                       Worker     worker) throws ImportException {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    int end;
+    for (int start = 0; start < chunk.limit(); start = end + 1) {
+      end = start;
+      while (end < chunk.limit() && chunk.get(end) != '\n') {
+        end++;
+        }
+      split(chunk, start, end, fields, field);
+      if (fields.isEmpty()) {
+        continue;
+        }
+      int step = _weighted ? 2 : 1;
+      if ((fields.size() - 1) % step != 0 || (_format == CSVFormat.EDGE_LIST && fields.size() != 1 + step)) {
+        throw new ImportException("Wrong number of fields at " + (offset + start) + ": " + fields);
+        }
+      CustomVertex source = vertex(fields.get(0), worker);
+      for (int i = 1; i < fields.size(); i += step) {
+        CustomVertex target = vertex(fields.get(i), worker);
+        double weight = Double.NaN;
+        if (_weighted) {
+          try {
+            weight = Double.parseDouble(fields.get(i + 1));
+            }
+          catch (NumberFormatException e) {
+            throw new ImportException("Wrong weight at " + (offset + start) + ": " + fields.get(i + 1));
+            }
+          }
+        worker.addEdge(source, target, worker.newEdge(), weight);
+        }
+      }
+    }
+
+  /** Split one line into fields.
+    * @param chunk  The {@link ByteBuffer} with the line.
+    * @param start  The start of the line.
+    * @param end    The end of the line (excluding the newline).
+    * @param fields The {@link List} to fill with fields, empty for an empty line.
+    * @param field  The {@link StringBuilder} to use. */
+  private static void split(ByteBuffer    chunk,
+                            int           start,
+                            int           end,
+                            List<String>  fields,
+                            StringBuilder field) {
+    fields.clear();
+    if (end > start && chunk.get(end - 1) == '\r') {
+      end--;
+      }
+    if (end == start) {
+      return;
+      }
+    int i = start;
+    while (true) {
+      field.setLength(0);
+      if (i < end && chunk.get(i) == '"') {
+        int j = ++i;
+        while (i < end && (chunk.get(i) != '"' || (i + 1 < end && chunk.get(i + 1) == '"'))) {
+          i += chunk.get(i) == '"' ? 2 : 1;
+          }
+        field.append(decode(chunk, j, i).replace("\"\"", "\""));
+        i++;
+        }
+      int j = i;
+      while (i < end && chunk.get(i) != SEPARATOR) {
+        i++;
+        }
+      if (i > j) {
+        field.append(decode(chunk, j, i));
+        }
+      fields.add(field.toString());
+      if (i >= end) {
+        return;
+        }
+      i++;
+      }
+    }
+
+  /** Decode <tt>UTF-8</tt> bytes.
+    * @param chunk The {@link ByteBuffer} with the bytes.
+    * @param from  The first byte.
+    * @param to    The byte after the last one.
+    * @return      The decoded {@link String}. */
+  private static String decode(ByteBuffer chunk,
+                               int        from,
+                               int        to) {
+    byte[] bytes = new byte[to - from];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = chunk.get(from + i);
+      }
+    return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+  private CSVFormat _format;
+
+  private boolean _weighted;
+
+  private static final char SEPARATOR = ',';
+
+  }
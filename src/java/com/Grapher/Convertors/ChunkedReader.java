@@ -0,0 +1,257 @@
+package com.Grapher.Convertors;
+
+import com.Grapher.CustomGraph.CustomEdge;
+import com.Grapher.CustomGraph.CustomVertex;
+import com.Grapher.CustomGraph.ConcurrentGraphBuilder;
+import com.Grapher.CustomGraph.ConcurrentGraphBuilder.Worker;
+
+// JGraphT
+import org.jgrapht.Graph;
+import org.jgrapht.nio.ImportException;
+import org.jgrapht.nio.DefaultAttribute;
+
+// Java
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.List;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Log4J
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/** <code>ChunkedReader</code> reads a text {@link Graph} file in parallel.
+  * The file is memory-mapped and split at record boundaries into chunks,
+  * which are parsed on all cores and inserted through a {@link ConcurrentGraphBuilder}.
+  * Compressed (<tt>.gz</tt>) files are decompressed ahead
+  * and split into chunks while being read.
+  * Subclasses give the record boundaries and parse the chunks.
+  * {@link CustomVertex}s are identified by their ids in the file,
+  * which are kept as their <tt>ID</tt> attributes, as by {@link GraphMLReader}.
+  * {@link CustomVertex} ids are reserved for all of them,
+  * so numerical and other ids in the same file never collide.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public abstract class ChunkedReader {
+
+  /** Create using all cores. */
+  public ChunkedReader() {
+    this(Runtime.getRuntime().availableProcessors());
+    }
+
+  /** Create.
+    * @param threads The number of parsing threads. */
+  public ChunkedReader(int threads) {
+    _threads = Math.max(1, threads);
+    }
+
+  /** Read a file into a {@link Graph}.
+    * @param graph The {@link Graph} to fill.
+    * @param file  The file name.
+    * @throws IOException     If the file cannot be read.
+    * @throws ImportException If the file cannot be parsed. */
+  public void read(Graph<CustomVertex, CustomEdge> graph,
+                   String                          file) throws IOException, ImportException {
+    long start = System.currentTimeMillis();
+    _vertexes = new ConcurrentHashMap<>();
+    ExecutorService executor = Executors.newFixedThreadPool(_threads, r -> {
+      Thread t = new Thread(r, "Import");
+      t.setDaemon(true);
+      return t;
+      });
+    List<Future<?>> futures = new ArrayList<>();
+    try (ConcurrentGraphBuilder builder = new ConcurrentGraphBuilder(graph)) {
+      if (file.endsWith(".gz")) {
+        stream(file, executor, futures, builder);
+        }
+      else {
+        map(file, executor, futures, builder);
+        }
+      for (Future<?> future : futures) {
+        future.get();
+        }
+      }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof ImportException) {
+        throw (ImportException)e.getCause();
+        }
+      throw new ImportException("Cannot parse " + file, e.getCause());
+      }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while reading " + file, e);
+      }
+    catch (IllegalStateException e) {
+      throw new ImportException("Cannot insert elements of " + file, e);
+      }
+    finally {
+      executor.shutdownNow();
+      _vertexes = null;
+      }
+    log.info("Imported graph: " + graph.getType() + "[" + graph.vertexSet().size() + ", " + graph.edgeSet().size() + "] from " + file
+           + " in " + futures.size() + " chunks, " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+  /** Split a memory-mapped file into chunks and submit them.
+    * @param file     The file name.
+    * @param executor The {@link ExecutorService} to parse chunks.
+    * @param futures  The {@link List} to collect results of chunks.
+    * @param builder  The {@link ConcurrentGraphBuilder} to insert elements. */
+  private void map(String                 file,
+                   ExecutorService        executor,
+                   List<Future<?>>        futures,
+                   ConcurrentGraphBuilder builder) throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+      long size = channel.size();
+      long chunks = Math.max(_threads * CHUNKS_PER_THREAD, size / MAX_CHUNK + 1);
+      chunks = Math.max(1, Math.min(chunks, size / MIN_CHUNK));
+      long from = 0;
+      for (long k = 1; k <= chunks && from < size; k++) {
+        long to = k == chunks ? size : next(channel, Math.max(from + 1, k * size / chunks), size);
+        ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        long offset = from;
+        futures.add(executor.submit(() -> parse(chunk, offset, builder.worker())));
+        from = to;
+        }
+      }
+    }
+
+  /** Find the first record boundary at or after a position.
+    * @param channel  The {@link FileChannel} of the file.
+    * @param position The position to start from.
+    * @param size     The file size.
+    * @return         The position of the boundary, the file size if there is none. */
+  private long next(FileChannel channel,
+                    long        position,
+                    long        size) throws IOException {
+    // windows start one byte before, so boundaries may look back
+    for (long p = position - 1; p < size; p += WINDOW - LOOKAHEAD) {
+      ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, p, Math.min(WINDOW, size - p));
+      int b = boundary(window, 1);
+      if (b >= 0) {
+        return p + b;
+        }
+      if (p + window.limit() == size) {
+        break;
+        }
+      }
+    return size;
+    }
+
+  /** Split a compressed file into chunks while reading it and submit them.
+    * At most two chunks per thread are kept in memory.
+    * @param file     The file name.
+    * @param executor The {@link ExecutorService} to parse chunks.
+    * @param futures  The {@link List} to collect results of chunks.
+    * @param builder  The {@link ConcurrentGraphBuilder} to insert elements. */
+  private void stream(String                 file,
+                      ExecutorService        executor,
+                      List<Future<?>>        futures,
+                      ConcurrentGraphBuilder builder) throws IOException, InterruptedException {
+    Semaphore permits = new Semaphore(2 * _threads);
+    long offset = 0;
+    try (InputStream input = Convertor.open(file)) {
+      byte[] block = new byte[MIN_CHUNK];
+      int length = 0;
+      boolean eof = false;
+      while (!eof || length > 0) {
+        if (!eof) {
+          int k = input.readNBytes(block, length, block.length - length);
+          length += k;
+          eof = length < block.length;
+          }
+        int b = eof ? length : boundary(ByteBuffer.wrap(block, 0, length), length / 2);
+        if (b < 0) {
+          block = Arrays.copyOf(block, 2 * block.length);
+          continue;
+          }
+        ByteBuffer chunk = ByteBuffer.wrap(Arrays.copyOf(block, b));
+        long from = offset;
+        permits.acquire();
+        futures.add(executor.submit(() -> {
+          try {
+            parse(chunk, from, builder.worker());
+            }
+          finally {
+            permits.release();
+            }
+          }));
+        offset += b;
+        length -= b;
+        byte[] rest = new byte[Math.max(MIN_CHUNK, 2 * length)];
+        System.arraycopy(block, b, rest, 0, length);
+        block = rest;
+        }
+      }
+    }
+
+  /** Give the {@link CustomVertex} with an id from the file, create it if needed.
+    * The new {@link CustomVertex} gets a reserved id, the id from the file is kept as its <tt>ID</tt> attribute.
+    * @param id     The id from the file.
+    * @param worker The {@link Worker} of the current thread.
+    * @return       The corresponding {@link CustomVertex}. */
+  protected CustomVertex vertex(String id,
+                                Worker worker) {
+    CustomVertex vertex = _vertexes.get(id);
+    if (vertex == null) {
+      CustomVertex v = worker.newVertex();
+      v.putAttribute("ID", DefaultAttribute.createAttribute(id));
+      vertex = _vertexes.putIfAbsent(id, v);
+      if (vertex == null) {
+        worker.addVertex(v);
+        vertex = v;
+        }
+      }
+    return vertex;
+    }
+
+  /** Find the first record boundary in a buffer.
+    * @param buffer The {@link ByteBuffer}, between <tt>0</tt> and its limit.
+    * @param from   The position to start from, the previous byte may be examined.
+    * @return       The position of the first byte of the record, <tt>-1</tt> if not found. */
+  protected abstract int boundary(ByteBuffer buffer,
+                                  int        from);
+
+  /** Parse one chunk of complete records.
+    * @param chunk  The {@link ByteBuffer} with the chunk, between <tt>0</tt> and its limit.
+    * @param offset The position of the chunk in the file, for messages.
+    * @param worker The {@link Worker} to insert elements.
+    * @throws ImportException If the chunk cannot be parsed. */
+  protected abstract void parse(ByteBuffer chunk,
+                                long       offset,
+                                Worker     worker) throws ImportException;
+
+  private int _threads;
+
+  private Map<String, CustomVertex> _vertexes;
+
+  /** The number of chunks for each thread, to balance the load. */
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  /** The minimal chunk size. */
+  private static final int MIN_CHUNK = 1 << 20;
+
+  /** The maximal chunk size, which can be mapped at once. */
+  private static final long MAX_CHUNK = 1L << 30;
+
+  /** The size of the window searched for a boundary. */
+  private static final int WINDOW = 1 << 16;
+
+  /** The number of bytes a boundary may need to be recognised. */
+  private static final int LOOKAHEAD = 64;
+
+  /** Logging . */
+  private static Logger log = LogManager.getLogger(ChunkedReader.class);
+
+  }
@@ -3,17 +3,20 @@ package com.Grapher.Convertors;
 import com.Grapher.CustomGraph.CustomEdge;
 import com.Grapher.CustomGraph.CustomVertex;
 import com.Grapher.CustomGraph.CustomVertexSupplier;
+import com.Grapher.CustomGraph.MappedGraph;
 import com.Grapher.Utils.Params;
 
 // JGraphT
 import org.jgrapht.Graph;
 import org.jgrapht.graph.AsUndirectedGraph;
+import org.jgrapht.graph.AsUnmodifiableGraph;
 import org.jgrapht.graph.builder.GraphTypeBuilder;
 import org.jgrapht.nio.Attribute;
 import org.jgrapht.nio.AttributeType;
 import org.jgrapht.nio.DefaultAttribute;
 import org.jgrapht.nio.GraphExporter;
 import org.jgrapht.nio.ImportException;
+import org.jgrapht.nio.ExportException;
 import org.jgrapht.nio.graphml.GraphMLImporter;
 import org.jgrapht.nio.graphml.GraphMLExporter;
 import org.jgrapht.nio.dot.DOTExporter;
@@ -26,18 +29,33 @@ import org.jgrapht.nio.matrix.MatrixExporter;
 // Java
 import java.io.Writer;
 import java.io.StringWriter;
-import java.io.FileWriter;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.OutputStream;
+import java.io.BufferedOutputStream;
 import java.io.InputStream;
-import java.io.FileInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.UnsupportedEncodingException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.List;
+import java.util.Set;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.concurrent.Future;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
 import java.util.LinkedHashMap;
 
 // Log4J
@@ -56,43 +74,101 @@ public class Convertor {
     }
     
   /** Read {@link Graph} from input file.
-    * @return The read {@link Graph}. */
+    * @return The read {@link Graph}, <tt>null</tt> if the file cannot be read. */
   public Graph<CustomVertex, CustomEdge> read() {
     Graph<CustomVertex, CustomEdge> graph = null;
     String infile = _params.infile();
+    String format = format(infile);
     log.info("Reading " + infile);
     try {
-      if (infile.endsWith(".graphml")) {
-        graph = readGraphML(new FileInputStream(new File(infile)),
-                            true,   // directed
+      if (format.equals("graphml")) {
+        try (InputStream input = open(infile)) {
+          graph = readGraphML(input,
+                              true,   // directed
+                              true,   // weighted
+                              false,  // multipleEdges
+                              true);  // selfLoops
+          }
+        }
+      else if (infile.endsWith(".graph")) {
+        graph = new WebGraphConvertor().read(basename(infile));
+        }
+      else if (format.equals("graph")) {
+        log.fatal("WebGraph files are compressed already, cannot read " + infile);
+        return graph;
+        }
+      else if (infile.endsWith(".gbin")) {
+        graph = new GbinConvertor().read(infile);
+        }
+      else if (BINARY_FORMATS.contains(format)) {
+        log.fatal("Binary " + format + " files cannot be compressed, cannot read " + infile);
+        return graph;
+        }
+      else if (format.equals("csv")) {
+        graph = createGraph(true,   // directed
+                            true,   // weighted
+                            false,  // multipleEdges
+                            true);  // selfLoops
+        new CSVReader(CSVFormat.ADJACENCY_LIST, true).read(graph, infile);
+        }
+      else if (format.equals("json")) {
+        graph = createGraph(true,   // directed
                             true,   // weighted
                             false,  // multipleEdges
                             true);  // selfLoops
+        new JSONReader().read(graph, infile);
         }
       else {
         log.fatal("Unknown file type of " + infile);
         return graph;
         }
+      if (!format.equals("graphml")) {
+        filter(graph);
+        }
       }
-    catch (FileNotFoundException e) {
+    catch (FileNotFoundException | NoSuchFileException e) {
       log.fatal("Cannot find file " + infile, e);
-      return graph;
+      return null;
       }
-    if (_params.noedge()) {
-      log.info("Removing Edges");
-      for (CustomEdge e : new HashSet<>(graph.edgeSet())) {
-        graph.removeEdge(e);
-        }
+    catch (IOException e) {
+      log.fatal("Cannot read file " + infile, e);
+      return null;
+      }
+    catch (ImportException e) {
+      log.fatal("Cannot parse file " + infile, e);
+      return null;
       }
     return graph;
     }
     
-  /** Read and execute the conversion. */
+  /** Read and execute the conversion.
+    * <em>WebGraph</em> <tt>.graph</tt> files are converted to
+    * {@link MappedGraph} <tt>.csr</tt> files without reading them into heap,
+    * unless any import filtering is required. */
   public void convert() {
-    convert(read());
+    String infile  = _params.infile();
+    String outfile = _params.outfile();
+    if (infile.endsWith(".graph") && outfile != null && outfile.endsWith(".csr") && !outfile.contains(",") && new ImportFilter(_params).isEmpty()) {
+      log.info("Converting " + infile + " to " + outfile);
+      try {
+        new WebGraphConvertor().map(basename(infile), outfile);
+        }
+      catch (IOException e) {
+        log.error("Cannot convert " + infile + " to " + outfile, e);
+        }
+      return;
+      }
+    Graph<CustomVertex, CustomEdge> g = read();
+    if (g != null) {
+      convert(g);
+      }
     }
     
   /** Execute the conversion.
+    * The output file name may be a comma-separated list of files,
+    * they are then written concurrently, one thread per file,
+    * from the same read-only view of the {@link Graph}.
+    * A failure of one file doesn't stop writing of the others.
     * @param g The {@link Graph} to convert. */
   public void convert(Graph<CustomVertex, CustomEdge> g) {
     if (_params.novertex()) {
@@ -103,103 +179,190 @@ public class Convertor {
           }
         }
       }
-    String outfile = _params.outfile();
-    if (outfile != null) {
-      log.info("Writing graph: " + g.getType() + "[" + g.vertexSet().size() + ", " + g.edgeSet().size() + "] to " + outfile);
-      if (outfile.endsWith(".dot")) {
-        String dot = writeDOT(g);
-        try {
-          FileWriter writer = new FileWriter(outfile);
-          writer.write(dot);
-          writer.close();
-          }
-        catch (IOException e) {
-          log.error("Cannot write to " + outfile, e);
+    if (_params.outfile() == null) {
+      return;
+      }
+    String[] outfiles = _params.outfile().trim().split("\\s*,\\s*");
+    log.info("Writing graph: " + g.getType() + "[" + g.vertexSet().size() + ", " + g.edgeSet().size() + "] to " + String.join(", ", outfiles));
+    if (outfiles.length == 1) {
+      export(g, outfiles[0]);
+      return;
+      }
+    Graph<CustomVertex, CustomEdge> view = new AsUnmodifiableGraph<>(g);
+    ExecutorService executor = Executors.newFixedThreadPool(outfiles.length, r -> new Thread(r, "Export"));
+    List<Future<Boolean>> futures = new ArrayList<>();
+    for (String outfile : outfiles) {
+      futures.add(executor.submit(() -> export(view, outfile)));
+      }
+    executor.shutdown();
+    int failed = 0;
+    for (int i = 0; i < outfiles.length; i++) {
+      try {
+        if (!futures.get(i).get()) {
+          failed++;
           }
         }
-      else if (outfile.endsWith(".json")) {
-        String json = writeJSON(g);
-        try {
-          FileWriter writer = new FileWriter(outfile);
-          writer.write(json);
-          writer.close();
-          }
-        catch (IOException e) {
-          log.error("Cannot write to " + outfile, e);
-          }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        log.error("Interrupted while writing, remaining files are still being written", e);
+        return;
         }
-      else if (outfile.endsWith(".csv")) {
-        String csv = writeCSV(g);
-        try {
-          FileWriter writer = new FileWriter(outfile);
-          writer.write(csv);
-          writer.close();
-          }
-        catch (IOException e) {
-          log.error("Cannot write to " + outfile, e);
-          }
+      catch (ExecutionException e) {
+        failed++;
+        log.error("Cannot write " + outfiles[i], e.getCause());
         }
-      else if (outfile.endsWith(".g6")) {
-        String g6 = null;
-        try {
-          g6 = writeGraph6(g);
-          }
-        catch (UnsupportedEncodingException e) {
-          log.error("Cannot encode " + outfile, e);
-          return;
-          }
-        try {
-          FileWriter writer = new FileWriter(outfile);
-          writer.write(g6);
-          writer.close();
-          }
-        catch (IOException e) {
-          log.error("Cannot write to " + outfile, e);
-          return;
+      }
+    if (failed > 0) {
+      log.error(failed + " of " + outfiles.length + " files have not been written");
+      }
+    }
+
+  /** Export {@link Graph} into one file and report the time and size.
+    * Formats are deducted from the file extention.
+    * @param g       The {@link Graph} to export.
+    * @param outfile The output file name.
+    * @return        Whether the file has been written. */
+  public boolean export(Graph<CustomVertex, CustomEdge> g,
+                        String                          outfile) {
+    long start = System.currentTimeMillis();
+    String format = format(outfile);
+    try {
+      if (format.equals("g6")) {
+        try (OutputStream os = create(outfile)) {
+          writeGraph6(g, os);
           }
         }
-      else if (outfile.endsWith(".mat")) {
-        String mat = writeMatrix(g);
-        try {
-          FileWriter writer = new FileWriter(outfile);
-          writer.write(mat);
-          writer.close();
-          }
-        catch (IOException e) {
-          log.error("Cannot write to " + outfile, e);
-          return;
-          }
+      else if (outfile.endsWith(".graph")) {
+        new WebGraphConvertor().write(g, basename(outfile));
         }
-      else if (outfile.endsWith(".graphml")) {
-        String graphml = writeGraphML(g);
-        try {
-          FileWriter writer = new FileWriter(outfile);
-          writer.write(graphml);
-          writer.close();
-          }
-        catch (IOException e) {
-          log.error("Cannot write to " + outfile, e);
-          return;
+      else if (format.equals("graph")) {
+        log.fatal("WebGraph files are compressed already, cannot write " + outfile);
+        return false;
+        }
+      else if (outfile.endsWith(".gbin")) {
+        new GbinConvertor().write(g, outfile);
+        }
+      else if (outfile.endsWith(".csr")) {
+        MappedGraph.store(g, outfile);
+        }
+      else if (outfile.endsWith(".npz")) {
+        new NpzConvertor(outfile.endsWith(".f32.npz")).write(g, outfile);
+        }
+      else if (BINARY_FORMATS.contains(format)) {
+        log.fatal("Binary " + format + " files cannot be compressed, cannot write " + outfile);
+        return false;
+        }
+      else if (FORMATS.contains(format)) {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(create(outfile), StandardCharsets.UTF_8), BUFFER)) {
+          write(g, writer, format);
           }
         }
       else {
         log.info("Unknwn file type of " + outfile);
         log.info(g);
-        return;
+        return false;
         }
+      log.info("Written " + outfile + " in " + (System.currentTimeMillis() - start) + " ms, " + Files.size(Paths.get(outfile)) + " bytes");
+      }
+    catch (IOException | UncheckedIOException | ExportException e) {
+      log.error("Cannot write to " + outfile, e);
+      return false;
+      }
+    return true;
+    }
+
+  /** Write {@link Graph} in a text format.
+    * @param graph  The {@link Graph} to be written out.
+    * @param writer The {@link Writer} to write to.
+    * @param format The format: <tt>dot</tt>, <tt>json</tt>, <tt>csv</tt>, <tt>mat</tt> or <tt>graphml</tt>. */
+  public void write(Graph<CustomVertex, CustomEdge> graph,
+                    Writer                          writer,
+                    String                          format) {
+    switch (format) {
+      case "dot":
+        writeDOT(graph, writer);
+        break;
+      case "json":
+        writeJSON(graph, writer);
+        break;
+      case "csv":
+        writeCSV(graph, writer);
+        break;
+      case "mat":
+        writeMatrix(graph, writer);
+        break;
+      case "graphml":
+        writeGraphML(graph, writer);
+        break;
+      default:
+        log.error("Unknown format " + format);
+      }
+    }
+
+  /** Give the format of a file, deduced from its extension.
+    * The <tt>.gz</tt> extension of compressed files is ignored.
+    * @param file The file name.
+    * @return     The format, like <tt>graphml</tt>. */
+  public static String format(String file) {
+    if (file.endsWith(GZ)) {
+      file = file.substring(0, file.length() - GZ.length());
       }
+    return file.substring(file.lastIndexOf('.') + 1);
+    }
+
+  /** Open a file for reading.
+    * <tt>.gz</tt> files are decompressed on a separate thread, ahead of reading.
+    * @param file The file name.
+    * @return     The {@link InputStream} giving the (uncompressed) content.
+    * @throws IOException If the file cannot be opened. */
+  public static InputStream open(String file) throws IOException {
+    InputStream is = Files.newInputStream(Paths.get(file));
+    if (file.endsWith(GZ)) {
+      return new ReadAheadInputStream(new GZIPInputStream(is, BUFFER));
+      }
+    return is;
+    }
+
+  /** Create a file for writing.
+    * <tt>.gz</tt> files are compressed in parallel blocks.
+    * @param file The file name.
+    * @return     The buffered {@link OutputStream} to write the (uncompressed) content to.
+    * @throws IOException If the file cannot be created. */
+  public static OutputStream create(String file) throws IOException {
+    OutputStream os = Files.newOutputStream(Paths.get(file));
+    if (file.endsWith(GZ)) {
+      return new ParallelGzipOutputStream(os);
+      }
+    return new BufferedOutputStream(os, BUFFER);
+    }
+
+  /** Give the <em>WebGraph</em> basename of a <tt>.graph</tt> file.
+    * @param file The <tt>.graph</tt> file name.
+    * @return     The basename. */
+  public static String basename(String file) {
+    return file.substring(0, file.length() - ".graph".length());
     }
 
   // Writers -------------------------------------------------------------------
   
   /** Represent {@link Graph} as a <em>DOT</em> string.
+    * @param graph The {@link Graph} to be written out.
+    * @return      The <em>DOT</em> representation of the {@link Graph}. */
+  public String writeDOT(Graph<CustomVertex, CustomEdge> graph) {
+    Writer writer = new StringWriter();
+    writeDOT(graph, writer);
+    return writer.toString();
+    }
+    
+  /** Write {@link Graph} in the <em>DOT</em> format.
     * Reading in <em>GraphViz</em>:
     * <pre>
     * dot -T jpg mygraph.dot &gt; mygraph.jpg
     * </pre>
-    * @param graph The {@link Graph} to be written out.
-    * @return      The <em>DOT</em> representation of the {@link Graph}. */
-  public String writeDOT(Graph<CustomVertex, CustomEdge> graph) {
+    * @param graph  The {@link Graph} to be written out.
+    * @param writer The {@link Writer} to write to. */
+  public void writeDOT(Graph<CustomVertex, CustomEdge> graph,
+                       Writer                          writer) {
     DOTExporter<CustomVertex, CustomEdge> exporter = new DOTExporter<>();
     exporter.setVertexAttributeProvider((v) -> {
       Map<String, Attribute> map = new LinkedHashMap<>();
@@ -211,15 +374,23 @@ public class Convertor {
       map.put("label", DefaultAttribute.createAttribute(e.getName()));
       return map;
       });
-    Writer writer = new StringWriter();
     exporter.exportGraph(graph, writer);
-    return writer.toString();
     }
     
   /** Represent {@link Graph} as a <em>CSV</em> string.
     * @param graph The {@link Graph} to be written out.
     * @return      The <em>CSV</em> representation of the {@link Graph}. */
   public String writeCSV(Graph<CustomVertex, CustomEdge> graph) {
+    Writer writer = new StringWriter();
+    writeCSV(graph, writer);
+    return writer.toString();
+    }
+    
+  /** Write {@link Graph} in the <em>CSV</em> format.
+    * @param graph  The {@link Graph} to be written out.
+    * @param writer The {@link Writer} to write to. */
+  public void writeCSV(Graph<CustomVertex, CustomEdge> graph,
+                       Writer                          writer) {
     CSVExporter<CustomVertex, CustomEdge> exporter = new CSVExporter<>(CSVFormat.ADJACENCY_LIST);
     exporter.setParameter(CSVFormat.Parameter.EDGE_WEIGHTS, true);
     exporter.setVertexAttributeProvider((v) -> {
@@ -232,15 +403,23 @@ public class Convertor {
       map.put("label", DefaultAttribute.createAttribute(e.getName()));
       return map;
       });
-    Writer writer = new StringWriter();
     exporter.exportGraph(graph, writer);
-    return writer.toString();
     }
     
   /** Represent {@link Graph} as a <em>JSON</em> string.
     * @param graph The {@link Graph} to be written out.
     * @return      The <em>JSON</em> representation of the {@link Graph}. */
   public String writeJSON(Graph<CustomVertex, CustomEdge> graph) {
+    Writer writer = new StringWriter();
+    writeJSON(graph, writer);
+    return writer.toString();
+    }
+    
+  /** Write {@link Graph} in the <em>JSON</em> format.
+    * @param graph  The {@link Graph} to be written out.
+    * @param writer The {@link Writer} to write to. */
+  public void writeJSON(Graph<CustomVertex, CustomEdge> graph,
+                        Writer                          writer) {
     JSONExporter<CustomVertex, CustomEdge> exporter = new JSONExporter<>();
     exporter.setVertexAttributeProvider((v) -> {
       Map<String, Attribute> map = new LinkedHashMap<>();
@@ -252,12 +431,20 @@ public class Convertor {
       map.put("label", DefaultAttribute.createAttribute(e.getName()));
       return map;
       });
-    Writer writer = new StringWriter();
     exporter.exportGraph(graph, writer);
-    return writer.toString();
     }
     
   /** Represent {@link Graph} as a <em>Graph6</em> string.
+    * @param graph The {@link Graph} to be written out.
+    * @return      The <em>Graph6</em> representation of the {@link Graph}.
+    * @throws UnsupportedEncodingException If unsupportec encoding used. */
+  public String writeGraph6(Graph<CustomVertex, CustomEdge> graph) throws UnsupportedEncodingException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    writeGraph6(graph, os);
+    return new String(os.toByteArray(), "UTF-8");
+    }  
+    
+  /** Write {@link Graph} in the <em>Graph6</em> format.
     * Reading in <em>Sage</em>:
     * <pre>
     * with open("mygraph.g6", "r") as f:
@@ -268,38 +455,54 @@ public class Convertor {
     * g.plot()
     * </pre>
     * @param graph The {@link Graph} to be written out.
-    * @return      The <em>Graph6</em> representation of the {@link Graph}.
-    * @throws UnsupportedEncodingException If unsupportec encoding used. */
-  public String writeGraph6(Graph<CustomVertex, CustomEdge> graph) throws UnsupportedEncodingException {
+    * @param os    The {@link OutputStream} to write to. */
+  public void writeGraph6(Graph<CustomVertex, CustomEdge> graph,
+                          OutputStream                    os) {
     Graph6Sparse6Exporter<CustomVertex, CustomEdge> exporter = new Graph6Sparse6Exporter<>(Graph6Sparse6Exporter.Format.GRAPH6);
-    ByteArrayOutputStream os = new ByteArrayOutputStream();
     exporter.exportGraph(new AsUndirectedGraph<>(graph), os);
-    return new String(os.toByteArray(), "UTF-8");
     }  
     
   /** Represent {@link Graph} as a <em>matrix</em> string.
     * @param graph The {@link Graph} to be written out.
     * @return      The <em>matrix</em> representation of the {@link Graph}. */
   public String writeMatrix(Graph<CustomVertex, CustomEdge> graph) {
-    GraphExporter<CustomVertex, CustomEdge> exporter = new MatrixExporter<>();
     Writer writer = new StringWriter();
-    exporter.exportGraph(graph, writer);
+    writeMatrix(graph, writer);
     return writer.toString();
     }  
     
+  /** Write {@link Graph} in the <em>matrix</em> format.
+    * @param graph  The {@link Graph} to be written out.
+    * @param writer The {@link Writer} to write to. */
+  public void writeMatrix(Graph<CustomVertex, CustomEdge> graph,
+                          Writer                          writer) {
+    GraphExporter<CustomVertex, CustomEdge> exporter = new MatrixExporter<>();
+    exporter.exportGraph(graph, writer);
+    }  
+    
   /** Represent {@link Graph} as a <em>GramphML</em> string.
     * @param graph The {@link Graph} to be written out.
     * @return      The <em>GraphML</em> representation of the {@link Graph}. */
   public String writeGraphML(Graph<CustomVertex, CustomEdge> graph) {
-    GraphExporter<CustomVertex, CustomEdge> exporter = createGraphMLExporter();
     Writer writer = new StringWriter();
-    exporter.exportGraph(graph, writer);
+    writeGraphML(graph, writer);
     return writer.toString();
     }  
+    
+  /** Write {@link Graph} in the <em>GramphML</em> format.
+    * @param graph  The {@link Graph} to be written out.
+    * @param writer The {@link Writer} to write to. */
+  public void writeGraphML(Graph<CustomVertex, CustomEdge> graph,
+                           Writer                          writer) {
+    GraphExporter<CustomVertex, CustomEdge> exporter = createGraphMLExporter();
+    exporter.exportGraph(graph, writer);
+    }  
          
   // GraphML -------------------------------------------------------------------  
     
   /** Create {@link Graph} from <em>GraphML</em> {@link InputStream}.
+    * If {@link Params} require any import filtering, the {@link GraphMLReader}
+    * with the {@link ImportFilter} is used, so filtered elements are never created.
     * @param input            The {@link InputStream} to read from.
     * @param directed         Whether {@link Graph} is directed.
     * @param weighted         Whether {@link Graph} is weighted.
@@ -311,30 +514,17 @@ public class Convertor {
                                                      boolean     weighted,
                                                      boolean     multipleEdges,
                                                      boolean     selfLoops) throws ImportException{
-    Graph<CustomVertex, CustomEdge> g;                          
-    if (directed) {
-      g = GraphTypeBuilder.directed()
-                          .allowingMultipleEdges(multipleEdges)
-                          .allowingSelfLoops(selfLoops)
-                          .weighted(weighted)
-                          .vertexSupplier(new CustomVertexSupplier())
-                          .vertexClass(CustomVertex.class)
-                          .edgeClass(CustomEdge.class)
-                          .buildGraph();
-        }
+    Graph<CustomVertex, CustomEdge> g = createGraph(directed, weighted, multipleEdges, selfLoops);
+    ImportFilter filter = new ImportFilter(_params);
+    if (filter.isEmpty()) {
+      GraphMLImporter<CustomVertex, CustomEdge> importer = createGraphMLImporter();
+      importer.setEdgeWeightAttributeName("weight");        
+      importer.importGraph(g, input);
+      }
     else {
-      g = GraphTypeBuilder.undirected()
-                          .allowingMultipleEdges(multipleEdges)
-                          .allowingSelfLoops(selfLoops)
-                          .weighted(weighted)
-                          .vertexSupplier(new CustomVertexSupplier())
-                          .vertexClass(CustomVertex.class)
-                          .edgeClass(CustomEdge.class)
-                          .buildGraph();
+      log.info("Filtering on import: " + filter);
+      new GraphMLReader(filter).read(g, input);
       }
-    GraphMLImporter<CustomVertex, CustomEdge> importer = createGraphMLImporter();
-    importer.setEdgeWeightAttributeName("weight");        
-    importer.importGraph(g, input);
     if (weighted) {
       log.info("Generating weights ...");
       for (CustomEdge e : g.edgeSet()) {        
@@ -345,6 +535,87 @@ public class Convertor {
     return g;
     }
 
+  /** Apply the {@link ImportFilter} required by {@link Params} to an already read {@link Graph}.
+    * It is used for formats, which are not filtered while being read.
+    * @param g The {@link Graph} to filter. */
+  public void filter(Graph<CustomVertex, CustomEdge> g) {
+    ImportFilter filter = new ImportFilter(_params);
+    if (filter.isEmpty()) {
+      return;
+      }
+    log.info("Filtering after import: " + filter);
+    for (CustomVertex v : new ArrayList<>(g.vertexSet())) {
+      if (filter.acceptVertex(values(filter, v.getAttributes()))) {
+        for (String name : v.getAttributes().keySet()) {
+          if (!filter.keeps(name)) {
+            v.removeAttribute(name);
+            }
+          }
+        }
+      else {
+        g.removeVertex(v);
+        }
+      }
+    for (CustomEdge e : new ArrayList<>(g.edgeSet())) {
+      if (filter.acceptEdge(values(filter, e.getAttributes()))) {
+        for (String name : e.getAttributes().keySet()) {
+          if (!filter.keeps(name)) {
+            e.removeAttribute(name);
+            }
+          }
+        }
+      else {
+        g.removeEdge(e);
+        }
+      }
+    log.info("Filtered graph: " + g.getType() + "[" + g.vertexSet().size() + ", " + g.edgeSet().size() + "]");
+    }
+
+  /** Give the attribute values needed by an {@link ImportFilter}.
+    * @param filter     The {@link ImportFilter}.
+    * @param attributes The {@link Attribute}s of one element.
+    * @return           The needed values. */
+  private static Map<String, String> values(ImportFilter           filter,
+                                            Map<String, Attribute> attributes) {
+    Map<String, String> values = new HashMap<>();
+    for (Map.Entry<String, Attribute> entry : attributes.entrySet()) {
+      if (filter.needs(entry.getKey())) {
+        values.put(entry.getKey(), entry.getValue().getValue());
+        }
+      }
+    return values;
+    }
+
+  /** Create an empty {@link Graph}.
+    * @param directed         Whether {@link Graph} is directed.
+    * @param weighted         Whether {@link Graph} is weighted.
+    * @param multipleEdges    Whether {@link Graph} has multi-edges.
+    * @param selfLoops        Whether {@link Graph} has self-loops.
+    * @return                 The created {@link Graph}. */
+  public Graph<CustomVertex, CustomEdge> createGraph(boolean directed,
+                                                     boolean weighted,
+                                                     boolean multipleEdges,
+                                                     boolean selfLoops) {
+    if (directed) {
+      return GraphTypeBuilder.directed()
+                             .allowingMultipleEdges(multipleEdges)
+                             .allowingSelfLoops(selfLoops)
+                             .weighted(weighted)
+                             .vertexSupplier(new CustomVertexSupplier())
+                             .vertexClass(CustomVertex.class)
+                             .edgeClass(CustomEdge.class)
+                             .buildGraph();
+      }
+    return GraphTypeBuilder.undirected()
+                           .allowingMultipleEdges(multipleEdges)
+                           .allowingSelfLoops(selfLoops)
+                           .weighted(weighted)
+                           .vertexSupplier(new CustomVertexSupplier())
+                           .vertexClass(CustomVertex.class)
+                           .edgeClass(CustomEdge.class)
+                           .buildGraph();
+    }
+
   /** Create {@link GraphMLImporter}.
     * @return The created {@link GraphMLImporter}. */
   public GraphMLImporter<CustomVertex, CustomEdge> createGraphMLImporter() {
@@ -439,6 +710,18 @@ public class Convertor {
     }
   
   private Params _params;
+
+  /** The text formats written by {@link #write}. */
+  private static final Set<String> FORMATS = new HashSet<>(Arrays.asList("dot", "json", "csv", "mat", "graphml"));
+
+  /** The binary formats, accessed through {@link java.nio.channels.FileChannel}s, so they cannot be compressed. */
+  private static final Set<String> BINARY_FORMATS = new HashSet<>(Arrays.asList("gbin", "csr", "npz"));
+
+  /** The size of I/O buffers. */
+  private static final int BUFFER = 1 << 16;
+
+  /** The extension of compressed files. */
+  private static final String GZ = ".gz";
     
   /** Logging . */
   private static Logger log = LogManager.getLogger(Convertor.class);
@@ -0,0 +1,771 @@
+package com.Grapher.Convertors;
+
+import com.Grapher.CustomGraph.CustomEdge;
+import com.Grapher.CustomGraph.CustomVertex;
+import com.Grapher.CustomGraph.CustomVertexSupplier;
+import com.Grapher.CustomGraph.AttributeSchema;
+import com.Grapher.CustomGraph.AttributeSchema.Slot;
+
+// JGraphT
+import org.jgrapht.Graph;
+import org.jgrapht.graph.builder.GraphTypeBuilder;
+import org.jgrapht.nio.Attribute;
+import org.jgrapht.nio.AttributeType;
+import org.jgrapht.nio.DefaultAttribute;
+
+// Java
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.ToDoubleBiFunction;
+
+// Log4J
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/** <code>GbinConvertor</code> reads and writes {@link Graph}s
+  * in the <em>Grapher</em> binary snapshot format (<tt>.gbin</tt>).
+  * The file starts with the <tt>GBIN</tt> magic and the format version,
+  * followed by sections, each one with its tag and byte length,
+  * so readers skip sections they don't know:
+  * <ul>
+  * <li><b>TYPE</b>: whether the {@link Graph} is directed, weighted, with self-loops and multiple edges.</li>
+  * <li><b>SCHEMA</b>: names and {@link AttributeType}s of {@link CustomVertex} and {@link CustomEdge} attributes
+  *     used by the {@link Graph}, sorted by name.</li>
+  * <li><b>NAMES</b>: the label to name maps of {@link CustomVertex}s and {@link CustomEdge}s and the label to weight map.</li>
+  * <li><b>VERTICES</b>: {@link CustomVertex} ids and attribute columns.</li>
+  * <li><b>EDGES</b>: {@link CustomEdge} sources, targets, ids, weights and attribute columns.</li>
+  * <li><b>EXTRAS</b>: attribute values which don't fit their registered type.</li>
+  * </ul>
+  * Each attribute column is a presence bitmap followed by all values:
+  * <code>double</code>s, <code>long</code>s, or a dictionary and <code>int</code> codes for {@link String}s.
+  * Arrays are written and read in bulk through {@link FileChannel}s,
+  * weights are stored, so they are not regenerated on reload.
+  * Reloading a snapshot and writing it again gives an identical file.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class GbinConvertor {
+
+  /** Write {@link Graph} as a snapshot.
+    * @param graph The {@link Graph} to be written out.
+    * @param file  The snapshot file name.
+    * @throws IOException If the file cannot be written. */
+  public void write(Graph<CustomVertex, CustomEdge> graph,
+                    String                          file) throws IOException {
+    CustomVertex[] vertexes = graph.vertexSet().toArray(new CustomVertex[0]);
+    CustomEdge[]   edges    = graph.edgeSet().toArray(new CustomEdge[0]);
+    int n = vertexes.length;
+    int m = edges.length;
+    Map<CustomVertex, Integer> index = new HashMap<>(2 * n);
+    for (int i = 0; i < n; i++) {
+      index.put(vertexes[i], i);
+      }
+    Slot[] vertexSlots = usedSlots(CustomVertex.schema().slots(), n, (i, name) -> vertexes[i].hasAttribute(name));
+    Slot[] edgeSlots   = usedSlots(CustomEdge.schema().slots(),   m, (e, name) -> edges[e].hasAttribute(name));
+    List<Extra> vertexExtras = new ArrayList<>();
+    List<Extra> edgeExtras   = new ArrayList<>();
+    try (Output out = new Output(file)) {
+      out.putInt(MAGIC);
+      out.putInt(VERSION);
+      // type
+      out.begin(TYPE);
+      out.putBoolean(graph.getType().isDirected());
+      out.putBoolean(graph.getType().isWeighted());
+      out.putBoolean(graph.getType().isAllowingSelfLoops());
+      out.putBoolean(graph.getType().isAllowingMultipleEdges());
+      out.end();
+      // schema
+      out.begin(SCHEMA);
+      putSchema(out, vertexSlots);
+      putSchema(out, edgeSlots);
+      out.end();
+      // names
+      out.begin(NAMES);
+      putMap(out, CustomVertex.namesMap());
+      putMap(out, CustomEdge.namesMap());
+      putMap(out, CustomEdge.weightsMap());
+      out.end();
+      // vertices
+      out.begin(VERTICES);
+      out.putInt(n);
+      long[] ids = new long[n];
+      for (int i = 0; i < n; i++) {
+        ids[i] = vertexes[i].getId();
+        }
+      out.put(ids);
+      putColumns(out, vertexSlots, n, (i, name) -> vertexes[i].getAttribute(name), (i, name) -> vertexes[i].getNumber(name), vertexExtras);
+      out.end();
+      // edges
+      out.begin(EDGES);
+      out.putInt(m);
+      int[]    sources = new int[m];
+      int[]    targets = new int[m];
+      double[] weights = new double[m];
+      ids = new long[m];
+      for (int e = 0; e < m; e++) {
+        sources[e] = index.get(graph.getEdgeSource(edges[e]));
+        targets[e] = index.get(graph.getEdgeTarget(edges[e]));
+        ids[e]     = edges[e].getId();
+        weights[e] = graph.getEdgeWeight(edges[e]);
+        }
+      out.put(sources);
+      out.put(targets);
+      out.put(ids);
+      out.put(weights);
+      putColumns(out, edgeSlots, m, (e, name) -> edges[e].getAttribute(name), (e, name) -> edges[e].getNumber(name), edgeExtras);
+      out.end();
+      // extras
+      out.begin(EXTRAS);
+      putExtras(out, vertexExtras);
+      putExtras(out, edgeExtras);
+      out.end();
+      out.putInt(END);
+      }
+    log.info("Written graph: " + graph.getType() + "[" + n + ", " + m + "] to " + file);
+    }
+
+  /** Read {@link Graph} from a snapshot.
+    * The stored attribute schema is registered and the stored name maps are set.
+    * @param file The snapshot file name.
+    * @return     The read {@link Graph}.
+    * @throws IOException If the file cannot be read or is not a snapshot. */
+  public Graph<CustomVertex, CustomEdge> read(String file) throws IOException {
+    Graph<CustomVertex, CustomEdge> g = null;
+    CustomVertex[] vertexes = null;
+    CustomEdge[]   edges    = null;
+    Map<String, AttributeType> vertexTypes = null;
+    Map<String, AttributeType> edgeTypes   = null;
+    try (Input in = new Input(file)) {
+      if (in.getInt() != MAGIC) {
+        throw new IOException(file + " is not a Grapher snapshot");
+        }
+      int version = in.getInt();
+      if (version > VERSION) {
+        throw new IOException(file + " has unsupported version " + version);
+        }
+      int tag;
+      long length;
+      while ((tag = in.getInt()) != END) {
+        length = in.getLong();
+        switch (tag) {
+          case TYPE:
+            boolean directed = in.getBoolean();
+            boolean weighted = in.getBoolean();
+            boolean selfLoops = in.getBoolean();
+            boolean multipleEdges = in.getBoolean();
+            g = (directed ? GraphTypeBuilder.<CustomVertex, CustomEdge>directed()
+                          : GraphTypeBuilder.<CustomVertex, CustomEdge>undirected())
+                .allowingMultipleEdges(multipleEdges)
+                .allowingSelfLoops(selfLoops)
+                .weighted(weighted)
+                .vertexSupplier(new CustomVertexSupplier())
+                .vertexClass(CustomVertex.class)
+                .edgeClass(CustomEdge.class)
+                .buildGraph();
+            break;
+          case SCHEMA:
+            vertexTypes = getSchema(in, CustomVertex.schema());
+            edgeTypes   = getSchema(in, CustomEdge.schema());
+            break;
+          case NAMES:
+            Map<String, String> map;
+            if ((map = getMap(in)) != null) {
+              CustomVertex.setNamesMap(map);
+              }
+            if ((map = getMap(in)) != null) {
+              CustomEdge.setNamesMap(map);
+              }
+            if ((map = getMap(in)) != null) {
+              CustomEdge.setWeightsMap(map);
+              }
+            break;
+          case VERTICES:
+            vertexes = new CustomVertex[in.getInt()];
+            long[] ids = in.getLongs(vertexes.length);
+            for (int i = 0; i < vertexes.length; i++) {
+              vertexes[i] = new CustomVertex(ids[i]);
+              }
+            CustomVertex[] vs = vertexes;
+            getColumns(in, vertexTypes, vs.length,
+                       (i, name, a    ) -> vs[i].putAttribute(name, a),
+                       (i, name, value) -> vs[i].putAttribute(name, value),
+                       (i, name, value) -> vs[i].putAttribute(name, value));
+            for (CustomVertex v : vertexes) {
+              g.addVertex(v);
+              }
+            break;
+          case EDGES:
+            edges = new CustomEdge[in.getInt()];
+            int[]    sources = in.getInts(edges.length);
+            int[]    targets = in.getInts(edges.length);
+            long[]   eids    = in.getLongs(edges.length);
+            double[] weights = in.getDoubles(edges.length);
+            for (int e = 0; e < edges.length; e++) {
+              edges[e] = new CustomEdge(eids[e]);
+              }
+            CustomEdge[] es = edges;
+            getColumns(in, edgeTypes, es.length,
+                       (e, name, a    ) -> es[e].putAttribute(name, a),
+                       (e, name, value) -> es[e].putAttribute(name, value),
+                       (e, name, value) -> es[e].putAttribute(name, value));
+            for (int e = 0; e < edges.length; e++) {
+              g.addEdge(vertexes[sources[e]], vertexes[targets[e]], edges[e]);
+              if (g.getType().isWeighted()) {
+                g.setEdgeWeight(edges[e], weights[e]);
+                }
+              }
+            break;
+          case EXTRAS:
+            CustomVertex[] xvs = vertexes;
+            CustomEdge[]   xes = edges;
+            getExtras(in, (i, name, a) -> xvs[i].putAttribute(name, a));
+            getExtras(in, (e, name, a) -> xes[e].putAttribute(name, a));
+            break;
+          default:
+            log.warn("Unknown section " + tag + " skipped");
+            in.skip(length);
+          }
+        }
+      }
+    log.info("Imported graph: " + g.getType() + "[" + g.vertexSet().size() + ", " + g.edgeSet().size() + "] from " + file);
+    return g;
+    }
+
+  /** Give the {@link Slot}s used by at least one row, sorted by name,
+    * so the snapshot doesn't depend on attributes registered by other {@link Graph}s
+    * nor on the order of their registration.
+    * @param slots The registered {@link Slot}s.
+    * @param n     The number of rows.
+    * @param has   The function telling whether a row has an attribute.
+    * @return      The used {@link Slot}s. */
+  private static Slot[] usedSlots(Slot[]                       slots,
+                                  int                          n,
+                                  BiPredicate<Integer, String> has) {
+    Map<String, Slot> used = new TreeMap<>();
+    for (Slot slot : slots) {
+      for (int i = 0; i < n; i++) {
+        if (has.test(i, slot.name())) {
+          used.put(slot.name(), slot);
+          break;
+          }
+        }
+      }
+    return used.values().toArray(new Slot[0]);
+    }
+
+  /** Write the used attributes.
+    * @param out   The {@link Output}.
+    * @param slots The used {@link Slot}s. */
+  private static void putSchema(Output out,
+                                Slot[] slots) throws IOException {
+    out.putInt(slots.length);
+    for (Slot slot : slots) {
+      out.putString(slot.name());
+      out.putString(slot.type().name());
+      }
+    }
+
+  /** Read the registered attributes and register them.
+    * @param in     The {@link Input}.
+    * @param schema The {@link AttributeSchema} to register attributes in.
+    * @return       The stored {@link AttributeType}s, in the stored order. */
+  private static Map<String, AttributeType> getSchema(Input           in,
+                                                      AttributeSchema schema) throws IOException {
+    Map<String, AttributeType> types = new LinkedHashMap<>();
+    int size = in.getInt();
+    String name;
+    AttributeType type;
+    for (int i = 0; i < size; i++) {
+      name = in.getString();
+      type = AttributeType.valueOf(in.getString());
+      schema.register(name, type);
+      types.put(name, type);
+      }
+    return types;
+    }
+
+  /** Write a {@link Map}, sorted by keys.
+    * @param out The {@link Output}.
+    * @param map The {@link Map}, may be <tt>null</tt>. */
+  private static void putMap(Output              out,
+                             Map<String, String> map) throws IOException {
+    if (map == null) {
+      out.putInt(-1);
+      return;
+      }
+    out.putInt(map.size());
+    for (Map.Entry<String, String> entry : new TreeMap<>(map).entrySet()) {
+      out.putString(entry.getKey());
+      out.putString(entry.getValue());
+      }
+    }
+
+  /** Read a {@link Map}.
+    * @param in The {@link Input}.
+    * @return   The {@link Map}, may be <tt>null</tt>. */
+  private static Map<String, String> getMap(Input in) throws IOException {
+    int size = in.getInt();
+    if (size < 0) {
+      return null;
+      }
+    Map<String, String> map = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      map.put(in.getString(), in.getString());
+      }
+    return map;
+    }
+
+  /** Write attribute columns.
+    * Values which cannot be stored in their column are collected as {@link Extra}s.
+    * @param out       The {@link Output}.
+    * @param slots     The {@link Slot}s of columns.
+    * @param n         The number of rows.
+    * @param attribute The function giving an {@link Attribute} of a row.
+    * @param number    The function giving a numerical value of a row.
+    * @param extras    The {@link List} to collect {@link Extra}s. */
+  private static void putColumns(Output                                      out,
+                                 Slot[]                                      slots,
+                                 int                                         n,
+                                 BiFunction<Integer, String, Attribute>      attribute,
+                                 ToDoubleBiFunction<Integer, String>         number,
+                                 List<Extra>                                 extras) throws IOException {
+    Attribute a;
+    for (Slot slot : slots) {
+      long[]   set     = new long[(n + 63) >> 6];
+      double[] doubles = null;
+      long[]   longs   = null;
+      int[]    codes   = null;
+      Map<String, Integer> dictionary = null;
+      switch (slot.kind()) {
+        case DOUBLE:
+          doubles = new double[n];
+          break;
+        case LONG:
+          longs = new long[n];
+          break;
+        default:
+          codes = new int[n];
+          dictionary = new LinkedHashMap<>();
+        }
+      for (int i = 0; i < n; i++) {
+        a = attribute.apply(i, slot.name());
+        if (a == null) {
+          continue;
+          }
+        if (a.getType() != slot.type()) {
+          extras.add(new Extra(i, slot.name(), a));
+          continue;
+          }
+        try {
+          switch (slot.kind()) {
+            case DOUBLE:
+              doubles[i] = number.applyAsDouble(i, slot.name());
+              break;
+            case LONG:
+              longs[i] = Long.parseLong(a.getValue());
+              break;
+            default:
+              Map<String, Integer> d = dictionary;
+              codes[i] = d.computeIfAbsent(a.getValue(), k -> d.size());
+            }
+          set[i >> 6] |= 1L << i;
+          }
+        catch (NumberFormatException e) {
+          extras.add(new Extra(i, slot.name(), a));
+          }
+        }
+      out.put(set);
+      switch (slot.kind()) {
+        case DOUBLE:
+          out.put(doubles);
+          break;
+        case LONG:
+          out.put(longs);
+          break;
+        default:
+          out.putInt(dictionary.size());
+          for (String value : dictionary.keySet()) {
+            out.putString(value);
+            }
+          out.put(codes);
+        }
+      }
+    }
+
+  /** Read attribute columns.
+    * @param in         The {@link Input}.
+    * @param types      The stored {@link AttributeType}s of columns.
+    * @param n          The number of rows.
+    * @param attributes The consumer of {@link String} values.
+    * @param doubles    The consumer of <code>double</code> values.
+    * @param longs      The consumer of <code>long</code> values. */
+  private static void getColumns(Input                      in,
+                                 Map<String, AttributeType> types,
+                                 int                        n,
+                                 AttributeSetter            attributes,
+                                 DoubleSetter               doubles,
+                                 LongSetter                 longs) throws IOException {
+    long[] set;
+    String name;
+    AttributeType type;
+    for (Map.Entry<String, AttributeType> entry : types.entrySet()) {
+      name = entry.getKey();
+      type = entry.getValue();
+      set  = in.getLongs((n + 63) >> 6);
+      switch (AttributeSchema.kind(type)) {
+        case DOUBLE:
+          double[] ds = in.getDoubles(n);
+          for (int i = 0; i < n; i++) {
+            if ((set[i >> 6] & (1L << i)) != 0) {
+              doubles.set(i, name, ds[i]);
+              }
+            }
+          break;
+        case LONG:
+          long[] ls = in.getLongs(n);
+          for (int i = 0; i < n; i++) {
+            if ((set[i >> 6] & (1L << i)) != 0) {
+              longs.set(i, name, ls[i]);
+              }
+            }
+          break;
+        default:
+          Attribute[] dictionary = new Attribute[in.getInt()];
+          for (int d = 0; d < dictionary.length; d++) {
+            dictionary[d] = new DefaultAttribute<>(in.getString(), type);
+            }
+          int[] codes = in.getInts(n);
+          for (int i = 0; i < n; i++) {
+            if ((set[i >> 6] & (1L << i)) != 0) {
+              attributes.set(i, name, dictionary[codes[i]]);
+              }
+            }
+        }
+      }
+    }
+
+  /** Write {@link Extra}s.
+    * @param out    The {@link Output}.
+    * @param extras The {@link Extra}s. */
+  private static void putExtras(Output      out,
+                                List<Extra> extras) throws IOException {
+    out.putInt(extras.size());
+    for (Extra extra : extras) {
+      out.putInt(extra._row);
+      out.putString(extra._name);
+      out.putString(extra._attribute.getType().name());
+      out.putString(extra._attribute.getValue());
+      }
+    }
+
+  /** Read {@link Extra}s.
+    * @param in     The {@link Input}.
+    * @param setter The consumer of {@link Attribute}s. */
+  private static void getExtras(Input           in,
+                                AttributeSetter setter) throws IOException {
+    int size = in.getInt();
+    int row;
+    String name;
+    AttributeType type;
+    for (int i = 0; i < size; i++) {
+      row  = in.getInt();
+      name = in.getString();
+      type = AttributeType.valueOf(in.getString());
+      setter.set(row, name, new DefaultAttribute<>(in.getString(), type));
+      }
+    }
+
+  /** Consumer of an {@link Attribute}. */
+  private interface AttributeSetter {
+    void set(int row, String name, Attribute value);
+    }
+
+  /** Consumer of a <code>double</code> value. */
+  private interface DoubleSetter {
+    void set(int row, String name, double value);
+    }
+
+  /** Consumer of a <code>long</code> value. */
+  private interface LongSetter {
+    void set(int row, String name, long value);
+    }
+
+  /** <code>Extra</code> is an attribute value which doesn't fit its column. */
+  private static class Extra {
+
+    Extra(int       row,
+          String    name,
+          Attribute attribute) {
+      _row       = row;
+      _name      = name;
+      _attribute = attribute;
+      }
+
+    private int _row;
+
+    private String _name;
+
+    private Attribute _attribute;
+
+    }
+
+  /** <code>Output</code> writes primitives and arrays through a {@link FileChannel}. */
+  private static class Output implements AutoCloseable {
+
+    Output(String file) throws IOException {
+      _channel = FileChannel.open(Paths.get(file),
+                                  StandardOpenOption.CREATE,
+                                  StandardOpenOption.WRITE,
+                                  StandardOpenOption.TRUNCATE_EXISTING);
+      }
+
+    /** Start a section, its length is filled in by {@link #end}. */
+    void begin(int tag) throws IOException {
+      putInt(tag);
+      flush();
+      _section = _channel.position();
+      putLong(0);
+      }
+
+    /** End a section, fill in its length. */
+    void end() throws IOException {
+      flush();
+      ByteBuffer length = ByteBuffer.allocate(Long.BYTES).order(ORDER);
+      length.putLong(0, _channel.position() - _section - Long.BYTES);
+      _channel.write(length, _section);
+      }
+
+    void putBoolean(boolean value) throws IOException {
+      ensure(1);
+      _buffer.put((byte)(value ? 1 : 0));
+      }
+
+    void putInt(int value) throws IOException {
+      ensure(Integer.BYTES);
+      _buffer.putInt(value);
+      }
+
+    void putLong(long value) throws IOException {
+      ensure(Long.BYTES);
+      _buffer.putLong(value);
+      }
+
+    void putString(String value) throws IOException {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      putInt(bytes.length);
+      int k;
+      for (int off = 0; off < bytes.length; off += k) {
+        ensure(1);
+        k = Math.min(bytes.length - off, _buffer.remaining());
+        _buffer.put(bytes, off, k);
+        }
+      }
+
+    void put(int[] values) throws IOException {
+      int k;
+      for (int off = 0; off < values.length; off += k) {
+        ensure(Integer.BYTES);
+        k = Math.min(values.length - off, _buffer.remaining() / Integer.BYTES);
+        _buffer.asIntBuffer().put(values, off, k);
+        _buffer.position(_buffer.position() + k * Integer.BYTES);
+        }
+      }
+
+    void put(long[] values) throws IOException {
+      int k;
+      for (int off = 0; off < values.length; off += k) {
+        ensure(Long.BYTES);
+        k = Math.min(values.length - off, _buffer.remaining() / Long.BYTES);
+        _buffer.asLongBuffer().put(values, off, k);
+        _buffer.position(_buffer.position() + k * Long.BYTES);
+        }
+      }
+
+    void put(double[] values) throws IOException {
+      int k;
+      for (int off = 0; off < values.length; off += k) {
+        ensure(Double.BYTES);
+        k = Math.min(values.length - off, _buffer.remaining() / Double.BYTES);
+        _buffer.asDoubleBuffer().put(values, off, k);
+        _buffer.position(_buffer.position() + k * Double.BYTES);
+        }
+      }
+
+    /** Make space for some bytes in the buffer. */
+    private void ensure(int bytes) throws IOException {
+      if (_buffer.remaining() < bytes) {
+        flush();
+        }
+      }
+
+    private void flush() throws IOException {
+      _buffer.flip();
+      while (_buffer.hasRemaining()) {
+        _channel.write(_buffer);
+        }
+      _buffer.clear();
+      }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        flush();
+        }
+      finally {
+        _channel.close();
+        }
+      }
+
+    private FileChannel _channel;
+
+    private ByteBuffer _buffer = ByteBuffer.allocateDirect(BUFFER).order(ORDER);
+
+    private long _section;
+
+    }
+
+  /** <code>Input</code> reads primitives and arrays through a {@link FileChannel}. */
+  private static class Input implements AutoCloseable {
+
+    Input(String file) throws IOException {
+      _channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+      _buffer.limit(0);
+      }
+
+    boolean getBoolean() throws IOException {
+      ensure(1);
+      return _buffer.get() != 0;
+      }
+
+    int getInt() throws IOException {
+      ensure(Integer.BYTES);
+      return _buffer.getInt();
+      }
+
+    long getLong() throws IOException {
+      ensure(Long.BYTES);
+      return _buffer.getLong();
+      }
+
+    String getString() throws IOException {
+      byte[] bytes = new byte[getInt()];
+      int k;
+      for (int off = 0; off < bytes.length; off += k) {
+        ensure(1);
+        k = Math.min(bytes.length - off, _buffer.remaining());
+        _buffer.get(bytes, off, k);
+        }
+      return new String(bytes, StandardCharsets.UTF_8);
+      }
+
+    int[] getInts(int n) throws IOException {
+      int[] values = new int[n];
+      int k;
+      for (int off = 0; off < n; off += k) {
+        ensure(Integer.BYTES);
+        k = Math.min(n - off, _buffer.remaining() / Integer.BYTES);
+        _buffer.asIntBuffer().get(values, off, k);
+        _buffer.position(_buffer.position() + k * Integer.BYTES);
+        }
+      return values;
+      }
+
+    long[] getLongs(int n) throws IOException {
+      long[] values = new long[n];
+      int k;
+      for (int off = 0; off < n; off += k) {
+        ensure(Long.BYTES);
+        k = Math.min(n - off, _buffer.remaining() / Long.BYTES);
+        _buffer.asLongBuffer().get(values, off, k);
+        _buffer.position(_buffer.position() + k * Long.BYTES);
+        }
+      return values;
+      }
+
+    double[] getDoubles(int n) throws IOException {
+      double[] values = new double[n];
+      int k;
+      for (int off = 0; off < n; off += k) {
+        ensure(Double.BYTES);
+        k = Math.min(n - off, _buffer.remaining() / Double.BYTES);
+        _buffer.asDoubleBuffer().get(values, off, k);
+        _buffer.position(_buffer.position() + k * Double.BYTES);
+        }
+      return values;
+      }
+
+    void skip(long bytes) throws IOException {
+      if (bytes <= _buffer.remaining()) {
+        _buffer.position(_buffer.position() + (int)bytes);
+        return;
+        }
+      _channel.position(_channel.position() + bytes - _buffer.remaining());
+      _buffer.limit(0);
+      }
+
+    /** Make some bytes available in the buffer. */
+    private void ensure(int bytes) throws IOException {
+      if (_buffer.remaining() >= bytes) {
+        return;
+        }
+      _buffer.compact();
+      while (_buffer.position() < bytes) {
+        if (_channel.read(_buffer) < 0) {
+          throw new IOException("Unexpected end of snapshot");
+          }
+        }
+      _buffer.flip();
+      }
+
+    @Override
+    public void close() throws IOException {
+      _channel.close();
+      }
+
+    private FileChannel _channel;
+
+    private ByteBuffer _buffer = ByteBuffer.allocateDirect(BUFFER).order(ORDER);
+
+    }
+
+  /** The file magic: <tt>GBIN</tt>. */
+  private static final int MAGIC = 0x4742494E;
+
+  /** The format version. */
+  private static final int VERSION = 1;
+
+  private static final int END      = 0;
+
+  private static final int TYPE     = 1;
+
+  private static final int SCHEMA   = 2;
+
+  private static final int NAMES    = 3;
+
+  private static final int VERTICES = 4;
+
+  private static final int EDGES    = 5;
+
+  private static final int EXTRAS   = 6;
+
+  /** The byte order of snapshots. */
+  private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+  /** The size of I/O buffers. */
+  private static final int BUFFER = 1 << 20;
+
+  /** Logging . */
+  private static Logger log = LogManager.getLogger(GbinConvertor.class);
+
+  }
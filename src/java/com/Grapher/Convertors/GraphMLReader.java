@@ -0,0 +1,324 @@
+package com.Grapher.Convertors;
+
+import com.Grapher.CustomGraph.CustomEdge;
+import com.Grapher.CustomGraph.CustomVertex;
+
+// JGraphT
+import org.jgrapht.Graph;
+import org.jgrapht.nio.AttributeType;
+import org.jgrapht.nio.DefaultAttribute;
+import org.jgrapht.nio.ImportException;
+
+// Java
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Set;
+import java.util.List;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamConstants;
+
+// Log4J
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/** <code>GraphMLReader</code> is a streaming <em>GraphML</em> reader applying an {@link ImportFilter}.
+  * Each <tt>node</tt> and <tt>edge</tt> element is parsed into a small buffer
+  * of the attribute values needed by the {@link ImportFilter},
+  * {@link CustomVertex}s and {@link CustomEdge}s are only created if accepted,
+  * values of unneeded attributes are skipped without being read.
+  * It follows {@link org.jgrapht.nio.graphml.GraphMLImporter} conventions:
+  * {@link CustomVertex} ids are the <em>GraphML</em> ids (also kept as the <tt>ID</tt> attribute),
+  * {@link CustomEdge} ids are generated, attributes are typed by their <tt>key</tt>.
+  * Edges referring to filtered Vertices are dropped.
+  * Edges referring to Vertices which have not been read yet are kept aside
+  * and added after the whole file has been read, so Vertices and Edges may come in any order.
+  * <em>DTD</em>s and external entities are not processed.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class GraphMLReader {
+
+  /** Create.
+    * @param filter The {@link ImportFilter} to apply. */
+  public GraphMLReader(ImportFilter filter) {
+    _filter = filter;
+    }
+
+  /** Read <em>GraphML</em> into a {@link Graph}.
+    * @param graph The {@link Graph} to fill.
+    * @param input The {@link InputStream} to read from.
+    * @throws ImportException If the input cannot be parsed. */
+  public void read(Graph<CustomVertex, CustomEdge> graph,
+                   InputStream                     input) throws ImportException {
+    Map<String, CustomVertex> vertexes = new HashMap<>();
+    Set<String> dropped = new HashSet<>();
+    List<Pending> pending = new ArrayList<>();
+    Map<String, Key> keys = new HashMap<>();
+    Map<String, String> values = new LinkedHashMap<>();
+    long nVertexes = 0;
+    long nEdges = 0;
+    long nLost = 0;
+    String id = null;
+    String source = null;
+    String target = null;
+    boolean inNode = false;
+    boolean inEdge = false;
+    Key key;
+    Key currentKey = null;
+    try {
+      XMLInputFactory factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+      XMLStreamReader reader = factory.createXMLStreamReader(input);
+      while (reader.hasNext()) {
+        switch (reader.next()) {
+          case XMLStreamConstants.START_ELEMENT:
+            switch (reader.getLocalName()) {
+              case "key":
+                currentKey = new Key(reader.getAttributeValue(null, "attr.name"),
+                                     reader.getAttributeValue(null, "attr.type"),
+                                     reader.getAttributeValue(null, "for"));
+                keys.put(reader.getAttributeValue(null, "id"), currentKey);
+                if (currentKey.isFor(true)) {
+                  _nodeKeys.put(currentKey._name, currentKey);
+                  }
+                if (currentKey.isFor(false)) {
+                  _edgeKeys.put(currentKey._name, currentKey);
+                  }
+                break;
+              case "default":
+                if (currentKey != null) {
+                  currentKey._default = reader.getElementText();
+                  }
+                break;
+              case "node":
+                inNode = true;
+                nVertexes++;
+                id = reader.getAttributeValue(null, "id");
+                values.clear();
+                break;
+              case "edge":
+                inEdge = true;
+                nEdges++;
+                source = reader.getAttributeValue(null, "source");
+                target = reader.getAttributeValue(null, "target");
+                values.clear();
+                if (!_filter.edges()) {
+                  skip(reader);
+                  inEdge = false;
+                  }
+                break;
+              case "data":
+                key = keys.get(reader.getAttributeValue(null, "key"));
+                if ((inNode || inEdge) && key != null && _filter.needs(key._name)) {
+                  values.put(key._name, reader.getElementText());
+                  }
+                else {
+                  skip(reader);
+                  }
+                break;
+              default:
+              }
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            switch (reader.getLocalName()) {
+              case "key":
+                currentKey = null;
+                break;
+              case "node":
+                inNode = false;
+                defaults(_nodeKeys, values);
+                if (_filter.acceptVertex(values)) {
+                  CustomVertex v = new CustomVertex(Long.valueOf(id));
+                  if (_filter.keeps("ID")) {
+                    v.putAttribute("ID", DefaultAttribute.createAttribute(id));
+                    }
+                  put(v, values);
+                  graph.addVertex(v);
+                  vertexes.put(id, v);
+                  }
+                else {
+                  dropped.add(id);
+                  }
+                break;
+              case "edge":
+                inEdge = false;
+                defaults(_edgeKeys, values);
+                if (_filter.acceptEdge(values)) {
+                  if (dropped.contains(source) || dropped.contains(target)) {
+                    nLost++;
+                    }
+                  else if (vertexes.containsKey(source) && vertexes.containsKey(target)) {
+                    addEdge(graph, vertexes.get(source), vertexes.get(target), values);
+                    }
+                  else {
+                    pending.add(new Pending(source, target, new LinkedHashMap<>(values)));
+                    }
+                  }
+                break;
+              default:
+              }
+            break;
+          default:
+          }
+        }
+      reader.close();
+      for (Pending edge : pending) {
+        if (vertexes.containsKey(edge._source) && vertexes.containsKey(edge._target)) {
+          addEdge(graph, vertexes.get(edge._source), vertexes.get(edge._target), edge._values);
+          }
+        else {
+          nLost++;
+          }
+        }
+      }
+    catch (XMLStreamException | NumberFormatException e) {
+      throw new ImportException("Failed to parse GraphML", e);
+      }
+    log.info("Kept " + graph.vertexSet().size() + " of " + nVertexes + " Vertices and "
+                     + graph.edgeSet().size() + " of " + nEdges + " Edges"
+                     + (nLost > 0 ? ", " + nLost + " Edges to dropped or unknown Vertices ignored" : ""));
+    }
+
+  /** Add an accepted {@link CustomEdge}.
+    * @param graph  The {@link Graph} to fill.
+    * @param source The source {@link CustomVertex}.
+    * @param target The target {@link CustomVertex}.
+    * @param values The attribute values. */
+  private void addEdge(Graph<CustomVertex, CustomEdge> graph,
+                       CustomVertex                    source,
+                       CustomVertex                    target,
+                       Map<String, String>             values) {
+    CustomEdge e = graph.addEdge(source, target);
+    if (e != null) {
+      put(e, values);
+      if (graph.getType().isWeighted() && values.containsKey(WEIGHT)) {
+        graph.setEdgeWeight(e, Double.parseDouble(values.get(WEIGHT)));
+        }
+      }
+    }
+
+  /** Fill in default values of needed attributes.
+    * @param keys   The {@link Key}s of the element kind, by name.
+    * @param values The attribute values. */
+  private void defaults(Map<String, Key>    keys,
+                        Map<String, String> values) {
+    for (Key key : keys.values()) {
+      if (key._default != null && !values.containsKey(key._name) && _filter.needs(key._name)) {
+        values.put(key._name, key._default);
+        }
+      }
+    }
+
+  /** Put kept attributes to a {@link CustomVertex}.
+    * @param v      The {@link CustomVertex}.
+    * @param values The attribute values. */
+  private void put(CustomVertex        v,
+                   Map<String, String> values) {
+    for (Map.Entry<String, String> entry : values.entrySet()) {
+      if (_filter.keeps(entry.getKey())) {
+        v.putAttribute(entry.getKey(), new DefaultAttribute<>(entry.getValue(), type(_nodeKeys, entry.getKey())));
+        }
+      }
+    }
+
+  /** Put kept attributes to a {@link CustomEdge}.
+    * @param e      The {@link CustomEdge}.
+    * @param values The attribute values. */
+  private void put(CustomEdge          e,
+                   Map<String, String> values) {
+    for (Map.Entry<String, String> entry : values.entrySet()) {
+      if (_filter.keeps(entry.getKey())) {
+        e.putAttribute(entry.getKey(), new DefaultAttribute<>(entry.getValue(), type(_edgeKeys, entry.getKey())));
+        }
+      }
+    }
+
+  /** Give the {@link AttributeType} of an attribute.
+    * @param keys The {@link Key}s of the element kind, by name.
+    * @param name The name of the attribute.
+    * @return     The {@link AttributeType}, <tt>STRING</tt> if not declared. */
+  private static AttributeType type(Map<String, Key> keys,
+                                    String           name) {
+    Key key = keys.get(name);
+    return key == null ? AttributeType.STRING : key._type;
+    }
+
+  /** Skip the current element with all its content.
+    * @param reader The {@link XMLStreamReader} positioned at the element start.
+    * @throws XMLStreamException If the input cannot be parsed. */
+  private static void skip(XMLStreamReader reader) throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      switch (reader.next()) {
+        case XMLStreamConstants.START_ELEMENT:
+          depth++;
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          depth--;
+          break;
+        default:
+        }
+      }
+    }
+
+  /** <code>Pending</code> is an accepted Edge waiting for its Vertices. */
+  private static class Pending {
+
+    Pending(String              source,
+            String              target,
+            Map<String, String> values) {
+      _source = source;
+      _target = target;
+      _values = values;
+      }
+
+    private String _source;
+
+    private String _target;
+
+    private Map<String, String> _values;
+
+    }
+
+  /** <code>Key</code> describes one <em>GraphML</em> attribute. */
+  private static class Key {
+
+    Key(String name,
+        String type,
+        String target) {
+      _name   = name;
+      _type   = type == null ? AttributeType.STRING : AttributeType.create(type);
+      _target = target == null ? "all" : target;
+      }
+
+    boolean isFor(boolean node) {
+      return _target.equals("all") || _target.equals(node ? "node" : "edge");
+      }
+
+    private String _name;
+
+    private AttributeType _type;
+
+    private String _target;
+
+    private String _default;
+
+    }
+
+  private ImportFilter _filter;
+
+  private Map<String, Key> _nodeKeys = new HashMap<>();
+
+  private Map<String, Key> _edgeKeys = new HashMap<>();
+
+  private static final String WEIGHT = "weight";
+
+  /** Logging . */
+  private static Logger log = LogManager.getLogger(GraphMLReader.class);
+
+  }
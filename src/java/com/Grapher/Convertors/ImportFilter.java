@@ -0,0 +1,213 @@
+package com.Grapher.Convertors;
+
+import com.Grapher.Utils.Params;
+
+// Java
+import java.util.Map;
+import java.util.Set;
+import java.util.List;
+import java.util.HashSet;
+import java.util.ArrayList;
+
+// Log4J
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/** <code>ImportFilter</code> decides which Vertices, Edges and attributes
+  * are kept while a {@link org.jgrapht.Graph} is being read, so dropped data are never created.
+  * It is configured from {@link Params}:
+  * <ul>
+  * <li><b>noedge</b>: no Edges are kept.</li>
+  * <li><b>labels</b>: only Vertices with one of the <tt>labelV</tt> values are kept.</li>
+  * <li><b>predicates</b>: Vertices and Edges having a predicate attribute are kept
+  *     only if its numerical value satisfies the predicate,
+  *     elements without that attribute are not constrained by it.</li>
+  * <li><b>attributes</b>: only listed attributes (and labels) are kept.</li>
+  * </ul>
+  * Predicates are evaluated before unlisted attributes are dropped.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class ImportFilter {
+
+  /** Create from {@link Params}.
+    * @param params The {@link Params} describing the filter. */
+  public ImportFilter(Params params) {
+    _edges = !params.noedge();
+    if (params.labels() != null) {
+      _labels = split(params.labels());
+      }
+    if (params.attributes() != null) {
+      _attributes = split(params.attributes());
+      _attributes.add(LABEL_V);
+      _attributes.add(LABEL_E);
+      }
+    if (params.predicates() != null) {
+      for (String predicate : params.predicates().split(",")) {
+        if (!predicate.trim().isEmpty()) {
+          _predicates.add(new Predicate(predicate.trim()));
+          }
+        }
+      }
+    }
+
+  /** Tell whether the filter keeps everything.
+    * @return Whether the filter keeps everything. */
+  public boolean isEmpty() {
+    return _edges && _labels == null && _attributes == null && _predicates.isEmpty();
+    }
+
+  /** Tell whether Edges are kept.
+    * @return Whether Edges are kept. */
+  public boolean edges() {
+    return _edges;
+    }
+
+  /** Tell whether the value of an attribute is needed,
+    * either to be kept or to evaluate the filter.
+    * @param name The name of the attribute.
+    * @return     Whether the attribute value is needed. */
+  public boolean needs(String name) {
+    if (keeps(name) || (_labels != null && name.equals(LABEL_V))) {
+      return true;
+      }
+    for (Predicate predicate : _predicates) {
+      if (predicate._name.equals(name)) {
+        return true;
+        }
+      }
+    return false;
+    }
+
+  /** Tell whether an attribute is kept.
+    * @param name The name of the attribute.
+    * @return     Whether the attribute is kept. */
+  public boolean keeps(String name) {
+    return _attributes == null || _attributes.contains(name);
+    }
+
+  /** Tell whether a Vertex is kept.
+    * @param values The needed attribute values of the Vertex.
+    * @return       Whether the Vertex is kept. */
+  public boolean acceptVertex(Map<String, String> values) {
+    if (_labels != null && !_labels.contains(values.get(LABEL_V))) {
+      return false;
+      }
+    return test(values);
+    }
+
+  /** Tell whether an Edge is kept.
+    * @param values The needed attribute values of the Edge.
+    * @return       Whether the Edge is kept. */
+  public boolean acceptEdge(Map<String, String> values) {
+    return _edges && test(values);
+    }
+
+  /** Evaluate all predicates.
+    * @param values The attribute values.
+    * @return       Whether all predicates are satisfied. */
+  private boolean test(Map<String, String> values) {
+    String value;
+    for (Predicate predicate : _predicates) {
+      value = values.get(predicate._name);
+      if (value != null && !predicate.test(value)) {
+        return false;
+        }
+      }
+    return true;
+    }
+
+  /** Split comma-separated names.
+    * @param names The comma-separated names.
+    * @return      The {@link Set} of names. */
+  private static Set<String> split(String names) {
+    Set<String> set = new HashSet<>();
+    for (String name : names.split(",")) {
+      if (!name.trim().isEmpty()) {
+        set.add(name.trim());
+        }
+      }
+    return set;
+    }
+
+  @Override
+  public String toString() {
+    return "edges=" + _edges + ", labels=" + _labels + ", predicates=" + _predicates + ", attributes=" + _attributes;
+    }
+
+  /** <code>Predicate</code> compares a numerical attribute with a constant. */
+  private static class Predicate {
+
+    /** Parse a predicate like <tt>magpsf&lt;19</tt>.
+      * @param predicate The predicate. */
+    Predicate(String predicate) {
+      for (String op : OPS) {
+        int i = predicate.indexOf(op);
+        if (i > 0) {
+          _name  = predicate.substring(0, i).trim();
+          _op    = op;
+          _value = Double.parseDouble(predicate.substring(i + op.length()).trim());
+          return;
+          }
+        }
+      throw new IllegalArgumentException("Cannot parse predicate " + predicate);
+      }
+
+    /** Evaluate the predicate.
+      * @param value The attribute value.
+      * @return      Whether the value satisfies the predicate,
+      *              <tt>false</tt> if it is not numerical. */
+    boolean test(String value) {
+      double x;
+      try {
+        x = Double.parseDouble(value);
+        }
+      catch (NumberFormatException e) {
+        return false;
+        }
+      switch (_op) {
+        case "<=":
+          return x <= _value;
+        case ">=":
+          return x >= _value;
+        case "==":
+          return x == _value;
+        case "!=":
+          return x != _value;
+        case "<":
+          return x < _value;
+        default:
+          return x > _value;
+        }
+      }
+
+    @Override
+    public String toString() {
+      return _name + _op + _value;
+      }
+
+    private String _name;
+
+    private String _op;
+
+    private double _value;
+
+    }
+
+  private boolean _edges;
+
+  private Set<String> _labels;
+
+  private Set<String> _attributes;
+
+  private List<Predicate> _predicates = new ArrayList<>();
+
+  /** The recognised operators, two-character ones first. */
+  private static final String[] OPS = {"<=", ">=", "==", "!=", "<", ">"};
+
+  private static final String LABEL_V = "labelV";
+
+  private static final String LABEL_E = "labelE";
+
+  /** Logging . */
+  private static Logger log = LogManager.getLogger(ImportFilter.class);
+
+  }
@@ -0,0 +1,284 @@
+package com.Grapher.Convertors;
+
+import com.Grapher.CustomGraph.CustomEdge;
+import com.Grapher.CustomGraph.CustomVertex;
+import com.Grapher.CustomGraph.ConcurrentGraphBuilder.Worker;
+
+// JGraphT
+import org.jgrapht.Graph;
+import org.jgrapht.nio.Attribute;
+import org.jgrapht.nio.ImportException;
+import org.jgrapht.nio.DefaultAttribute;
+
+// Java
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.LinkedHashMap;
+
+/** <code>JSONReader</code> reads {@link Graph}s in the <em>JSON</em> format in parallel,
+  * as written by {@link Convertor#writeJSON}:
+  * <pre>
+  * {"nodes":[{"id":"1","label":"..."},...],"edges":[{"source":"1","target":"2","weight":1.0},...]}
+  * </pre>
+  * Records are flat objects, with an <tt>id</tt> for nodes,
+  * a <tt>source</tt> and a <tt>target</tt> for edges.
+  * A record starts at <tt>{"</tt> following <tt>,</tt> or <tt>[</tt>
+  * and followed by a key, which can't happen inside a valid <em>JSON</em> string.
+  * Other members become {@link CustomVertex} or {@link CustomEdge} attributes,
+  * the edge <tt>weight</tt> becomes its weight.
+  * Members of other objects (like <tt>creator</tt>) are ignored.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class JSONReader extends ChunkedReader {
+
+  @Override
+  protected int boundary(ByteBuffer buffer,
+                         int        from) {
+    for (int i = from; i < buffer.limit() - 2; i++) {
+      if (buffer.get(i) == '{' && buffer.get(i + 1) == '"') {
+        byte previous = buffer.get(i - 1);
+        byte next     = buffer.get(i + 2);
+        if ((previous == ',' || previous == '[') && next != ',' && next != ':' && next != '}' && next != ']' && !whitespace(next)) {
+          return i;
+          }
+        }
+      }
+    return -1;
+    }
+
+  @Override
+  protected void parse(ByteBuffer chunk,
+                       long       offset,
+                       Worker     worker) throws ImportException {
+    Parser parser = new Parser(chunk, offset);
+    Map<String, Object> members = new LinkedHashMap<>();
+    while (parser._i < chunk.limit()) {
+      byte b = chunk.get(parser._i);
+      if (b == '{') {
+        if (parser.record(members)) {
+          insert(members, worker);
+          }
+        }
+      else if (b == '"') {
+        parser.string();
+        }
+      else {
+        parser._i++;
+        }
+      }
+    }
+
+  /** Insert one record.
+    * @param members The members of the record.
+    * @param worker  The {@link Worker} to insert elements. */
+  private void insert(Map<String, Object> members,
+                      Worker              worker) {
+    Object source = members.remove("source");
+    Object target = members.remove("target");
+    if (source != null && target != null) {
+      CustomEdge edge = worker.newEdge();
+      Object weight = members.remove("weight");
+      for (Map.Entry<String, Object> entry : members.entrySet()) {
+        if (entry.getValue() != null) {
+          edge.putAttribute(entry.getKey(), attribute(entry.getValue()));
+          }
+        }
+      worker.addEdge(vertex(source.toString(), worker),
+                     vertex(target.toString(), worker),
+                     edge,
+                     weight instanceof Number ? ((Number)weight).doubleValue() : Double.NaN);
+      return;
+      }
+    Object id = members.remove("id");
+    if (id != null) {
+      CustomVertex vertex = vertex(id.toString(), worker);
+      for (Map.Entry<String, Object> entry : members.entrySet()) {
+        if (entry.getValue() != null) {
+          vertex.putAttribute(entry.getKey(), attribute(entry.getValue()));
+          }
+        }
+      }
+    }
+
+  /** Create an {@link Attribute} of the type of a parsed value.
+    * @param value The parsed {@link String}, {@link Long}, {@link Double} or {@link Boolean} value.
+    * @return      The corresponding {@link Attribute}. */
+  private static Attribute attribute(Object value) {
+    if (value instanceof Long) {
+      return DefaultAttribute.createAttribute((Long)value);
+      }
+    if (value instanceof Double) {
+      return DefaultAttribute.createAttribute((Double)value);
+      }
+    if (value instanceof Boolean) {
+      return DefaultAttribute.createAttribute((Boolean)value);
+      }
+    return DefaultAttribute.createAttribute(value.toString());
+    }
+
+  /** Tell whether a byte is a <em>JSON</em> whitespace.
+    * @param b The byte.
+    * @return  Whether it is a whitespace. */
+  private static boolean whitespace(byte b) {
+    return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+  /** <code>Parser</code> parses flat objects from a chunk. */
+  private static class Parser {
+
+    Parser(ByteBuffer chunk,
+           long       offset) {
+      _chunk  = chunk;
+      _offset = offset;
+      }
+
+    /** Parse an object with scalar members.
+      * Stops at the first nested object or array, which is then parsed by the caller.
+      * @param members The {@link Map} to fill with members.
+      * @return        Whether the object has been parsed completely. */
+    boolean record(Map<String, Object> members) {
+      members.clear();
+      _i++;
+      while (true) {
+        skip();
+        byte b = get();
+        if (b == '}') {
+          _i++;
+          return true;
+          }
+        if (b == ',') {
+          _i++;
+          continue;
+          }
+        if (b != '"') {
+          throw error("Member name expected");
+          }
+        String name = string();
+        skip();
+        if (get() != ':') {
+          throw error("':' expected");
+          }
+        _i++;
+        skip();
+        b = get();
+        if (b == '{' || b == '[') {
+          return false;
+          }
+        members.put(name, value());
+        }
+      }
+
+    /** Parse a scalar value.
+      * @return The {@link String}, {@link Long}, {@link Double}, {@link Boolean} value or <tt>null</tt>. */
+    Object value() {
+      if (get() == '"') {
+        return string();
+        }
+      int from = _i;
+      while (_i < _chunk.limit() && "ntrufalse0123456789+-.eE".indexOf(_chunk.get(_i)) >= 0) {
+        _i++;
+        }
+      String token = new String(bytes(from, _i), StandardCharsets.US_ASCII);
+      switch (token) {
+        case "null":
+          return null;
+        case "true":
+          return Boolean.TRUE;
+        case "false":
+          return Boolean.FALSE;
+        default:
+          try {
+            if (token.indexOf('.') < 0 && token.indexOf('e') < 0 && token.indexOf('E') < 0) {
+              return Long.valueOf(token);
+              }
+            return Double.valueOf(token);
+            }
+          catch (NumberFormatException e) {
+            throw error("Wrong value " + token);
+            }
+        }
+      }
+
+    /** Parse a string, starting at its quote.
+      * @return The unescaped {@link String}. */
+    String string() {
+      int from = ++_i;
+      boolean escaped = false;
+      while (get() != '"') {
+        if (get() == '\\') {
+          escaped = true;
+          _i++;
+          }
+        _i++;
+        }
+      byte[] bytes = bytes(from, _i++);
+      String s = new String(bytes, StandardCharsets.UTF_8);
+      return escaped ? unescape(s) : s;
+      }
+
+    /** Replace escape sequences.
+      * @param s The {@link String} with escape sequences.
+      * @return  The {@link String} without escape sequences. */
+    private String unescape(String s) {
+      StringBuilder sb = new StringBuilder(s.length());
+      for (int i = 0; i < s.length(); i++) {
+        char c = s.charAt(i);
+        if (c != '\\' || i + 1 == s.length()) {
+          sb.append(c);
+          continue;
+          }
+        c = s.charAt(++i);
+        switch (c) {
+          case 'b': sb.append('\b'); break;
+          case 'f': sb.append('\f'); break;
+          case 'n': sb.append('\n'); break;
+          case 'r': sb.append('\r'); break;
+          case 't': sb.append('\t'); break;
+          case 'u':
+            if (i + 4 >= s.length()) {
+              throw error("Wrong escape sequence");
+              }
+            sb.append((char)Integer.parseInt(s.substring(i + 1, i + 5), 16));
+            i += 4;
+            break;
+          default: sb.append(c);
+          }
+        }
+      return sb.toString();
+      }
+
+    private void skip() {
+      while (_i < _chunk.limit() && whitespace(_chunk.get(_i))) {
+        _i++;
+        }
+      }
+
+    private byte get() {
+      if (_i >= _chunk.limit()) {
+        throw error("Unexpected end");
+        }
+      return _chunk.get(_i);
+      }
+
+    private byte[] bytes(int from,
+                         int to) {
+      byte[] bytes = new byte[to - from];
+      for (int i = 0; i < bytes.length; i++) {
+        bytes[i] = _chunk.get(from + i);
+        }
+      return bytes;
+      }
+
+    private ImportException error(String message) {
+      return new ImportException(message + " at " + (_offset + _i));
+      }
+
+    private ByteBuffer _chunk;
+
+    private long _offset;
+
+    private int _i;
+
+    }
+
+  }
@@ -0,0 +1,338 @@
+package com.Grapher.Convertors;
+
+import com.Grapher.CustomGraph.CustomEdge;
+import com.Grapher.CustomGraph.CustomVertex;
+import com.Grapher.CustomGraph.AttributeSchema.Slot;
+import com.Grapher.CustomGraph.AttributeSchema.Kind;
+
+// JGraphT
+import org.jgrapht.Graph;
+import org.jgrapht.Graphs;
+
+// Java
+import java.io.IOException;
+import java.io.BufferedOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+import java.util.List;
+import java.util.HashMap;
+import java.util.TreeSet;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// Log4J
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/** <code>NpzConvertor</code> writes {@link Graph}s as <em>NumPy</em> archives (<tt>.npz</tt>),
+  * so they can be loaded into <em>Python</em> without parsing text.
+  * The archive contains little-endian <tt>.npy</tt> arrays, all in the same {@link CustomVertex} order:
+  * <ul>
+  * <li><b>features</b>: numerical {@link CustomVertex} attributes, <code>float64</code> (or <code>float32</code>) <tt>[n, c]</tt>,
+  *     <tt>NaN</tt> if missing.</li>
+  * <li><b>columns</b>: names of the feature columns, <tt>[c]</tt>.</li>
+  * <li><b>ids</b>: {@link CustomVertex} ids, <code>int64</code> <tt>[n]</tt>.</li>
+  * <li><b>labels</b>: {@link CustomVertex} labels, <tt>[n]</tt>.</li>
+  * <li><b>indptr</b>, <b>indices</b>, <b>weights</b>: the adjacency in the <em>CSR</em> layout,
+  *     <code>int64</code> <tt>[n + 1]</tt>, <code>int32</code> <tt>[nnz]</tt> and <code>float64</code> (or <code>float32</code>) <tt>[nnz]</tt>.
+  *     Undirected edges are given in both rows, self-loops once.</li>
+  * <li><b>directed</b>: whether the {@link Graph} is directed, <code>bool</code> scalar.</li>
+  * </ul>
+  * The adjacency is read in <em>Python</em> by
+  * <code>scipy.sparse.csr_matrix((z["weights"], z["indices"], z["indptr"]))</code>.
+  * Arrays are streamed into uncompressed <tt>STORED</tt> entries (as by <code>numpy.savez</code>),
+  * so they can be memory-mapped.
+  * Apart from the {@link CustomVertex} array and its index, nothing of size of the {@link Graph} is allocated.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class NpzConvertor {
+
+  /** Create with <code>float64</code> features and weights. */
+  public NpzConvertor() {
+    this(false);
+    }
+
+  /** Create.
+    * @param single Whether to write features and weights as <code>float32</code>. */
+  public NpzConvertor(boolean single) {
+    _single = single;
+    }
+
+  /** Write {@link Graph} as an archive.
+    * @param graph The {@link Graph} to be written out.
+    * @param file  The archive file name.
+    * @throws IOException If the file cannot be written. */
+  public void write(Graph<CustomVertex, CustomEdge> graph,
+                    String                          file) throws IOException {
+    CustomVertex[] vertexes = graph.vertexSet().toArray(new CustomVertex[0]);
+    int n = vertexes.length;
+    Map<CustomVertex, Integer> index = new HashMap<>(2 * n);
+    for (int i = 0; i < n; i++) {
+      index.put(vertexes[i], i);
+      }
+    // only attributes present on this graph, ordered by name
+    Set<String> used = new TreeSet<>();
+    for (Slot slot : CustomVertex.schema().slots()) {
+      if (slot.kind() != Kind.STRING) {
+        for (CustomVertex v : vertexes) {
+          if (v.hasAttribute(slot.name())) {
+            used.add(slot.name());
+            break;
+            }
+          }
+        }
+      }
+    List<String> columns = new ArrayList<>(used);
+    int c = columns.size();
+    String real = _single ? "<f4" : "<f8";
+    long nnz = 0;
+    int width = 1;
+    for (CustomVertex v : vertexes) {
+      nnz += graph.outgoingEdgesOf(v).size();
+      if (v.getLbl() != null) {
+        width = Math.max(width, v.getLbl().codePointCount(0, v.getLbl().length()));
+        }
+      }
+    try (Output out = new Output(file)) {
+      // features
+      out.array("features", real, o -> {
+        double value;
+        for (CustomVertex v : vertexes) {
+          for (String column : columns) {
+            try {
+              value = v.getNumber(column);
+              }
+            catch (NumberFormatException e) {
+              value = Double.NaN;
+              }
+            o.putReal(value);
+            }
+          }
+        }, n, c);
+      // index
+      out.array("columns", unicode(columns), o -> {
+        for (String column : columns) {
+          o.putString(column);
+          }
+        }, c);
+      out.array("ids", "<i8", o -> {
+        for (CustomVertex v : vertexes) {
+          o.putLong(v.getId());
+          }
+        }, n);
+      out.array("labels", "<U" + width, o -> {
+        for (CustomVertex v : vertexes) {
+          o.putString(v.getLbl());
+          }
+        }, n);
+      // adjacency
+      out.array("indptr", "<i8", o -> {
+        long k = 0;
+        o.putLong(k);
+        for (CustomVertex v : vertexes) {
+          k += graph.outgoingEdgesOf(v).size();
+          o.putLong(k);
+          }
+        }, n + 1);
+      out.array("indices", "<i4", o -> {
+        for (CustomVertex v : vertexes) {
+          for (CustomEdge e : graph.outgoingEdgesOf(v)) {
+            o.putInt(index.get(Graphs.getOppositeVertex(graph, e, v)));
+            }
+          }
+        }, nnz);
+      out.array("weights", real, o -> {
+        for (CustomVertex v : vertexes) {
+          for (CustomEdge e : graph.outgoingEdgesOf(v)) {
+            o.putReal(graph.getEdgeWeight(e));
+            }
+          }
+        }, nnz);
+      out.array("directed", "|b1", o -> o.putBoolean(graph.getType().isDirected()));
+      }
+    log.info("Written graph: " + graph.getType() + "[" + n + " x " + c + ", " + nnz + "] to " + file);
+    }
+
+  /** Give the <em>NumPy</em> type of fixed-width unicode strings, wide enough for all values.
+    * @param values The {@link String}s.
+    * @return       The <em>NumPy</em> type descriptor. */
+  private static String unicode(List<String> values) {
+    int width = 1;
+    for (String value : values) {
+      if (value != null) {
+        width = Math.max(width, value.codePointCount(0, value.length()));
+        }
+      }
+    return "<U" + width;
+    }
+
+  /** <code>Body</code> writes the content of one array. */
+  private interface Body {
+
+    /** Write the content.
+      * @param out The {@link Output} to write to. */
+    void write(Output out) throws IOException;
+
+    }
+
+  /** <code>Output</code> streams <tt>.npy</tt> arrays into a zip archive.
+    * Each array is streamed twice, first to compute its <tt>CRC</tt> and size,
+    * then into a <tt>STORED</tt> entry. */
+  private class Output implements AutoCloseable {
+
+    Output(String file) throws IOException {
+      _zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(file)), BUFFER));
+      }
+
+    /** Write an array.
+      * @param name  The array name.
+      * @param descr The <em>NumPy</em> type descriptor.
+      * @param body  The {@link Body} writing the array content.
+      * @param shape The array shape. */
+    void array(String    name,
+               String    descr,
+               Body      body,
+               long...   shape) throws IOException {
+      _crc = new CRC32();
+      _size = 0;
+      header(descr, shape);
+      body.write(this);
+      flush();
+      ZipEntry entry = new ZipEntry(name + ".npy");
+      entry.setMethod(ZipEntry.STORED);
+      entry.setSize(_size);
+      entry.setCompressedSize(_size);
+      entry.setCrc(_crc.getValue());
+      _crc = null;
+      _zip.putNextEntry(entry);
+      header(descr, shape);
+      body.write(this);
+      flush();
+      _zip.closeEntry();
+      }
+
+    /** Write the <tt>.npy</tt> header.
+      * @param descr The <em>NumPy</em> type descriptor.
+      * @param shape The array shape. */
+    private void header(String  descr,
+                        long... shape) {
+      StringBuilder header = new StringBuilder();
+      header.append("{'descr': '").append(descr).append("', 'fortran_order': False, 'shape': (");
+      for (long dim : shape) {
+        header.append(dim).append(", ");
+        }
+      if (shape.length > 1) {
+        header.setLength(header.length() - 2);
+        }
+      else if (shape.length == 1) {
+        header.setLength(header.length() - 1);
+        }
+      header.append("), }");
+      // magic, version and length take 10 bytes, the header ends by a newline, all padded to 64 bytes
+      while ((10 + header.length() + 1) % 64 != 0) {
+        header.append(' ');
+        }
+      header.append('\n');
+      _buffer.put(MAGIC);
+      _buffer.put((byte)1);
+      _buffer.put((byte)0);
+      _buffer.putShort((short)header.length());
+      _buffer.put(header.toString().getBytes(StandardCharsets.US_ASCII));
+      _width = descr.startsWith("<U") ? Integer.parseInt(descr.substring(2)) : 0;
+      }
+
+    void putBoolean(boolean value) throws IOException {
+      ensure(1);
+      _buffer.put((byte)(value ? 1 : 0));
+      }
+
+    void putInt(int value) throws IOException {
+      ensure(Integer.BYTES);
+      _buffer.putInt(value);
+      }
+
+    void putLong(long value) throws IOException {
+      ensure(Long.BYTES);
+      _buffer.putLong(value);
+      }
+
+    /** Put a real number, in the requested precision. */
+    void putReal(double value) throws IOException {
+      if (_single) {
+        ensure(Float.BYTES);
+        _buffer.putFloat((float)value);
+        }
+      else {
+        ensure(Double.BYTES);
+        _buffer.putDouble(value);
+        }
+      }
+
+    /** Put a {@link String} as the zero-padded <tt>UTF-32</tt> code points of the current width. */
+    void putString(String value) throws IOException {
+      int k = 0;
+      if (value != null) {
+        for (int i = 0; i < value.length(); i += Character.charCount(value.codePointAt(i))) {
+          ensure(Integer.BYTES);
+          _buffer.putInt(value.codePointAt(i));
+          k++;
+          }
+        }
+      for (; k < _width; k++) {
+        ensure(Integer.BYTES);
+        _buffer.putInt(0);
+        }
+      }
+
+    /** Make space for some bytes in the buffer. */
+    private void ensure(int bytes) throws IOException {
+      if (_buffer.remaining() < bytes) {
+        flush();
+        }
+      }
+
+    /** Write the buffer into the current entry, or only account for it while the entry is being measured. */
+    private void flush() throws IOException {
+      if (_crc != null) {
+        _crc.update(_buffer.array(), 0, _buffer.position());
+        _size += _buffer.position();
+        }
+      else {
+        _zip.write(_buffer.array(), 0, _buffer.position());
+        }
+      _buffer.clear();
+      }
+
+    @Override
+    public void close() throws IOException {
+      _zip.close();
+      }
+
+    private ZipOutputStream _zip;
+
+    private ByteBuffer _buffer = ByteBuffer.allocate(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+
+    private int _width;
+
+    private CRC32 _crc;
+
+    private long _size;
+
+    }
+
+  private boolean _single;
+
+  private static final byte[] MAGIC = {(byte)0x93, 'N', 'U', 'M', 'P', 'Y'};
+
+  private static final int BUFFER = 1 << 16;
+
+  /** Logging . */
+  private static Logger log = LogManager.getLogger(NpzConvertor.class);
+
+  }
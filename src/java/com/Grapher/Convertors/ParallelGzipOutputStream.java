@@ -0,0 +1,168 @@
+package com.Grapher.Convertors;
+
+// Java
+import java.io.OutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Deque;
+import java.util.ArrayDeque;
+import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.Future;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+
+// Log4J
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/** <code>ParallelGzipOutputStream</code> compresses blocks in parallel (like <em>pigz</em>).
+  * Data are cut into fixed size blocks, each block is compressed
+  * into a complete <em>gzip</em> member by a pool of threads,
+  * members are written in order. The result is a valid multi-member
+  * <em>gzip</em> file, readable by <tt>gunzip</tt> and {@link java.util.zip.GZIPInputStream}.
+  * At most two blocks per thread are kept in memory.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class ParallelGzipOutputStream extends OutputStream {
+
+  /** Create with default block size, using all available processors.
+    * @param out The {@link OutputStream} to write compressed data to. */
+  public ParallelGzipOutputStream(OutputStream out) {
+    this(out, DEFAULT_BLOCK, Runtime.getRuntime().availableProcessors());
+    }
+
+  /** Create.
+    * @param out       The {@link OutputStream} to write compressed data to.
+    * @param blockSize The size of independently compressed blocks.
+    * @param threads   The number of compressing threads. */
+  public ParallelGzipOutputStream(OutputStream out,
+                                  int          blockSize,
+                                  int          threads) {
+    _out      = out;
+    _block    = new byte[blockSize];
+    _threads  = Math.max(1, threads);
+    _executor = Executors.newFixedThreadPool(_threads, r -> {
+      Thread t = new Thread(r, "ParallelGzip");
+      t.setDaemon(true);
+      return t;
+      });
+    }
+
+  @Override
+  public void write(int b) throws IOException {
+    if (_size == _block.length) {
+      submit();
+      }
+    _block[_size++] = (byte)b;
+    }
+
+  @Override
+  public void write(byte[] b,
+                    int    off,
+                    int    len) throws IOException {
+    int n;
+    while (len > 0) {
+      if (_size == _block.length) {
+        submit();
+        }
+      n = Math.min(len, _block.length - _size);
+      System.arraycopy(b, off, _block, _size, n);
+      _size += n;
+      off   += n;
+      len   -= n;
+      }
+    }
+
+  /** Compress the buffered data and write all finished blocks.
+    * Each flush ends a <em>gzip</em> member. */
+  @Override
+  public void flush() throws IOException {
+    if (_size > 0) {
+      submit();
+      }
+    while (!_pending.isEmpty()) {
+      drain();
+      }
+    _out.flush();
+    }
+
+  @Override
+  public void close() throws IOException {
+    if (_closed) {
+      return;
+      }
+    _closed = true;
+    try {
+      flush();
+      }
+    finally {
+      _executor.shutdownNow();
+      _out.close();
+      }
+    }
+
+  /** Hand the current block over for compression,
+    * write the oldest compressed block if too many are pending. */
+  private void submit() throws IOException {
+    byte[] block = _block;
+    int    size  = _size;
+    _pending.addLast(_executor.submit(() -> compress(block, size)));
+    _block = new byte[block.length];
+    _size  = 0;
+    while (_pending.size() > 2 * _threads) {
+      drain();
+      }
+    }
+
+  /** Write the oldest compressed block. */
+  private void drain() throws IOException {
+    try {
+      _pending.removeFirst().get().writeTo(_out);
+      }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while compressing", e);
+      }
+    catch (ExecutionException e) {
+      throw new IOException("Cannot compress", e.getCause());
+      }
+    }
+
+  /** Compress one block into a <em>gzip</em> member.
+    * @param block The data.
+    * @param size  The size of data.
+    * @return      The compressed member. */
+  private static ByteArrayOutputStream compress(byte[] block,
+                                                int    size) {
+    ByteArrayOutputStream os = new ByteArrayOutputStream(size / 4 + 64);
+    try (GZIPOutputStream gz = new GZIPOutputStream(os, 1 << 16)) {
+      gz.write(block, 0, size);
+      }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+      }
+    return os;
+    }
+
+  private OutputStream _out;
+
+  private byte[] _block;
+
+  private int _size = 0;
+
+  private int _threads;
+
+  private ExecutorService _executor;
+
+  private Deque<Future<ByteArrayOutputStream>> _pending = new ArrayDeque<>();
+
+  private boolean _closed = false;
+
+  /** The default block size. */
+  private static final int DEFAULT_BLOCK = 1 << 20;
+
+  /** Logging . */
+  private static Logger log = LogManager.getLogger(ParallelGzipOutputStream.class);
+
+  }
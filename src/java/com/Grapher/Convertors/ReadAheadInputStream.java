@@ -0,0 +1,163 @@
+package com.Grapher.Convertors;
+
+// Java
+import java.io.InputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+
+// Log4J
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/** <code>ReadAheadInputStream</code> reads (and decompresses) an {@link InputStream}
+  * on a separate thread, so reading overlaps with parsing.
+  * Chunks are handed over through a bounded queue,
+  * exceptions of the reading thread are rethrown to the reader.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class ReadAheadInputStream extends InputStream {
+
+  /** Create with default chunk size and queue length and start reading.
+    * @param in The {@link InputStream} to read from. */
+  public ReadAheadInputStream(InputStream in) {
+    this(in, DEFAULT_CHUNK, DEFAULT_CHUNKS);
+    }
+
+  /** Create and start reading.
+    * @param in        The {@link InputStream} to read from.
+    * @param chunkSize The size of chunks read at once.
+    * @param chunks    The number of chunks read ahead. */
+  public ReadAheadInputStream(InputStream in,
+                              int         chunkSize,
+                              int         chunks) {
+    _in     = in;
+    _queue  = new ArrayBlockingQueue<>(chunks);
+    _reader = new Thread(() -> readAhead(chunkSize), "ReadAhead");
+    _reader.setDaemon(true);
+    _reader.start();
+    }
+
+  @Override
+  public int read() throws IOException {
+    if (!fill()) {
+      return -1;
+      }
+    return _chunk[_pos++] & 0xff;
+    }
+
+  @Override
+  public int read(byte[] b,
+                  int    off,
+                  int    len) throws IOException {
+    if (len == 0) {
+      return 0;
+      }
+    if (!fill()) {
+      return -1;
+      }
+    int n = Math.min(len, _chunk.length - _pos);
+    System.arraycopy(_chunk, _pos, b, off, n);
+    _pos += n;
+    return n;
+    }
+
+  @Override
+  public int available() {
+    return _chunk == null ? 0 : _chunk.length - _pos;
+    }
+
+  @Override
+  public void close() throws IOException {
+    _closed = true;
+    _reader.interrupt();
+    _in.close();
+    }
+
+  /** Make the current chunk non-empty.
+    * @return Whether there are more data. */
+  private boolean fill() throws IOException {
+    while (_chunk == null || _pos == _chunk.length) {
+      if (_chunk == END) {
+        return false;
+        }
+      try {
+        _chunk = _queue.take();
+        }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while reading", e);
+        }
+      _pos = 0;
+      if (_chunk == END) {
+        if (_failure != null) {
+          throw new IOException("Cannot read", _failure);
+          }
+        return false;
+        }
+      }
+    return true;
+    }
+
+  /** Read chunks until the end of the {@link InputStream}.
+    * @param chunkSize The size of chunks. */
+  private void readAhead(int chunkSize) {
+    byte[] chunk;
+    int    size;
+    int    n;
+    try {
+      do {
+        chunk = new byte[chunkSize];
+        size  = 0;
+        while (size < chunkSize && (n = _in.read(chunk, size, chunkSize - size)) > 0) {
+          size += n;
+          }
+        if (size > 0) {
+          _queue.put(size == chunkSize ? chunk : Arrays.copyOf(chunk, size));
+          }
+        } while (size == chunkSize);
+      }
+    catch (InterruptedException e) {
+      return;
+      }
+    catch (IOException | RuntimeException e) {
+      if (!_closed) {
+        log.debug("Reading failed", e);
+        _failure = e;
+        }
+      }
+    try {
+      _queue.put(END);
+      }
+    catch (InterruptedException e) {
+      log.debug("Interrupted before the end");
+      }
+    }
+
+  private InputStream _in;
+
+  private BlockingQueue<byte[]> _queue;
+
+  private Thread _reader;
+
+  private byte[] _chunk;
+
+  private int _pos = 0;
+
+  private volatile Exception _failure;
+
+  private volatile boolean _closed = false;
+
+  /** The end of data. */
+  private static final byte[] END = new byte[0];
+
+  /** The default chunk size. */
+  private static final int DEFAULT_CHUNK = 1 << 16;
+
+  /** The default number of chunks read ahead. */
+  private static final int DEFAULT_CHUNKS = 16;
+
+  /** Logging . */
+  private static Logger log = LogManager.getLogger(ReadAheadInputStream.class);
+
+  }
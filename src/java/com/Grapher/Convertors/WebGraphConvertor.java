@@ -0,0 +1,570 @@
+package com.Grapher.Convertors;
+
+import com.Grapher.CustomGraph.CustomEdge;
+import com.Grapher.CustomGraph.CustomVertex;
+import com.Grapher.CustomGraph.CustomVertexSupplier;
+import com.Grapher.CustomGraph.FrozenGraph;
+import com.Grapher.CustomGraph.MappedGraph;
+import com.Grapher.CustomGraph.AttributeSchema;
+
+// JGraphT
+import org.jgrapht.Graph;
+import org.jgrapht.graph.builder.GraphTypeBuilder;
+import org.jgrapht.nio.Attribute;
+import org.jgrapht.nio.AttributeType;
+import org.jgrapht.nio.DefaultAttribute;
+import org.jgrapht.webgraph.ImmutableDirectedGraphAdapter;
+import org.jgrapht.webgraph.ImmutableUndirectedGraphAdapter;
+
+// WebGraph
+import it.unimi.dsi.webgraph.BVGraph;
+import it.unimi.dsi.webgraph.ImmutableGraph;
+import it.unimi.dsi.webgraph.LazyIntIterator;
+import it.unimi.dsi.webgraph.LazyIntIterators;
+
+// Java
+import java.io.Reader;
+import java.io.Writer;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Map;
+import java.util.List;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Properties;
+
+// Log4J
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/** <code>WebGraphConvertor</code> reads and writes {@link Graph}s
+  * in the <em>WebGraph</em> <em>BV</em> compressed format.
+  * The topology is kept in <tt>basename.graph</tt>, <tt>basename.offsets</tt>
+  * and <tt>basename.properties</tt>, directed {@link Graph}s also store their transpose
+  * as <tt>basename-t</tt>, undirected {@link Graph}s are stored symmetric.
+  * Side files keep everything else:
+  * <ul>
+  * <li><tt>basename.vertices</tt>: {@link CustomVertex} ids and attributes, one line per vertex, in the node order.</li>
+  * <li><tt>basename.edges</tt>: {@link CustomEdge} ids, weights and attributes, one line per edge, in the arc order
+  *     (for undirected {@link Graph}s only arcs with <tt>source &lt;= target</tt>).</li>
+  * <li><tt>basename.grapher</tt>: the {@link Graph} type.</li>
+  * </ul>
+  * Side files are tab-separated with a header of <tt>name:TYPE</tt> columns,
+  * missing values are written as <tt>\N</tt>.
+  * The <em>BV</em> format has no multiple edges, only the first of parallel {@link CustomEdge}s is written.
+  * The stored {@link Graph} can be either read completely into heap
+  * or memory-mapped as a {@link FrozenGraph} for read-only analyses.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class WebGraphConvertor {
+
+  /** Write {@link Graph} in the <em>BV</em> format with side files.
+    * @param graph    The {@link Graph} to be written out.
+    * @param basename The basename of written files.
+    * @throws IOException If files cannot be written. */
+  public void write(Graph<CustomVertex, CustomEdge> graph,
+                    String                          basename) throws IOException {
+    boolean directed = graph.getType().isDirected();
+    CustomVertex[] vertexes = graph.vertexSet().toArray(new CustomVertex[0]);
+    int n = vertexes.length;
+    Map<CustomVertex, Integer> index = new HashMap<>(2 * n);
+    for (int i = 0; i < n; i++) {
+      index.put(vertexes[i], i);
+      }
+    // arcs as (source, target, edge) sorted by source and target
+    int m = graph.edgeSet().size();
+    long[]       arcs  = new long[directed ? m : 2 * m];
+    CustomEdge[] edges = graph.edgeSet().toArray(new CustomEdge[0]);
+    int a = 0;
+    int s;
+    int t;
+    for (int e = 0; e < m; e++) {
+      s = index.get(graph.getEdgeSource(edges[e]));
+      t = index.get(graph.getEdgeTarget(edges[e]));
+      arcs[a++] = arc(s, t);
+      if (!directed && s != t) {
+        arcs[a++] = arc(t, s);
+        }
+      }
+    arcs = Arrays.copyOf(arcs, a);
+    Map<Long, CustomEdge> arcEdges = new HashMap<>(2 * m);
+    int parallel = 0;
+    for (CustomEdge e : edges) {
+      s = index.get(graph.getEdgeSource(e));
+      t = index.get(graph.getEdgeTarget(e));
+      if (arcEdges.putIfAbsent(directed ? arc(s, t) : arc(Math.min(s, t), Math.max(s, t)), e) != null) {
+        parallel++;
+        }
+      }
+    if (parallel > 0) {
+      log.warn(parallel + " parallel Edges not written");
+      }
+    Arrays.sort(arcs);
+    arcs = Arrays.stream(arcs).distinct().toArray();
+    log.info("Writing graph: " + graph.getType() + "[" + n + ", " + arcEdges.size() + "] to " + basename);
+    BVGraph.store(new ArcGraph(n, arcs), basename);
+    if (directed) {
+      long[] transposed = new long[arcs.length];
+      for (int i = 0; i < arcs.length; i++) {
+        transposed[i] = arc((int)arcs[i], (int)(arcs[i] >>> 32));
+        }
+      Arrays.sort(transposed);
+      BVGraph.store(new ArcGraph(n, transposed), basename + "-t");
+      }
+    // vertices
+    Map<String, AttributeType> vertexTypes = new LinkedHashMap<>(CustomVertex.attributesReg());
+    try (Writer writer = new BufferedWriter(new FileWriter(basename + VERTICES))) {
+      writer.write(header("id", vertexTypes));
+      for (CustomVertex v : vertexes) {
+        writer.write(line(String.valueOf(v.getId()), v.getAttributes(), vertexTypes));
+        }
+      }
+    // edges
+    Map<String, AttributeType> edgeTypes = new LinkedHashMap<>();
+    edgeTypes.put(WEIGHT, AttributeType.DOUBLE);
+    edgeTypes.putAll(CustomEdge.attributesReg());
+    Map<String, Attribute> attributes;
+    CustomEdge e;
+    try (Writer writer = new BufferedWriter(new FileWriter(basename + EDGES))) {
+      writer.write(header("id", edgeTypes));
+      for (long arc : arcs) {
+        s = (int)(arc >>> 32);
+        t = (int)arc;
+        if (directed || s <= t) {
+          e = arcEdges.get(arc);
+          attributes = new LinkedHashMap<>(e.getAttributes());
+          attributes.put(WEIGHT, DefaultAttribute.createAttribute(graph.getEdgeWeight(e)));
+          writer.write(line(String.valueOf(e.getId()), attributes, edgeTypes));
+          }
+        }
+      }
+    // type
+    Properties properties = new Properties();
+    properties.setProperty("directed", String.valueOf(directed));
+    properties.setProperty("weighted", String.valueOf(graph.getType().isWeighted()));
+    properties.setProperty("selfLoops", String.valueOf(graph.getType().isAllowingSelfLoops()));
+    properties.setProperty("vertices", String.valueOf(n));
+    properties.setProperty("edges", String.valueOf(arcEdges.size()));
+    try (Writer writer = new FileWriter(basename + GRAPHER)) {
+      properties.store(writer, "Grapher WebGraph side file");
+      }
+    }
+
+  /** Read {@link Graph} from the <em>BV</em> format with side files into heap.
+    * @param basename The basename of files.
+    * @return         The read {@link Graph}.
+    * @throws IOException If files cannot be read. */
+  public Graph<CustomVertex, CustomEdge> read(String basename) throws IOException {
+    Properties properties = properties(basename);
+    boolean directed = Boolean.parseBoolean(properties.getProperty("directed"));
+    boolean weighted = Boolean.parseBoolean(properties.getProperty("weighted"));
+    Graph<CustomVertex, CustomEdge> g = (directed ? GraphTypeBuilder.<CustomVertex, CustomEdge>directed()
+                                                  : GraphTypeBuilder.<CustomVertex, CustomEdge>undirected())
+                                        .allowingMultipleEdges(false)
+                                        .allowingSelfLoops(Boolean.parseBoolean(properties.getProperty("selfLoops", "true")))
+                                        .weighted(weighted)
+                                        .vertexSupplier(new CustomVertexSupplier())
+                                        .vertexClass(CustomVertex.class)
+                                        .edgeClass(CustomEdge.class)
+                                        .buildGraph();
+    ImmutableGraph bv = BVGraph.load(basename);
+    CustomVertex[] vertexes = new CustomVertex[bv.numNodes()];
+    try (BufferedReader reader = new BufferedReader(new FileReader(basename + VERTICES))) {
+      Column[] columns = columns(reader.readLine());
+      String[] values;
+      for (int i = 0; i < vertexes.length; i++) {
+        values = split(reader.readLine());
+        vertexes[i] = new CustomVertex(Long.parseLong(values[0]));
+        for (int c = 1; c < columns.length; c++) {
+          if (values[c] != null) {
+            vertexes[i].putAttribute(columns[c]._name, new DefaultAttribute<>(values[c], columns[c]._type));
+            }
+          }
+        g.addVertex(vertexes[i]);
+        }
+      }
+    try (BufferedReader reader = new BufferedReader(new FileReader(basename + EDGES))) {
+      Column[] columns = columns(reader.readLine());
+      String[] values;
+      CustomEdge e;
+      LazyIntIterator successors;
+      int t;
+      for (int s = 0; s < vertexes.length; s++) {
+        successors = bv.successors(s);
+        while ((t = successors.nextInt()) != -1) {
+          if (!directed && t < s) {
+            continue;
+            }
+          values = split(reader.readLine());
+          e = new CustomEdge(Long.parseLong(values[0]));
+          for (int c = 1; c < columns.length; c++) {
+            if (values[c] != null && !columns[c]._name.equals(WEIGHT)) {
+              e.putAttribute(columns[c]._name, new DefaultAttribute<>(values[c], columns[c]._type));
+              }
+            }
+          g.addEdge(vertexes[s], vertexes[t], e);
+          if (weighted && values[1] != null) {
+            g.setEdgeWeight(e, Double.parseDouble(values[1]));
+            }
+          }
+        }
+      }
+    log.info("Imported graph: " + g.getType() + "[" + g.vertexSet().size() + ", " + g.edgeSet().size() + "] from " + basename);
+    return g;
+    }
+
+  /** Memory-map {@link Graph} stored in the <em>BV</em> format as a {@link FrozenGraph}.
+    * Only {@link CustomVertex} ids and labels are read into heap,
+    * {@link CustomEdge} attributes are not available and all edges have weight <tt>1</tt>.
+    * @param basename The basename of files.
+    * @return         The memory-mapped {@link FrozenGraph}.
+    * @throws IOException If files cannot be read. */
+  public FrozenGraph<?> freeze(String basename) throws IOException {
+    Properties properties = properties(basename);
+    boolean directed = Boolean.parseBoolean(properties.getProperty("directed"));
+    ImmutableGraph bv = BVGraph.loadMapped(basename);
+    int n = bv.numNodes();
+    long[] ids        = new long[n];
+    int[]  labelCodes = new int[n];
+    Map<String, Integer> codes  = new HashMap<>();
+    List<String>         labels = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new FileReader(basename + VERTICES))) {
+      Column[] columns = columns(reader.readLine());
+      int labelColumn = -1;
+      for (int c = 0; c < columns.length; c++) {
+        if (columns[c]._name.equals("labelV")) {
+          labelColumn = c;
+          }
+        }
+      String[] values;
+      String label;
+      for (int i = 0; i < n; i++) {
+        values = split(reader.readLine());
+        ids[i] = Long.parseLong(values[0]);
+        label = labelColumn < 0 || values[labelColumn] == null ? "" : values[labelColumn];
+        labelCodes[i] = codes.computeIfAbsent(label, k -> {labels.add(k); return labels.size() - 1;});
+        }
+      }
+    log.info("Mapped graph: " + (directed ? "directed" : "undirected") + "[" + n + ", " + properties.getProperty("edges") + "] from " + basename);
+    if (directed) {
+      return new FrozenGraph<>(new ImmutableDirectedGraphAdapter(bv, BVGraph.loadMapped(basename + "-t")), ids, labelCodes, labels.toArray(new String[0]), false);
+      }
+    return new FrozenGraph<>(new ImmutableUndirectedGraphAdapter(bv), ids, labelCodes, labels.toArray(new String[0]), false);
+    }
+
+  /** Convert {@link Graph} stored in the <em>BV</em> format into a {@link MappedGraph} file,
+    * without reading it into heap.
+    * Only two <code>long</code>s per vertex are kept in heap,
+    * the <em>BV</em> graph and side files are streamed.
+    * Numerical {@link CustomVertex} attributes are stored as columns.
+    * @param basename The basename of <em>BV</em> files.
+    * @param file     The <tt>.csr</tt> file name.
+    * @throws IOException If files cannot be read or written. */
+  public void map(String basename,
+                  String file) throws IOException {
+    Properties properties = properties(basename);
+    boolean directed = Boolean.parseBoolean(properties.getProperty("directed"));
+    boolean weighted = Boolean.parseBoolean(properties.getProperty("weighted"));
+    ImmutableGraph bv = BVGraph.loadMapped(basename);
+    int n = bv.numNodes();
+    // count edges, for undirected graphs only arcs with source <= target
+    long[] inOffsets = new long[n + 1];
+    long m = 0;
+    LazyIntIterator successors;
+    int t;
+    for (int s = 0; s < n; s++) {
+      successors = bv.successors(s);
+      while ((t = successors.nextInt()) != -1) {
+        if (directed || s <= t) {
+          inOffsets[t + 1]++;
+          m++;
+          }
+        }
+      }
+    for (int i = 0; i < n; i++) {
+      inOffsets[i + 1] += inOffsets[i];
+      }
+    try (BufferedReader vertices = new BufferedReader(new FileReader(basename + VERTICES))) {
+      Column[] columns = columns(vertices.readLine());
+      int labelColumn = -1;
+      List<Integer> numerical = new ArrayList<>();
+      for (int c = 1; c < columns.length; c++) {
+        if (columns[c]._name.equals("labelV")) {
+          labelColumn = c;
+          }
+        else if (AttributeSchema.kind(columns[c]._type) != AttributeSchema.Kind.STRING) {
+          numerical.add(c);
+          }
+        }
+      String[] names = numerical.stream().map(c -> columns[c]._name).toArray(String[]::new);
+      try (MappedGraph.Builder builder = new MappedGraph.Builder(file, directed, weighted, n, m, names)) {
+        // vertices
+        MappedGraph.Appender[] values = new MappedGraph.Appender[names.length];
+        for (int c = 0; c < values.length; c++) {
+          values[c] = builder.column(c);
+          }
+        try (MappedGraph.Appender ids = builder.ids(); MappedGraph.Appender labelCodes = builder.labelCodes()) {
+          String[] line;
+          String value;
+          for (int i = 0; i < n; i++) {
+            line = split(vertices.readLine());
+            ids.putLong(Long.parseLong(line[0]));
+            labelCodes.putInt(builder.code(labelColumn < 0 ? null : line[labelColumn]));
+            for (int c = 0; c < values.length; c++) {
+              value = line[numerical.get(c)];
+              values[c].putDouble(value == null ? Double.NaN : Double.parseDouble(value));
+              }
+            }
+          }
+        for (MappedGraph.Appender column : values) {
+          column.close();
+          }
+        // edges
+        long[] next = inOffsets.clone();
+        long e = 0;
+        try (MappedGraph.Appender outOffsets = builder.outOffsets();
+             MappedGraph.Appender sources    = builder.sources();
+             MappedGraph.Appender targets    = builder.targets()) {
+          for (int s = 0; s < n; s++) {
+            outOffsets.putLong(e);
+            successors = bv.successors(s);
+            while ((t = successors.nextInt()) != -1) {
+              if (directed || s <= t) {
+                sources.putInt(s);
+                targets.putInt(t);
+                builder.inEdge(next[t]++, e++);
+                }
+              }
+            }
+          outOffsets.putLong(e);
+          }
+        try (MappedGraph.Appender offsets = builder.inOffsets()) {
+          for (long offset : inOffsets) {
+            offsets.putLong(offset);
+            }
+          }
+        if (weighted) {
+          try (BufferedReader edges = new BufferedReader(new FileReader(basename + EDGES));
+               MappedGraph.Appender weights = builder.weights()) {
+            edges.readLine();
+            String weight;
+            for (long k = 0; k < m; k++) {
+              weight = split(edges.readLine())[1];
+              weights.putDouble(weight == null ? Graph.DEFAULT_EDGE_WEIGHT : Double.parseDouble(weight));
+              }
+            }
+          }
+        }
+      }
+    log.info("Mapped graph: " + (directed ? "directed" : "undirected") + "[" + n + ", " + m + "] from " + basename + " to " + file);
+    }
+
+  /** Read the <tt>basename.grapher</tt> side file.
+    * @param basename The basename of files.
+    * @return         The {@link Graph} type {@link Properties}.
+    * @throws IOException If the file cannot be read. */
+  private Properties properties(String basename) throws IOException {
+    Properties properties = new Properties();
+    try (Reader reader = new FileReader(basename + GRAPHER)) {
+      properties.load(reader);
+      }
+    return properties;
+    }
+
+  /** Encode an arc.
+    * @param source The source node.
+    * @param target The target node.
+    * @return       The arc, ordered by source and target. */
+  private static long arc(int source,
+                          int target) {
+    return ((long)source << 32) | target;
+    }
+
+  // Side files ----------------------------------------------------------------
+
+  /** Create the header line.
+    * @param id    The name of the id column.
+    * @param types The attribute {@link AttributeType}s.
+    * @return      The header line. */
+  private static String header(String                     id,
+                               Map<String, AttributeType> types) {
+    StringBuilder sb = new StringBuilder(id).append(":").append(AttributeType.LONG.name());
+    for (Map.Entry<String, AttributeType> entry : types.entrySet()) {
+      sb.append("\t").append(escape(entry.getKey())).append(":").append(entry.getValue().name());
+      }
+    return sb.append("\n").toString();
+    }
+
+  /** Create one data line.
+    * @param id         The id.
+    * @param attributes The {@link Attribute}s.
+    * @param types      The attribute {@link AttributeType}s, giving the columns.
+    * @return           The data line. */
+  private static String line(String                     id,
+                             Map<String, Attribute>     attributes,
+                             Map<String, AttributeType> types) {
+    StringBuilder sb = new StringBuilder(id);
+    Attribute a;
+    for (String name : types.keySet()) {
+      a = attributes.get(name);
+      sb.append("\t").append(a == null ? MISSING : escape(a.getValue()));
+      }
+    return sb.append("\n").toString();
+    }
+
+  /** Parse the header line.
+    * @param header The header line.
+    * @return       The {@link Column}s. */
+  private static Column[] columns(String header) {
+    String[] fields = split(header);
+    Column[] columns = new Column[fields.length];
+    int i;
+    for (int c = 0; c < fields.length; c++) {
+      i = fields[c].lastIndexOf(':');
+      columns[c] = new Column(fields[c].substring(0, i), AttributeType.valueOf(fields[c].substring(i + 1)));
+      }
+    return columns;
+    }
+
+  /** Split one line into unescaped values.
+    * @param line The line.
+    * @return     The values, <tt>null</tt> for missing values. */
+  private static String[] split(String line) {
+    String[] values = line.split("\t", -1);
+    for (int i = 0; i < values.length; i++) {
+      values[i] = values[i].equals(MISSING) ? null : unescape(values[i]);
+      }
+    return values;
+    }
+
+  /** Escape tabs, newlines and backslashes.
+    * @param value The value.
+    * @return      The escaped value. */
+  private static String escape(String value) {
+    if (value == null) {
+      return MISSING;
+      }
+    return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+  /** Unescape tabs, newlines and backslashes.
+    * @param value The escaped value.
+    * @return      The value. */
+  private static String unescape(String value) {
+    if (value.indexOf('\\') < 0) {
+      return value;
+      }
+    StringBuilder sb = new StringBuilder(value.length());
+    char c;
+    for (int i = 0; i < value.length(); i++) {
+      c = value.charAt(i);
+      if (c == '\\' && i + 1 < value.length()) {
+        c = value.charAt(++i);
+        sb.append(c == 't' ? '\t' : c == 'n' ? '\n' : c == 'r' ? '\r' : c);
+        }
+      else {
+        sb.append(c);
+        }
+      }
+    return sb.toString();
+    }
+
+  /** <code>Column</code> describes one side file column. */
+  private static class Column {
+
+    Column(String        name,
+           AttributeType type) {
+      _name = name;
+      _type = type;
+      }
+
+    private String _name;
+
+    private AttributeType _type;
+
+    }
+
+  /** <code>ArcGraph</code> is an {@link ImmutableGraph} view of sorted arcs,
+    * used to feed {@link BVGraph#store}. */
+  private static class ArcGraph extends ImmutableGraph {
+
+    ArcGraph(int    n,
+             long[] arcs) {
+      _arcs    = arcs;
+      _offsets = new int[n + 1];
+      for (long arc : arcs) {
+        _offsets[(int)(arc >>> 32) + 1]++;
+        }
+      for (int i = 0; i < n; i++) {
+        _offsets[i + 1] += _offsets[i];
+        }
+      }
+
+    @Override
+    public int numNodes() {
+      return _offsets.length - 1;
+      }
+
+    @Override
+    public long numArcs() {
+      return _arcs.length;
+      }
+
+    @Override
+    public boolean randomAccess() {
+      return true;
+      }
+
+    @Override
+    public int outdegree(int x) {
+      return _offsets[x + 1] - _offsets[x];
+      }
+
+    @Override
+    public int[] successorArray(int x) {
+      int[] successors = new int[outdegree(x)];
+      for (int i = 0; i < successors.length; i++) {
+        successors[i] = (int)_arcs[_offsets[x] + i];
+        }
+      return successors;
+      }
+
+    @Override
+    public LazyIntIterator successors(int x) {
+      return LazyIntIterators.wrap(successorArray(x));
+      }
+
+    @Override
+    public ImmutableGraph copy() {
+      return this;
+      }
+
+    private long[] _arcs;
+
+    private int[] _offsets;
+
+    }
+
+  /** The vertices side file extension. */
+  public static final String VERTICES = ".vertices";
+
+  /** The edges side file extension. */
+  public static final String EDGES = ".edges";
+
+  /** The graph type side file extension. */
+  public static final String GRAPHER = ".grapher";
+
+  /** The edge weight column. */
+  private static final String WEIGHT = "@weight";
+
+  /** The missing value. */
+  private static final String MISSING = "\\N";
+
+  /** Logging . */
+  private static Logger log = LogManager.getLogger(WebGraphConvertor.class);
+
+  }
@@ -0,0 +1,429 @@
+package com.Grapher.CustomGraph;
+
+import com.Grapher.CustomGraph.AttributeSchema.Slot;
+import com.Grapher.CustomGraph.AttributeSchema.Kind;
+
+// JGraphT
+import org.jgrapht.nio.Attribute;
+import org.jgrapht.nio.AttributeType;
+import org.jgrapht.nio.DefaultAttribute;
+
+// Java
+import java.util.Map;
+import java.util.List;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** <code>AttributeColumns</code> keeps attributes of many objects in columns,
+  * one column for each {@link Slot} of an {@link AttributeSchema}, indexed by object row.
+  * Numerical columns are primitive arrays, {@link String} columns are dictionary encoded,
+  * so repeated values (like labels) are kept only once.
+  * Values which don't fit the registered type are kept as the original {@link Attribute}s.
+  * Rows are allocated by {@link #allocate} up to a fixed capacity and are never reused,
+  * the whole <code>AttributeColumns</code> is freed when no object refers to it.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class AttributeColumns {
+
+  /** Create for an {@link AttributeSchema}.
+    * @param schema   The {@link AttributeSchema} describing columns.
+    * @param capacity The maximal number of rows. */
+  public AttributeColumns(AttributeSchema schema,
+                          int             capacity) {
+    _schema   = schema;
+    _capacity = capacity;
+    }
+
+  /** Give the {@link AttributeSchema}.
+    * @return The {@link AttributeSchema}. */
+  public AttributeSchema schema() {
+    return _schema;
+    }
+
+  /** Give a new row.
+    * @return The row, <tt>-1</tt> if all rows are used. */
+  public int allocate() {
+    int row = _rows.getAndUpdate(r -> r == _capacity ? r : r + 1);
+    return row == _capacity ? -1 : row;
+    }
+
+  /** Give the number of allocated rows.
+    * @return The number of allocated rows. */
+  public int rows() {
+    return _rows.get();
+    }
+
+  /** Put one {@link Attribute}, registering it if needed.
+    * @param row   The row.
+    * @param name  The name of the {@link Attribute}.
+    * @param value The {@link Attribute}. */
+  public void put(int       row,
+                  String    name,
+                  Attribute value) {
+    Slot slot = _schema.register(name, value.getType());
+    if (slot.type() == value.getType() && column(slot).put(row, value.getValue())) {
+      removeExtra(row, name);
+      }
+    else {
+      column(slot).unset(row);
+      _extra.computeIfAbsent(row, k -> new HashMap<>()).put(name, value);
+      }
+    }
+
+  /** Put one numerical value, registering it as <tt>DOUBLE</tt> if needed.
+    * @param row   The row.
+    * @param name  The name of the attribute.
+    * @param value The value. */
+  public void put(int    row,
+                  String name,
+                  double value) {
+    Slot slot = _schema.register(name, AttributeType.DOUBLE);
+    if (slot.kind() == Kind.DOUBLE) {
+      ((DoubleColumn)column(slot)).set(row, value);
+      removeExtra(row, name);
+      }
+    else {
+      put(row, name, DefaultAttribute.createAttribute(value));
+      }
+    }
+
+  /** Put one integer value, registering it as <tt>LONG</tt> if needed.
+    * @param row   The row.
+    * @param name  The name of the attribute.
+    * @param value The value. */
+  public void put(int    row,
+                  String name,
+                  long   value) {
+    Slot slot = _schema.register(name, AttributeType.LONG);
+    if (slot.kind() == Kind.LONG) {
+      ((LongColumn)column(slot)).set(row, value);
+      removeExtra(row, name);
+      }
+    else {
+      put(row, name, DefaultAttribute.createAttribute(value));
+      }
+    }
+
+  /** Give one {@link Attribute}.
+    * @param row  The row.
+    * @param name The name of the required {@link Attribute}.
+    * @return     The corresponding {@link Attribute}, <tt>null</tt> if not set. */
+  public Attribute get(int    row,
+                       String name) {
+    Map<String, Attribute> extra = _extra.get(row);
+    if (extra != null && extra.containsKey(name)) {
+      return extra.get(name);
+      }
+    Slot slot = _schema.slot(name);
+    return slot == null ? null : get(row, slot);
+    }
+
+  /** Give one {@link Attribute} from its {@link Slot}.
+    * @param row  The row.
+    * @param slot The {@link Slot} of the required {@link Attribute}.
+    * @return     The corresponding {@link Attribute}, <tt>null</tt> if not set. */
+  private Attribute get(int  row,
+                        Slot slot) {
+    Column column = column(slot);
+    if (!column.isSet(row)) {
+      return null;
+      }
+    switch (slot.type()) {
+      case DOUBLE:
+        return DefaultAttribute.createAttribute(((DoubleColumn)column).get(row));
+      case FLOAT:
+        return DefaultAttribute.createAttribute((float)((DoubleColumn)column).get(row));
+      case LONG:
+        return DefaultAttribute.createAttribute(((LongColumn)column).get(row));
+      case INT:
+        return DefaultAttribute.createAttribute((int)((LongColumn)column).get(row));
+      default:
+        return new DefaultAttribute<>(((StringColumn)column).get(row), slot.type());
+      }
+    }
+
+  /** Give all {@link Attribute}s of one row.
+    * @param row The row.
+    * @return    The {@link Map} of all set {@link Attribute}s. */
+  public Map<String, Attribute> getAll(int row) {
+    Map<String, Attribute> attributes = new LinkedHashMap<>();
+    Attribute a;
+    for (Slot slot : _schema.slots()) {
+      a = get(row, slot);
+      if (a != null) {
+        attributes.put(slot.name(), a);
+        }
+      }
+    Map<String, Attribute> extra = _extra.get(row);
+    if (extra != null) {
+      attributes.putAll(extra);
+      }
+    return attributes;
+    }
+
+  /** Tell whether an {@link Attribute} is set.
+    * @param row  The row.
+    * @param name The name of the {@link Attribute}.
+    * @return     Whether the {@link Attribute} is set. */
+  public boolean has(int    row,
+                     String name) {
+    Map<String, Attribute> extra = _extra.get(row);
+    if (extra != null && extra.containsKey(name)) {
+      return true;
+      }
+    Slot slot = _schema.slot(name);
+    return slot != null && column(slot).isSet(row);
+    }
+
+  /** Remove one {@link Attribute}.
+    * @param row  The row.
+    * @param name The name of the {@link Attribute}. */
+  public void remove(int    row,
+                     String name) {
+    Slot slot = _schema.slot(name);
+    if (slot != null) {
+      column(slot).unset(row);
+      }
+    removeExtra(row, name);
+    }
+
+  /** Give the numerical value of one {@link Attribute} without parsing.
+    * @param row  The row.
+    * @param name The name of the {@link Attribute}.
+    * @return     The numerical value, <tt>NaN</tt> if not set.
+    * @throws NumberFormatException If the {@link Attribute} is not numerical. */
+  public double getNumber(int    row,
+                          String name) {
+    Slot slot = _schema.slot(name);
+    if (slot != null) {
+      Column column = column(slot);
+      if (column.isSet(row)) {
+        switch (slot.kind()) {
+          case DOUBLE:
+            return ((DoubleColumn)column).get(row);
+          case LONG:
+            return ((LongColumn)column).get(row);
+          default:
+          }
+        }
+      }
+    Attribute a = get(row, name);
+    return a == null ? Double.NaN : Double.valueOf(a.getValue());
+    }
+
+  /** Give the {@link String} value of one {@link Attribute}.
+    * @param row  The row.
+    * @param name The name of the {@link Attribute}.
+    * @return     The value, <tt>null</tt> if not set. */
+  public String getString(int    row,
+                          String name) {
+    Slot slot = _schema.slot(name);
+    if (slot != null && slot.kind() == Kind.STRING && !_extra.containsKey(row)) {
+      return ((StringColumn)column(slot)).get(row);
+      }
+    Attribute a = get(row, name);
+    return a == null ? null : a.getValue();
+    }
+
+  /** Remove the overflow {@link Attribute}.
+    * @param row  The row.
+    * @param name The name of the {@link Attribute}. */
+  private void removeExtra(int    row,
+                           String name) {
+    if (!_extra.isEmpty()) {
+      Map<String, Attribute> extra = _extra.get(row);
+      if (extra != null) {
+        extra.remove(name);
+        if (extra.isEmpty()) {
+          _extra.remove(row);
+          }
+        }
+      }
+    }
+
+  /** Give the {@link Column} of a {@link Slot}, create it if needed.
+    * @param slot The {@link Slot}.
+    * @return     The corresponding {@link Column}. */
+  private Column column(Slot slot) {
+    Column[] columns = _columns;
+    if (slot.id() < columns.length && columns[slot.id()] != null) {
+      return columns[slot.id()];
+      }
+    synchronized (this) {
+      if (slot.id() >= _columns.length) {
+        _columns = Arrays.copyOf(_columns, _schema.size());
+        }
+      if (_columns[slot.id()] == null) {
+        switch (slot.kind()) {
+          case DOUBLE:
+            _columns[slot.id()] = new DoubleColumn();
+            break;
+          case LONG:
+            _columns[slot.id()] = new LongColumn();
+            break;
+          default:
+            _columns[slot.id()] = new StringColumn();
+          }
+        }
+      return _columns[slot.id()];
+      }
+    }
+
+  /** <code>Column</code> keeps values of one attribute. */
+  private static abstract class Column {
+
+    /** Set the value from its {@link String} representation.
+      * @param row   The row.
+      * @param value The value.
+      * @return      Whether the value could be stored. */
+    abstract boolean put(int    row,
+                         String value);
+
+    /** Make space for a row.
+      * @param row The row.
+      * @param capacity The current capacity.
+      * @return         The new capacity, or <tt>-1</tt> if enough. */
+    static int grow(int row,
+                    int capacity) {
+      return row < capacity ? -1 : Math.max(MIN_CAPACITY, Math.max(row + 1, 2 * capacity));
+      }
+
+    synchronized void mark(int row) {
+      if ((row >> 6) >= _set.length) {
+        _set = Arrays.copyOf(_set, Math.max((row >> 6) + 1, 2 * _set.length));
+        }
+      _set[row >> 6] |= 1L << row;
+      }
+
+    synchronized void unset(int row) {
+      if ((row >> 6) < _set.length) {
+        _set[row >> 6] &= ~(1L << row);
+        }
+      }
+
+    boolean isSet(int row) {
+      long[] set = _set;
+      return (row >> 6) < set.length && (set[row >> 6] & (1L << row)) != 0;
+      }
+
+    private volatile long[] _set = new long[0];
+
+    }
+
+  /** <code>DoubleColumn</code> keeps <code>double</code> values. */
+  private static class DoubleColumn extends Column {
+
+    @Override
+    boolean put(int    row,
+                String value) {
+      try {
+        set(row, Double.parseDouble(value));
+        return true;
+        }
+      catch (NumberFormatException e) {
+        return false;
+        }
+      }
+
+    synchronized void set(int    row,
+                          double value) {
+      int capacity = grow(row, _values.length);
+      if (capacity > 0) {
+        _values = Arrays.copyOf(_values, capacity);
+        }
+      _values[row] = value;
+      mark(row);
+      }
+
+    double get(int row) {
+      return _values[row];
+      }
+
+    private volatile double[] _values = new double[0];
+
+    }
+
+  /** <code>LongColumn</code> keeps <code>long</code> values. */
+  private static class LongColumn extends Column {
+
+    @Override
+    boolean put(int    row,
+                String value) {
+      try {
+        set(row, Long.parseLong(value));
+        return true;
+        }
+      catch (NumberFormatException e) {
+        return false;
+        }
+      }
+
+    synchronized void set(int  row,
+                          long value) {
+      int capacity = grow(row, _values.length);
+      if (capacity > 0) {
+        _values = Arrays.copyOf(_values, capacity);
+        }
+      _values[row] = value;
+      mark(row);
+      }
+
+    long get(int row) {
+      return _values[row];
+      }
+
+    private volatile long[] _values = new long[0];
+
+    }
+
+  /** <code>StringColumn</code> keeps dictionary encoded {@link String} values. */
+  private static class StringColumn extends Column {
+
+    @Override
+    synchronized boolean put(int    row,
+                             String value) {
+      Integer code = _codes.get(value);
+      if (code == null) {
+        code = _dictionary.size();
+        _dictionary.add(value);
+        _codes.put(value, code);
+        }
+      int capacity = grow(row, _values.length);
+      if (capacity > 0) {
+        _values = Arrays.copyOf(_values, capacity);
+        }
+      _values[row] = code;
+      mark(row);
+      return true;
+      }
+
+    synchronized String get(int row) {
+      return isSet(row) ? _dictionary.get(_values[row]) : null;
+      }
+
+    private volatile int[] _values = new int[0];
+
+    private List<String> _dictionary = new ArrayList<>();
+
+    private Map<String, Integer> _codes = new HashMap<>();
+
+    }
+
+  private AttributeSchema _schema;
+
+  private volatile Column[] _columns = new Column[0];
+
+  private Map<Integer, Map<String, Attribute>> _extra = new ConcurrentHashMap<>();
+
+  /** The number of allocated rows. */
+  private AtomicInteger _rows = new AtomicInteger();
+
+  private int _capacity;
+
+  /** The minimal capacity of a {@link Column}. */
+  private static final int MIN_CAPACITY = 1024;
+
+  }
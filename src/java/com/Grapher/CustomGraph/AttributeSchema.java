@@ -0,0 +1,162 @@
+package com.Grapher.CustomGraph;
+
+// JGraphT
+import org.jgrapht.nio.AttributeType;
+
+// Java
+import java.util.Map;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** <code>AttributeSchema</code> registers {@link AttributeType}s of named attributes
+  * and assigns each attribute a typed slot.
+  * <tt>INT</tt> and <tt>LONG</tt> attributes are kept in <code>long</code> slots,
+  * <tt>FLOAT</tt> and <tt>DOUBLE</tt> attributes in <code>double</code> slots,
+  * all other attributes in {@link String} slots.
+  * The type of an attribute is fixed by its first registration.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class AttributeSchema {
+
+  /** Give the {@link Slot} of an attribute.
+    * @param name The name of the attribute.
+    * @return     The corresponding {@link Slot}, <tt>null</tt> if not registered. */
+  public Slot slot(String name) {
+    return _slots.get(name);
+    }
+
+  /** Register an attribute, if not yet registered.
+    * @param name The name of the attribute.
+    * @param type The {@link AttributeType} of the attribute.
+    * @return     The corresponding {@link Slot},
+    *             its type may differ from the requested one if the attribute has been already registered. */
+  public Slot register(String        name,
+                       AttributeType type) {
+    Slot slot = _slots.get(name);
+    if (slot != null) {
+      return slot;
+      }
+    synchronized (this) {
+      slot = _slots.get(name);
+      if (slot == null) {
+        Kind kind = kind(type);
+        slot = new Slot(name, type, kind, _order.length, _sizes[kind.ordinal()]++);
+        _order = Arrays.copyOf(_order, _order.length + 1);
+        _order[slot.id()] = slot;
+        _types.put(name, type);
+        _slots.put(name, slot);
+        }
+      }
+    return slot;
+    }
+
+  /** Give all registered {@link Slot}s.
+    * @return The registered {@link Slot}s, ordered by their id. */
+  public Slot[] slots() {
+    return _order;
+    }
+
+  /** Give the number of registered slots of one {@link Kind}.
+    * @param kind The {@link Kind} of slots.
+    * @return     The number of registered slots. */
+  public int size(Kind kind) {
+    return _sizes[kind.ordinal()];
+    }
+
+  /** Give the number of all registered slots.
+    * @return The number of all registered slots. */
+  public int size() {
+    return _order.length;
+    }
+
+  /** Give all registered {@link AttributeType}s.
+    * @return The unmodifiable {@link Map} of registered {@link AttributeType}s. */
+  public Map<String, AttributeType> types() {
+    return Collections.unmodifiableMap(_types);
+    }
+
+  /** Give the storage {@link Kind} of an {@link AttributeType}.
+    * @param type The {@link AttributeType}.
+    * @return     The corresponding {@link Kind}. */
+  public static Kind kind(AttributeType type) {
+    switch (type) {
+      case INT:
+      case LONG:
+        return Kind.LONG;
+      case FLOAT:
+      case DOUBLE:
+        return Kind.DOUBLE;
+      default:
+        return Kind.STRING;
+      }
+    }
+
+  /** The storage kind of a {@link Slot}. */
+  public enum Kind {DOUBLE, LONG, STRING};
+
+  /** <code>Slot</code> describes the storage of one attribute. */
+  public static class Slot {
+
+    Slot(String        name,
+         AttributeType type,
+         Kind          kind,
+         int           id,
+         int           index) {
+      _name  = name;
+      _type  = type;
+      _kind  = kind;
+      _id    = id;
+      _index = index;
+      }
+
+    /** Give the attribute name.
+      * @return The attribute name. */
+    public String name() {
+      return _name;
+      }
+
+    /** Give the attribute {@link AttributeType}.
+      * @return The attribute {@link AttributeType}. */
+    public AttributeType type() {
+      return _type;
+      }
+
+    /** Give the storage {@link Kind}.
+      * @return The storage {@link Kind}. */
+    public Kind kind() {
+      return _kind;
+      }
+
+    /** Give the slot id, unique over all {@link Kind}s.
+      * @return The slot id. */
+    public int id() {
+      return _id;
+      }
+
+    /** Give the slot index within its {@link Kind}.
+      * @return The slot index. */
+    public int index() {
+      return _index;
+      }
+
+    private String _name;
+
+    private AttributeType _type;
+
+    private Kind _kind;
+
+    private int _id;
+
+    private int _index;
+
+    }
+
+  private Map<String, Slot> _slots = new ConcurrentHashMap<>();
+
+  private Map<String, AttributeType> _types = new ConcurrentHashMap<>();
+
+  private volatile Slot[] _order = new Slot[0];
+
+  private int[] _sizes = new int[Kind.values().length];
+
+  }
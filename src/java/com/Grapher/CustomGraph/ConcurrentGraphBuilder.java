@@ -0,0 +1,397 @@
+package com.Grapher.CustomGraph;
+
+// JGraphT
+import org.jgrapht.Graph;
+
+// Java
+import java.util.Map;
+import java.util.List;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Log4J
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/** <code>ConcurrentGraphBuilder</code> populates a {@link Graph} from several threads.
+  * Each thread uses its own {@link Worker}, which takes {@link CustomVertex}
+  * and {@link CustomEdge} ids in blocks and buffers new elements locally.
+  * Full buffers are handed as batches to a single committer thread,
+  * which is the only one inserting into the {@link Graph}.
+  * {@link CustomEdge}s with not yet committed ends are kept aside,
+  * indexed by the missing end, and retried when that end is committed.
+  * A failing element doesn't stop the committer, the first failure
+  * is thrown from {@link #close}.
+  * <pre>
+  * try (ConcurrentGraphBuilder builder = new ConcurrentGraphBuilder(graph)) {
+  *   IntStream.range(0, n).parallel().forEach(i -> {
+  *     Worker worker = builder.worker();
+  *     ...
+  *     });
+  *   }
+  * </pre>
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class ConcurrentGraphBuilder implements AutoCloseable {
+
+  /** Create with the default batch size and start the committer.
+    * @param graph The {@link Graph} to populate. */
+  public ConcurrentGraphBuilder(Graph<CustomVertex, CustomEdge> graph) {
+    this(graph, DEFAULT_BATCH);
+    }
+
+  /** Create and start the committer.
+    * @param graph     The {@link Graph} to populate.
+    * @param batchSize The number of buffered elements to hand over at once. */
+  public ConcurrentGraphBuilder(Graph<CustomVertex, CustomEdge> graph,
+                                int                             batchSize) {
+    _graph     = graph;
+    _batchSize = batchSize;
+    _weighted  = graph.getType().isWeighted();
+    _committer = new Thread(this::commit, "ConcurrentGraphBuilder");
+    _committer.setDaemon(true);
+    _committer.start();
+    }
+
+  /** Give the {@link Worker} of the current thread, create it if needed.
+    * @return The {@link Worker} of the current thread. */
+  public Worker worker() {
+    Worker worker = _workers.get();
+    if (worker == null) {
+      worker = new Worker();
+      _workers.set(worker);
+      _allWorkers.add(worker);
+      }
+    return worker;
+    }
+
+  /** Flush all {@link Worker}s, wait for the committer and retry
+    * {@link CustomEdge}s kept aside.
+    * All {@link Worker}s should have finished.
+    * @throws IllegalStateException If some elements failed to be inserted,
+    *                               caused by the first failure. */
+  @Override
+  public void close() {
+    for (Worker worker : _allWorkers) {
+      worker.flush();
+      }
+    enqueue(END);
+    try {
+      _committer.join();
+      }
+    catch (InterruptedException e) {
+      log.error("Interrupted while waiting for committer", e);
+      Thread.currentThread().interrupt();
+      }
+    for (CustomVertex v : new ArrayList<>(_deferred.keySet())) {
+      retry(v);
+      }
+    if (_nDeferred > 0) {
+      log.error(_nDeferred + " Edges with missing Vertices not inserted");
+      }
+    if (_failures > 0) {
+      log.error(_failures + " elements failed to be inserted");
+      }
+    log.info(_vertexes + " Vertices and " + _edges + " Edges inserted in " + _batches + " batches");
+    if (_failure != null) {
+      throw new IllegalStateException(_failures + " elements failed to be inserted", _failure);
+      }
+    }
+
+  /** Hand a batch over to the committer.
+    * @param batch The {@link Batch} to commit. */
+  private void enqueue(Batch batch) {
+    try {
+      _queue.put(batch);
+      }
+    catch (InterruptedException e) {
+      log.error("Interrupted, batch lost", e);
+      Thread.currentThread().interrupt();
+      }
+    }
+
+  /** Commit batches until the end.
+    * Failures are recorded, the queue is drained anyway,
+    * so {@link Worker}s are never blocked. */
+  private void commit() {
+    Batch batch;
+    try {
+      while ((batch = _queue.take()) != END) {
+        try {
+          insert(batch);
+          }
+        catch (RuntimeException | Error e) {
+          fail(e, "Cannot insert batch");
+          }
+        }
+      }
+    catch (InterruptedException e) {
+      log.error("Committer interrupted", e);
+      }
+    }
+
+  /** Insert one batch into the {@link Graph}.
+    * @param batch The {@link Batch} to insert. */
+  private void insert(Batch batch) {
+    _batches++;
+    for (CustomVertex v : batch._vertexes) {
+      try {
+        if (_graph.addVertex(v)) {
+          _vertexes++;
+          }
+        }
+      catch (RuntimeException e) {
+        fail(e, "Cannot insert Vertex " + v.getId());
+        }
+      }
+    for (int i = 0; i < batch._edges.size(); i++) {
+      insert(batch._sources.get(i), batch._targets.get(i), batch._edges.get(i), batch._weights[i]);
+      }
+    if (!_deferred.isEmpty()) {
+      for (CustomVertex v : batch._vertexes) {
+        retry(v);
+        }
+      }
+    }
+
+  /** Insert one {@link CustomEdge}, keep it aside if its ends are not yet there.
+    * @param source The source {@link CustomVertex}.
+    * @param target The target {@link CustomVertex}.
+    * @param edge   The {@link CustomEdge}.
+    * @param weight The {@link CustomEdge} weight, ignored if <tt>NaN</tt>. */
+  private void insert(CustomVertex source,
+                      CustomVertex target,
+                      CustomEdge   edge,
+                      double       weight) {
+    if (!_graph.containsVertex(source)) {
+      defer(source, source, target, edge, weight);
+      return;
+      }
+    if (!_graph.containsVertex(target)) {
+      defer(target, source, target, edge, weight);
+      return;
+      }
+    try {
+      if (_graph.addEdge(source, target, edge)) {
+        _edges++;
+        if (_weighted && !Double.isNaN(weight)) {
+          _graph.setEdgeWeight(edge, weight);
+          }
+        }
+      }
+    catch (RuntimeException e) {
+      fail(e, "Cannot insert Edge " + edge.getId());
+      }
+    }
+
+  /** Keep a {@link CustomEdge} aside until its missing end is committed.
+    * @param missing The missing {@link CustomVertex}.
+    * @param source  The source {@link CustomVertex}.
+    * @param target  The target {@link CustomVertex}.
+    * @param edge    The {@link CustomEdge}.
+    * @param weight  The {@link CustomEdge} weight. */
+  private void defer(CustomVertex missing,
+                     CustomVertex source,
+                     CustomVertex target,
+                     CustomEdge   edge,
+                     double       weight) {
+    _deferred.computeIfAbsent(missing, k -> new Batch()).add(source, target, edge, weight);
+    _nDeferred++;
+    }
+
+  /** Retry {@link CustomEdge}s waiting for a {@link CustomVertex}.
+    * @param v The {@link CustomVertex}, which may have been committed. */
+  private void retry(CustomVertex v) {
+    Batch waiting = _deferred.remove(v);
+    if (waiting != null) {
+      _nDeferred -= waiting._edges.size();
+      for (int i = 0; i < waiting._edges.size(); i++) {
+        insert(waiting._sources.get(i), waiting._targets.get(i), waiting._edges.get(i), waiting._weights[i]);
+        }
+      }
+    }
+
+  /** Record a failure.
+    * @param e       The failure.
+    * @param message The message to log. */
+  private void fail(Throwable e,
+                    String    message) {
+    _failures++;
+    if (_failure == null) {
+      _failure = e;
+      log.error(message, e);
+      }
+    else {
+      log.debug(message, e);
+      }
+    }
+
+  /** <code>Worker</code> buffers elements created by one thread. */
+  public class Worker {
+
+    /** Create and buffer a new {@link CustomVertex}.
+      * @return The new {@link CustomVertex}. */
+    public synchronized CustomVertex addVertex() {
+      CustomVertex v = newVertex();
+      addVertex(v);
+      return v;
+      }
+
+    /** Create a new {@link CustomVertex} with a reserved id without inserting it.
+      * @return The new {@link CustomVertex}. */
+    public synchronized CustomVertex newVertex() {
+      if (_nextVertexId == _lastVertexId) {
+        _nextVertexId = CustomVertex.reserveIds(ID_BLOCK);
+        _lastVertexId = _nextVertexId + ID_BLOCK;
+        }
+      return new CustomVertex(_nextVertexId++);
+      }
+
+    /** Buffer an existing {@link CustomVertex}.
+      * @param v The {@link CustomVertex} to insert. */
+    public synchronized void addVertex(CustomVertex v) {
+      _batch._vertexes.add(v);
+      check();
+      }
+
+    /** Create a new {@link CustomEdge} without inserting it.
+      * @return The new {@link CustomEdge}. */
+    public synchronized CustomEdge newEdge() {
+      if (_nextEdgeId == _lastEdgeId) {
+        _nextEdgeId = CustomEdge.reserveIds(ID_BLOCK);
+        _lastEdgeId = _nextEdgeId + ID_BLOCK;
+        }
+      return new CustomEdge(_nextEdgeId++);
+      }
+
+    /** Buffer a {@link CustomEdge}.
+      * @param source The source {@link CustomVertex}.
+      * @param target The target {@link CustomVertex}.
+      * @param edge   The {@link CustomEdge} to insert. */
+    public void addEdge(CustomVertex source,
+                        CustomVertex target,
+                        CustomEdge   edge) {
+      addEdge(source, target, edge, Double.NaN);
+      }
+
+    /** Buffer a weighted {@link CustomEdge}.
+      * @param source The source {@link CustomVertex}.
+      * @param target The target {@link CustomVertex}.
+      * @param edge   The {@link CustomEdge} to insert.
+      * @param weight The {@link CustomEdge} weight. */
+    public synchronized void addEdge(CustomVertex source,
+                                     CustomVertex target,
+                                     CustomEdge   edge,
+                                     double       weight) {
+      _batch.add(source, target, edge, weight);
+      check();
+      }
+
+    /** Hand the buffer over to the committer. */
+    public synchronized void flush() {
+      if (!_batch.isEmpty()) {
+        enqueue(_batch);
+        _batch = new Batch();
+        }
+      }
+
+    /** Flush if the buffer is full. */
+    private void check() {
+      if (_batch._vertexes.size() + _batch._edges.size() >= _batchSize) {
+        flush();
+        }
+      }
+
+    private Batch _batch = new Batch();
+
+    private long _nextVertexId;
+
+    private long _lastVertexId;
+
+    private long _nextEdgeId;
+
+    private long _lastEdgeId;
+
+    }
+
+  /** <code>Batch</code> is a set of elements to be inserted together. */
+  private static class Batch {
+
+    void add(CustomVertex source,
+             CustomVertex target,
+             CustomEdge   edge,
+             double       weight) {
+      if (_edges.size() == _weights.length) {
+        _weights = Arrays.copyOf(_weights, Math.max(16, 2 * _weights.length));
+        }
+      _weights[_edges.size()] = weight;
+      _sources.add(source);
+      _targets.add(target);
+      _edges.add(edge);
+      }
+
+    boolean isEmpty() {
+      return _vertexes.isEmpty() && _edges.isEmpty();
+      }
+
+    private List<CustomVertex> _vertexes = new ArrayList<>();
+
+    private List<CustomVertex> _sources = new ArrayList<>();
+
+    private List<CustomVertex> _targets = new ArrayList<>();
+
+    private List<CustomEdge> _edges = new ArrayList<>();
+
+    private double[] _weights = new double[0];
+
+    }
+
+  private Graph<CustomVertex, CustomEdge> _graph;
+
+  private int _batchSize;
+
+  private boolean _weighted;
+
+  private Thread _committer;
+
+  private BlockingQueue<Batch> _queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+
+  private ThreadLocal<Worker> _workers = new ThreadLocal<>();
+
+  private List<Worker> _allWorkers = new CopyOnWriteArrayList<>();
+
+  /** {@link CustomEdge}s kept aside, by their missing {@link CustomVertex}. */
+  private Map<CustomVertex, Batch> _deferred = new HashMap<>();
+
+  private long _nDeferred = 0;
+
+  private long _vertexes = 0;
+
+  private long _edges = 0;
+
+  private long _batches = 0;
+
+  private long _failures = 0;
+
+  /** The first failure. */
+  private Throwable _failure;
+
+  /** The end of batches. */
+  private static final Batch END = new Batch();
+
+  /** The default number of elements in one batch. */
+  private static final int DEFAULT_BATCH = 4096;
+
+  /** The number of ids reserved at once. */
+  private static final int ID_BLOCK = 1024;
+
+  /** The maximal number of batches waiting for the committer. */
+  private static final int QUEUE_CAPACITY = 64;
+
+  /** Logging . */
+  private static Logger log = LogManager.getLogger(ConcurrentGraphBuilder.class);
+
+  }
@@ -4,29 +4,63 @@ package com.Grapher.CustomGraph;
 import org.jgrapht.graph.DefaultWeightedEdge;
 import org.jgrapht.nio.Attribute;
 import org.jgrapht.nio.AttributeType;
-import org.jgrapht.nio.DefaultAttribute;
 
 // Java
 import java.util.Map;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
 
 // Log4J
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
 /** <code>CustomEdge</code> represents graph edge.
+  * {@link Attribute}s of Edges are kept in blocks of {@link AttributeColumns},
+  * each Edge knows its block and its row.
+  * Edges created together share a block, which is freed with its last Edge,
+  * so discarded graphs don't keep their attributes.
   * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
 public class CustomEdge extends DefaultWeightedEdge {
 
   /** Create new Edge from the default id. */
   public CustomEdge() {
-    this(_gid++);
+    this(_gid.getAndIncrement());
     }
 
   /** Create new Edge from the supplied id.
     * @param id The supplied Edge id. */
   public CustomEdge(long id) {
-    _id  = id;
+    _id = id;
+    allocate();
+    }
+
+  /** Allocate a row in the current block, start a new block if it is full. */
+  private void allocate() {
+    AttributeColumns columns = _current;
+    int row = columns.allocate();
+    while (row < 0) {
+      synchronized (CustomEdge.class) {
+        if (_current == columns) {
+          _current = new AttributeColumns(_schema, BLOCK);
+          }
+        columns = _current;
+        }
+      row = columns.allocate();
+      }
+    _columns = columns;
+    _row     = row;
+    }
+
+  /** Clone the Edge, with a copy of its {@link Attribute}s in a new row.
+    * @return The clone. */
+  @Override
+  public Object clone() {
+    CustomEdge clone = (CustomEdge)super.clone();
+    clone.allocate();
+    for (Map.Entry<String, Attribute> entry : _columns.getAll(_row).entrySet()) {
+      clone.putAttribute(entry.getKey(), entry.getValue());
+      }
+    return clone;
     }
 
   @Override
@@ -55,16 +89,33 @@ public class CustomEdge extends DefaultWeightedEdge {
     }
 
   /** Give {@link Map} of all {@link Attribute}s.
+    * The {@link Map} is an unmodifiable snapshot, use {@link #putAttribute} to modify attributes.
     * @return The {@link Map} of all {@link Attribute}s. */
   public Map<String, Attribute> getAttributes() {
-    return _attributes;
+    return Collections.unmodifiableMap(_columns.getAll(_row));
     }
 
   /** Give one {@link Attribute}.
     * @param name The name of the required {@link Attribute}.
     * @return     The corresponding {@link Attribute}. */
   public Attribute getAttribute(String name) {
-    return _attributes.get(name);
+    return _columns.get(_row, name);
+    }
+
+  /** Tell whether an {@link Attribute} is set.
+    * @param name The name of the {@link Attribute}.
+    * @return     Whether the {@link Attribute} is set. */
+  public boolean hasAttribute(String name) {
+    return _columns.has(_row, name);
+    }
+
+  /** Give the numerical value of one {@link Attribute}
+    * without creating and parsing the {@link Attribute}.
+    * @param name The name of the required {@link Attribute}.
+    * @return     The numerical value, <tt>NaN</tt> if not set.
+    * @throws NumberFormatException If the {@link Attribute} is not numerical. */
+  public double getNumber(String name) {
+    return _columns.getNumber(_row, name);
     }
 
   /** Put one {@link Attribute}.
@@ -72,10 +123,29 @@ public class CustomEdge extends DefaultWeightedEdge {
     * @param value The value of the new {@link Attribute}. */
   public void putAttribute(String name,
                            Attribute value) {
-    _attributes.put(name, value);
-    if (!_attributesReg.containsKey(name)) {
-      _attributesReg.put(name, value.getType());
-      }
+    _columns.put(_row, name, value);
+    }
+
+  /** Put one numerical {@link Attribute} without creating the {@link Attribute}.
+    * @param name  The name of the new {@link Attribute}.
+    * @param value The value of the new {@link Attribute}. */
+  public void putAttribute(String name,
+                           double value) {
+    _columns.put(_row, name, value);
+    }
+
+  /** Put one integer {@link Attribute} without creating the {@link Attribute}.
+    * @param name  The name of the new {@link Attribute}.
+    * @param value The value of the new {@link Attribute}. */
+  public void putAttribute(String name,
+                           long   value) {
+    _columns.put(_row, name, value);
+    }
+
+  /** Remove one {@link Attribute}.
+    * @param name The name of the {@link Attribute}. */
+  public void removeAttribute(String name) {
+    _columns.remove(_row, name);
     }
 
   /** Give the Edge id.
@@ -93,7 +163,7 @@ public class CustomEdge extends DefaultWeightedEdge {
   /** Give the Edge label (type).
     * @return The Edge label (type). */
   public String getLbl() {
-    return _attributes.get("labelE").getValue();
+    return _columns.getString(_row, "labelE");
     }
      
   /** Give the Edge name.
@@ -108,14 +178,15 @@ public class CustomEdge extends DefaultWeightedEdge {
   /** Generate the Edge weight.
     * @return The generated weight. */
   public double generateWeight() {
-    if (getLbl().equals("overlaps")) {
-      double intersection = new Double(getAttribute("intersection").getValue());
-      double sizeIn       = new Double(getAttribute("sizeIn"      ).getValue());
-      double sizeOut      = new Double(getAttribute("sizeOut"     ).getValue());
+    String lbl = getLbl();
+    if (lbl.equals("overlaps")) {
+      double intersection = getNumber("intersection");
+      double sizeIn       = getNumber("sizeIn"      );
+      double sizeOut      = getNumber("sizeOut"     );
       return intersection / sizeIn / sizeOut;
       }
-    if (_edgeWeights.containsKey(getLbl())) {
-      return new Double(getAttribute(_edgeWeights.get(getLbl())).getValue());
+    if (_edgeWeights.containsKey(lbl)) {
+      return getNumber(_edgeWeights.get(lbl));
       }
     return 0.0;
     }
@@ -126,12 +197,38 @@ public class CustomEdge extends DefaultWeightedEdge {
     return getWeight();
     }
     
+  /** Reserve a block of default ids,
+    * which will not be given to {@link CustomEdge}s created without id.
+    * @param n The number of ids to reserve.
+    * @return  The first reserved id. */
+  public static long reserveIds(int n) {
+    return _gid.getAndAdd(n);
+    }
+    
   /** Give all registered {@link Attribute}s.
     * @return The registered {@link Attribute}s. */
   public static Map<String, AttributeType> attributesReg() {
-    return _attributesReg;
+    return _schema.types();
     }
     
+  /** Give the {@link AttributeSchema} shared by all Edges.
+    * @return The shared {@link AttributeSchema}. */
+  public static AttributeSchema schema() {
+    return _schema;
+    }
+
+  /** Give mapping from Edge labels to Edge names.
+    * @return The mapping from Edge labels to Edge names. */
+  public static Map<String, String> namesMap() {
+    return _edgeNames;
+    }
+
+  /** Give mapping from Edge labels to Edge weight atributes.
+    * @return The mapping from Edge labels to Edge weight attributes. */
+  public static Map<String, String> weightsMap() {
+    return _edgeWeights;
+    }
+
   /** Set mapping from Edge labels to Edge names.
     * @param edgeNames The mapping from Edge labels to Edge names. */
   public static void setNamesMap(Map<String, String> edgeNames) {
@@ -148,14 +245,22 @@ public class CustomEdge extends DefaultWeightedEdge {
   public String toString() {
     return getLbl() + "(" + _id + ")" + ":" + getName();
     }
-  
+
   private long _id;
   
-  private static long _gid = 0;
+  private static AtomicLong _gid = new AtomicLong();
     
-  private Map<String, Attribute> _attributes = new HashMap<>();
-  
-  private static Map<String, AttributeType> _attributesReg = new HashMap<>();
+  private AttributeColumns _columns;
+
+  private int _row;
+
+  private static AttributeSchema _schema = new AttributeSchema();
+
+  /** The number of rows in one block. */
+  private static final int BLOCK = 1 << 16;
+
+  /** The block new Edges get their rows from. */
+  private static volatile AttributeColumns _current = new AttributeColumns(_schema, BLOCK);
   
   private static Map<String, String> _edgeNames;
   
@@ -2,6 +2,7 @@ package com.Grapher.CustomGraph;
 
 // Java
 import java.util.function.Supplier;
+import java.util.concurrent.atomic.AtomicLong;
 
 /** <code>CustomEdgeSupplier</code> supplies {@link Supplier} for {@link CustomEdge}.
   * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
@@ -9,9 +10,9 @@ public class CustomEdgeSupplier implements Supplier<CustomEdge> {
 
   @Override
   public CustomEdge get() {
-    return new CustomEdge(id++);
+    return new CustomEdge(_id.getAndIncrement());
     }
     
-  private long id = 0;
+  private AtomicLong _id = new AtomicLong();
 
   }
\ No newline at end of file
@@ -1,24 +1,34 @@
 package com.Grapher.CustomGraph;
 
+import com.Grapher.CustomGraph.AttributeSchema.Slot;
+import com.Grapher.CustomGraph.AttributeSchema.Kind;
+
 // JGraphT
 import org.jgrapht.nio.Attribute;
 import org.jgrapht.nio.AttributeType;
+import org.jgrapht.nio.DefaultAttribute;
 
 // Java
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
 
 // Log4J
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
 /** <code>CustomVertex</code> represents graph vertex.
+  * {@link Attribute}s are kept in typed slots described by the shared {@link AttributeSchema},
+  * {@link Attribute}s are created only when requested.
   * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
 public class CustomVertex {
 
   /** Create new Vertex from the default id. */
   public CustomVertex() {
-    this(_gid++);
+    this(_gid.getAndIncrement());
     }
 
   /** Create new Vertex from the supplied id.
@@ -53,26 +63,241 @@ public class CustomVertex {
     }
 
   /** Give {@link Map} of all {@link Attribute}s.
+    * The {@link Map} is an unmodifiable snapshot, use {@link #putAttribute} to modify attributes.
     * @return The {@link Map} of all {@link Attribute}s. */
   public Map<String, Attribute> getAttributes() {
-    return _attributes;
+    Map<String, Attribute> attributes = new LinkedHashMap<>();
+    Attribute a;
+    for (Slot slot : _schema.slots()) {
+      a = getAttribute(slot);
+      if (a != null) {
+        attributes.put(slot.name(), a);
+        }
+      }
+    if (_extra != null) {
+      attributes.putAll(_extra);
+      }
+    return Collections.unmodifiableMap(attributes);
     }
     
   /** Give one {@link Attribute}.
     * @param name The name of the required {@link Attribute}.
     * @return     The corresponding {@link Attribute}. */
   public Attribute getAttribute(String name) {
-    return _attributes.get(name);
+    if (_extra != null && _extra.containsKey(name)) {
+      return _extra.get(name);
+      }
+    Slot slot = _schema.slot(name);
+    return slot == null ? null : getAttribute(slot);
+    }
+
+  /** Give one {@link Attribute} from its {@link Slot}.
+    * @param slot The {@link Slot} of the required {@link Attribute}.
+    * @return     The corresponding {@link Attribute}, <tt>null</tt> if not set. */
+  private Attribute getAttribute(Slot slot) {
+    if (!isSet(slot)) {
+      return null;
+      }
+    switch (slot.type()) {
+      case DOUBLE:
+        return DefaultAttribute.createAttribute(_doubles[slot.index()]);
+      case FLOAT:
+        return DefaultAttribute.createAttribute((float)_doubles[slot.index()]);
+      case LONG:
+        return DefaultAttribute.createAttribute(_longs[slot.index()]);
+      case INT:
+        return DefaultAttribute.createAttribute((int)_longs[slot.index()]);
+      default:
+        return new DefaultAttribute<>(_strings[slot.index()], slot.type());
+      }
+    }
+
+  /** Tell whether an {@link Attribute} is set.
+    * @param name The name of the {@link Attribute}.
+    * @return     Whether the {@link Attribute} is set. */
+  public boolean hasAttribute(String name) {
+    if (_extra != null && _extra.containsKey(name)) {
+      return true;
+      }
+    Slot slot = _schema.slot(name);
+    return slot != null && isSet(slot);
+    }
+
+  /** Give the numerical value of one {@link Attribute}
+    * without creating and parsing the {@link Attribute}.
+    * @param name The name of the required {@link Attribute}.
+    * @return     The numerical value, <tt>NaN</tt> if not set.
+    * @throws NumberFormatException If the {@link Attribute} is not numerical. */
+  public double getNumber(String name) {
+    Slot slot = _schema.slot(name);
+    if (slot != null && isSet(slot)) {
+      switch (slot.kind()) {
+        case DOUBLE:
+          return _doubles[slot.index()];
+        case LONG:
+          return _longs[slot.index()];
+        default:
+        }
+      }
+    Attribute a = getAttribute(name);
+    return a == null ? Double.NaN : Double.valueOf(a.getValue());
     }
 
   /** Put one {@link Attribute}.
+    * The value is kept in the typed slot, registered in the shared {@link AttributeSchema}.
+    * The value which doesn't fit the registered type is kept as the original {@link Attribute}.
+    * The <tt>labelV</tt> {@link Attribute} also sets the cached label.
     * @param name  The name of the new {@link Attribute}.
     * @param value The val;ue of the new {@link Attribute}. */
   public void putAttribute(String name,
                            Attribute value) {
-    _attributes.put(name, value);
-    if (!_attributesReg.containsKey(name)) {
-      _attributesReg.put(name, value.getType());
+    Slot slot = _schema.register(name, value.getType());
+    if (slot.type() == value.getType() && store(slot, value.getValue())) {
+      if (_extra != null) {
+        _extra.remove(name);
+        }
+      }
+    else {
+      if (_extra == null) {
+        _extra = new HashMap<>();
+        }
+      _extra.put(name, value);
+      unset(slot);
+      }
+    if (name.equals("labelV")) {
+      _lbl = value.getValue();
+      }
+    }
+
+  /** Put one numerical {@link Attribute} without creating the {@link Attribute}.
+    * @param name  The name of the new {@link Attribute}.
+    * @param value The value of the new {@link Attribute}. */
+  public void putAttribute(String name,
+                           double value) {
+    Slot slot = _schema.register(name, AttributeType.DOUBLE);
+    if (slot.kind() == Kind.DOUBLE) {
+      store(slot, value);
+      if (_extra != null) {
+        _extra.remove(name);
+        }
+      }
+    else {
+      putAttribute(name, DefaultAttribute.createAttribute(value));
+      }
+    }
+
+  /** Put one integer {@link Attribute} without creating the {@link Attribute}.
+    * @param name  The name of the new {@link Attribute}.
+    * @param value The value of the new {@link Attribute}. */
+  public void putAttribute(String name,
+                           long   value) {
+    Slot slot = _schema.register(name, AttributeType.LONG);
+    if (slot.kind() == Kind.LONG) {
+      store(slot, value);
+      if (_extra != null) {
+        _extra.remove(name);
+        }
+      }
+    else {
+      putAttribute(name, DefaultAttribute.createAttribute(value));
+      }
+    }
+
+  /** Remove one {@link Attribute}.
+    * The cached label is kept.
+    * @param name The name of the {@link Attribute}. */
+  public void removeAttribute(String name) {
+    if (_extra != null) {
+      _extra.remove(name);
+      }
+    Slot slot = _schema.slot(name);
+    if (slot != null) {
+      unset(slot);
+      }
+    }
+
+  /** Store a value into its {@link Slot}.
+    * @param slot  The {@link Slot}.
+    * @param value The value.
+    * @return      Whether the value could be stored. */
+  private boolean store(Slot   slot,
+                        String value) {
+    int i = slot.index();
+    try {
+      switch (slot.kind()) {
+        case DOUBLE:
+          store(slot, Double.parseDouble(value));
+          break;
+        case LONG:
+          store(slot, Long.parseLong(value));
+          break;
+        default:
+          if (i >= _strings.length) {
+            _strings = Arrays.copyOf(_strings, _schema.size(Kind.STRING));
+            }
+          _strings[i] = value;
+          mark(slot);
+        }
+      }
+    catch (NumberFormatException e) {
+      return false;
+      }
+    return true;
+    }
+
+  /** Store a value into its <code>double</code> {@link Slot}.
+    * @param slot  The {@link Slot}.
+    * @param value The value. */
+  private void store(Slot   slot,
+                     double value) {
+    int i = slot.index();
+    if (i >= _doubles.length) {
+      _doubles = Arrays.copyOf(_doubles, _schema.size(Kind.DOUBLE));
+      }
+    _doubles[i] = value;
+    mark(slot);
+    }
+
+  /** Store a value into its <code>long</code> {@link Slot}.
+    * @param slot  The {@link Slot}.
+    * @param value The value. */
+  private void store(Slot slot,
+                     long value) {
+    int i = slot.index();
+    if (i >= _longs.length) {
+      _longs = Arrays.copyOf(_longs, _schema.size(Kind.LONG));
+      }
+    _longs[i] = value;
+    mark(slot);
+    }
+
+  /** Mark a {@link Slot} as set.
+    * @param slot The {@link Slot}. */
+  private void mark(Slot slot) {
+    int id = slot.id();
+    if ((id >> 6) >= _set.length) {
+      _set = Arrays.copyOf(_set, (_schema.size() + 63) >> 6);
+      }
+    _set[id >> 6] |= 1L << id;
+    }
+
+  /** Tell whether a {@link Slot} is set.
+    * @param slot The {@link Slot}.
+    * @return     Whether the {@link Slot} is set. */
+  private boolean isSet(Slot slot) {
+    int id = slot.id();
+    return (id >> 6) < _set.length && (_set[id >> 6] & (1L << id)) != 0;
+    }
+
+  /** Unset a {@link Slot}.
+    * @param slot The {@link Slot}. */
+  private void unset(Slot slot) {
+    int id = slot.id();
+    if ((id >> 6) < _set.length) {
+      _set[id >> 6] &= ~(1L << id);
+      }
+    if (slot.kind() == Kind.STRING && slot.index() < _strings.length) {
+      _strings[slot.index()] = null;
       }
     }
 
@@ -89,24 +314,47 @@ public class CustomVertex {
     }
 
   /** Give the Vertex label (type).
-    * @return The Vertex label (type). */
+    * @return The Vertex label (type), <tt>null</tt> if not set. */
   public String getLbl() {
-    return _attributes.get("labelV").getValue();
+    return _lbl;
     }
     
   /** Give the Vertex name.
-    * @return The Vertex name. */
+    * @return The Vertex name, the label if the name attribute is not set. */
   public String getName() {
     if (_vertexNames.containsKey(getLbl())) {
-      return getAttribute(_vertexNames.get(getLbl())).getValue();
+      Attribute name = getAttribute(_vertexNames.get(getLbl()));
+      if (name != null) {
+        return name.getValue();
+        }
       }
     return getLbl();
     }
     
+  /** Reserve a block of default ids,
+    * which will not be given to {@link CustomVertex}s created without id.
+    * @param n The number of ids to reserve.
+    * @return  The first reserved id. */
+  public static long reserveIds(int n) {
+    return _gid.getAndAdd(n);
+    }
+    
   /** Give all registered {@link Attribute}s.
     * @return The registered {@link Attribute}s. */
   public static Map<String, AttributeType> attributesReg() {
-    return _attributesReg;
+    return _schema.types();
+    }
+    
+  /** Give the {@link AttributeSchema} shared by all Vertices.
+    * @return The shared {@link AttributeSchema}. */
+  public static AttributeSchema schema() {
+    return _schema;
+    }
+    
+  /** Give mapping from Vertex labels to Vertex names.
+    * @return The mapping from Vertex labels to Vertex names. */
+  public static Map<String, String> namesMap() {
+    return _vertexNames;
     }
     
   /** Set mapping from Vertex labels to Vertex names.
@@ -122,11 +370,21 @@ public class CustomVertex {
   
   private long _id;
   
-  private static long _gid = 0;
+  private String _lbl;
+  
+  private static AtomicLong _gid = new AtomicLong();
+  
+  private double[] _doubles = new double[0];
+  
+  private long[] _longs = new long[0];
+  
+  private String[] _strings = new String[0];
+  
+  private long[] _set = new long[0];
   
-  private Map<String, Attribute> _attributes = new HashMap<>();
+  private Map<String, Attribute> _extra;
   
-  private static Map<String, AttributeType> _attributesReg = new HashMap<>();
+  private static AttributeSchema _schema = new AttributeSchema();
   
   private static Map<String, String> _vertexNames;
         
@@ -2,6 +2,7 @@ package com.Grapher.CustomGraph;
 
 // Java
 import java.util.function.Supplier;
+import java.util.concurrent.atomic.AtomicLong;
 
 /** <code>CustomVertexSupplier</code> supplies {@link Supplier} for {@link CustomVertex}.
   * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
@@ -9,9 +10,9 @@ public class CustomVertexSupplier implements Supplier<CustomVertex> {
 
   @Override
   public CustomVertex get() {
-    return new CustomVertex(id++);
+    return new CustomVertex(_id.getAndIncrement());
     }
     
-  private long id = 0;
+  private AtomicLong _id = new AtomicLong();
 
   }
\ No newline at end of file
@@ -0,0 +1,234 @@
+package com.Grapher.CustomGraph;
+
+// JGraphT
+import org.jgrapht.Graph;
+import org.jgrapht.alg.util.Triple;
+import org.jgrapht.nio.DefaultAttribute;
+import org.jgrapht.opt.graph.sparse.SparseIntDirectedWeightedGraph;
+import org.jgrapht.opt.graph.sparse.SparseIntUndirectedWeightedGraph;
+import org.jgrapht.opt.graph.sparse.IncomingEdgesSupport;
+
+// Java
+import java.util.Map;
+import java.util.Set;
+import java.util.List;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+
+// Log4J
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/** <code>FrozenGraph</code> is an immutable compact copy of a {@link Graph}
+  * for read-only analyses.
+  * {@link CustomVertex}s are replaced by dense <code>int</code> ids
+  * (in the original iteration order), the topology is kept in an <code>int</code>-based {@link Graph},
+  * either <em>jgrapht-opt</em> sparse <em>CSR</em> graph (see {@link #freeze})
+  * or an adapter of a memory-mapped <em>WebGraph</em>.
+  * {@link CustomVertex}s can be recovered from their ids,
+  * for memory-mapped graphs they are created on demand and carry only their id and label.
+  * @param <E> The edge type of the frozen {@link Graph}.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class FrozenGraph<E> {
+
+  /** Freeze a {@link Graph} into <em>jgrapht-opt</em> sparse graph.
+    * Edge ids follow the {@link Graph} edge iteration order.
+    * @param graph The {@link Graph} to freeze.
+    * @return      The {@link FrozenGraph}. */
+  public static FrozenGraph<Integer> freeze(Graph<CustomVertex, CustomEdge> graph) {
+    CustomVertex[] vertexes = graph.vertexSet().toArray(new CustomVertex[0]);
+    CustomEdge[]   edges    = graph.edgeSet().toArray(new CustomEdge[0]);
+    Map<CustomVertex, Integer> index = new HashMap<>(2 * vertexes.length);
+    for (int i = 0; i < vertexes.length; i++) {
+      index.put(vertexes[i], i);
+      }
+    List<Triple<Integer, Integer, Double>> triples = new ArrayList<>(edges.length);
+    for (CustomEdge e : edges) {
+      triples.add(Triple.of(index.get(graph.getEdgeSource(e)),
+                            index.get(graph.getEdgeTarget(e)),
+                            graph.getEdgeWeight(e)));
+      }
+    Graph<Integer, Integer> sparse;
+    if (graph.getType().isDirected()) {
+      sparse = new SparseIntDirectedWeightedGraph(vertexes.length, triples, IncomingEdgesSupport.FULL_INCOMING_EDGES);
+      }
+    else {
+      sparse = new SparseIntUndirectedWeightedGraph(vertexes.length, triples);
+      }
+    FrozenGraph<Integer> frozen = new FrozenGraph<>(sparse, vertexes);
+    frozen._edges = edges;
+    frozen._index = index;
+    return frozen;
+    }
+
+  /** Create from {@link CustomVertex}s.
+    * @param graph    The frozen {@link Graph}, vertices are indexes of the {@link CustomVertex}s.
+    * @param vertexes The {@link CustomVertex}s. */
+  public FrozenGraph(Graph<Integer, E> graph,
+                     CustomVertex[]    vertexes) {
+    _graph    = graph;
+    _vertexes = vertexes;
+    _labelCodes = new int[vertexes.length];
+    Map<String, Integer> codes = new HashMap<>();
+    List<String> labels = new ArrayList<>();
+    for (int i = 0; i < vertexes.length; i++) {
+      _labelCodes[i] = codes.computeIfAbsent(vertexes[i].getLbl(), k -> {labels.add(k); return labels.size() - 1;});
+      }
+    _labels = labels.toArray(new String[0]);
+    log.info("Frozen graph: " + _graph.getType() + "[" + vertexes.length + ", " + _graph.edgeSet().size() + "]");
+    }
+
+  /** Create from vertex ids and labels only.
+    * {@link CustomVertex}s are created when requested, carrying only their id and label.
+    * @param graph      The frozen {@link Graph}.
+    * @param ids        The {@link CustomVertex} ids.
+    * @param labelCodes The codes of {@link CustomVertex} labels.
+    * @param labels     The {@link CustomVertex} labels, indexed by their code. */
+  public FrozenGraph(Graph<Integer, E> graph,
+                     long[]            ids,
+                     int[]             labelCodes,
+                     String[]          labels) {
+    this(graph, ids, labelCodes, labels, true);
+    }
+
+  /** Create from vertex ids and labels only.
+    * {@link CustomVertex}s are created when requested, carrying only their id and label.
+    * @param graph      The frozen {@link Graph}.
+    * @param ids        The {@link CustomVertex} ids.
+    * @param labelCodes The codes of {@link CustomVertex} labels.
+    * @param labels     The {@link CustomVertex} labels, indexed by their code.
+    * @param concurrent Whether the frozen {@link Graph} can be read by several threads at once. */
+  public FrozenGraph(Graph<Integer, E> graph,
+                     long[]            ids,
+                     int[]             labelCodes,
+                     String[]          labels,
+                     boolean           concurrent) {
+    _concurrent = concurrent;
+    _graph      = graph;
+    _ids        = ids;
+    _labelCodes = labelCodes;
+    _labels     = labels;
+    log.info("Frozen graph: " + _graph.getType() + "[" + ids.length + " vertices]");
+    }
+
+  /** Give the frozen {@link Graph}.
+    * @return The immutable {@link Graph} of vertex ids. */
+  public Graph<Integer, E> graph() {
+    return _graph;
+    }
+
+  /** Tell whether the frozen {@link Graph} can be read by several threads at once.
+    * <em>WebGraph</em> graphs keep their decoding state, so they can't.
+    * @return Whether the frozen {@link Graph} can be read concurrently. */
+  public boolean concurrent() {
+    return _concurrent;
+    }
+
+  /** Give the number of vertices.
+    * @return The number of vertices. */
+  public int size() {
+    return _labelCodes.length;
+    }
+
+  /** Give the {@link CustomVertex} of an id.
+    * @param v The vertex id.
+    * @return  The corresponding {@link CustomVertex}. */
+  public CustomVertex vertex(int v) {
+    if (_vertexes != null) {
+      return _vertexes[v];
+      }
+    CustomVertex vertex = new CustomVertex(_ids[v]);
+    vertex.putAttribute("labelV", DefaultAttribute.createAttribute(_labels[_labelCodes[v]]));
+    return vertex;
+    }
+
+  /** Give the {@link CustomEdge} of an edge id.
+    * Only available for {@link Graph}s frozen by {@link #freeze}.
+    * @param e The edge id.
+    * @return  The corresponding {@link CustomEdge}, <tt>null</tt> if not available. */
+  public CustomEdge edge(int e) {
+    return _edges == null ? null : _edges[e];
+    }
+
+  /** Give the id of a {@link CustomVertex}.
+    * @param v The {@link CustomVertex}.
+    * @return  The corresponding vertex id, <tt>-1</tt> if not frozen. */
+  public synchronized int index(CustomVertex v) {
+    if (_index == null) {
+      _index = new HashMap<>(2 * _ids.length);
+      for (int i = 0; i < _ids.length; i++) {
+        _index.put(new CustomVertex(_ids[i]), i);
+        }
+      }
+    Integer i = _index.get(v);
+    return i == null ? -1 : i;
+    }
+
+  /** Give the ids of {@link CustomVertex}s.
+    * @param vertexes The {@link CustomVertex}s.
+    * @return         The corresponding vertex ids, in the same order. */
+  public Set<Integer> indexes(Collection<CustomVertex> vertexes) {
+    Set<Integer> indexes = new LinkedHashSet<>();
+    int i;
+    for (CustomVertex v : vertexes) {
+      i = index(v);
+      if (i >= 0) {
+        indexes.add(i);
+        }
+      }
+    return indexes;
+    }
+
+  /** Give the label of a vertex.
+    * @param v The vertex id.
+    * @return  The label. */
+  public String label(int v) {
+    return _labels[_labelCodes[v]];
+    }
+
+  /** Give the ids of vertices with one label.
+    * @param lbl The label, all vertices if <tt>null</tt>.
+    * @return    The vertex ids, ascending. */
+  public List<Integer> indexes(String lbl) {
+    List<Integer> indexes = new ArrayList<>();
+    for (int i = 0; i < _labelCodes.length; i++) {
+      if (lbl == null || lbl.equals(_labels[_labelCodes[i]])) {
+        indexes.add(i);
+        }
+      }
+    return indexes;
+    }
+
+  /** Give the {@link CustomVertex}s of ids.
+    * @param indexes The vertex ids.
+    * @return        The corresponding {@link CustomVertex}s, in the same order. */
+  public Set<CustomVertex> vertexes(Collection<Integer> indexes) {
+    Set<CustomVertex> vertexes = new LinkedHashSet<>();
+    for (int i : indexes) {
+      vertexes.add(vertex(i));
+      }
+    return vertexes;
+    }
+
+  private Graph<Integer, E> _graph;
+
+  private boolean _concurrent = true;
+
+  private CustomVertex[] _vertexes;
+
+  private CustomEdge[] _edges;
+
+  private long[] _ids;
+
+  private Map<CustomVertex, Integer> _index;
+
+  private int[] _labelCodes;
+
+  private String[] _labels;
+
+  /** Logging . */
+  private static Logger log = LogManager.getLogger(FrozenGraph.class);
+
+  }
@@ -0,0 +1,980 @@
+package com.Grapher.CustomGraph;
+
+import com.Grapher.CustomGraph.AttributeSchema.Slot;
+import com.Grapher.CustomGraph.AttributeSchema.Kind;
+
+// JGraphT
+import org.jgrapht.Graph;
+import org.jgrapht.GraphType;
+import org.jgrapht.graph.AbstractGraph;
+import org.jgrapht.graph.DefaultGraphType;
+
+// Java
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.List;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.TreeSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Collections;
+import java.util.AbstractSet;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+// Log4J
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/** <code>MappedGraph</code> is a read-only {@link Graph} kept in a memory-mapped file,
+  * so analyses of graphs larger than the heap rely on the OS page cache.
+  * Vertices are dense <code>int</code> ids, edges are dense <code>long</code> ids,
+  * ordered by their source.
+  * The file (<tt>.csr</tt>) keeps, after a small header:
+  * <ul>
+  * <li>{@link CustomVertex} ids and label codes,</li>
+  * <li>the outgoing <em>CSR</em>: offsets, edge sources, targets and weights,</li>
+  * <li>the incoming index: offsets and edge ids ordered by target,</li>
+  * <li>numerical {@link CustomVertex} columns (<tt>NaN</tt> if missing),</li>
+  * <li>the label dictionary.</li>
+  * </ul>
+  * For undirected {@link Graph}s each edge is kept once,
+  * the incoming index then gives the edges of a vertex stored at their other end.
+  * Only vertex ids and label codes are copied into heap, by {@link #frozen}.
+  * Files are written by {@link Builder}, see {@link #store}.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class MappedGraph extends AbstractGraph<Integer, Long> {
+
+  /** Map a stored graph.
+    * @param file The <tt>.csr</tt> file name.
+    * @throws IOException If the file cannot be mapped. */
+  public MappedGraph(String file) throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+      ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), MAX_HEADER)).order(ORDER);
+      if (header.getInt() != MAGIC) {
+        throw new IOException(file + " is not a Grapher mapped graph");
+        }
+      int version = header.getInt();
+      if (version > VERSION) {
+        throw new IOException(file + " has unsupported version " + version);
+        }
+      _directed = header.get() != 0;
+      _weighted = header.get() != 0;
+      header.getShort();
+      _n = header.getInt();
+      _m = header.getLong();
+      _columns = new String[header.getInt()];
+      for (int c = 0; c < _columns.length; c++) {
+        _columns[c] = getString(header);
+        }
+      long labels = header.getLong();
+      Layout layout = new Layout(_n, _m, _weighted, _columns.length, header.position());
+      _ids        = new Region(channel, layout._ids,        8L * _n);
+      _labelCodes = new Region(channel, layout._labelCodes, 4L * _n);
+      _outOffsets = new Region(channel, layout._outOffsets, 8L * (_n + 1));
+      _sources    = new Region(channel, layout._sources,    4L * _m);
+      _targets    = new Region(channel, layout._targets,    4L * _m);
+      _weights    = _weighted ? new Region(channel, layout._weights, 8L * _m) : null;
+      _inOffsets  = new Region(channel, layout._inOffsets,  8L * (_n + 1));
+      _inEdges    = new Region(channel, layout._inEdges,    8L * _m);
+      _values     = new Region[_columns.length];
+      for (int c = 0; c < _columns.length; c++) {
+        _values[c] = new Region(channel, layout._columns[c], 8L * _n);
+        }
+      ByteBuffer dictionary = channel.map(FileChannel.MapMode.READ_ONLY, labels, channel.size() - labels).order(ORDER);
+      _labels = new String[dictionary.getInt()];
+      for (int l = 0; l < _labels.length; l++) {
+        _labels[l] = getString(dictionary);
+        }
+      }
+    _type = (_directed ? new DefaultGraphType.Builder().directed() : new DefaultGraphType.Builder().undirected())
+            .weighted(_weighted)
+            .allowMultipleEdges(true)
+            .allowSelfLoops(true)
+            .allowCycles(true)
+            .modifiable(false)
+            .build();
+    log.info("Mapped graph: " + _type + "[" + _n + ", " + _m + "] from " + file);
+    }
+
+  /** Store a {@link Graph}.
+    * Numerical {@link CustomVertex} attributes present on the {@link Graph}
+    * are stored as columns, ordered by name.
+    * @param graph The {@link Graph} to store.
+    * @param file  The <tt>.csr</tt> file name.
+    * @throws IOException If the file cannot be written. */
+  public static void store(Graph<CustomVertex, CustomEdge> graph,
+                           String                          file) throws IOException {
+    CustomVertex[] vertexes = graph.vertexSet().toArray(new CustomVertex[0]);
+    CustomEdge[]   edges    = graph.edgeSet().toArray(new CustomEdge[0]);
+    int n = vertexes.length;
+    int m = edges.length;
+    Map<CustomVertex, Integer> index = new HashMap<>(2 * n);
+    for (int i = 0; i < n; i++) {
+      index.put(vertexes[i], i);
+      }
+    // only attributes present on this graph, ordered by name
+    Set<String> used = new TreeSet<>();
+    for (Slot slot : CustomVertex.schema().slots()) {
+      if (slot.kind() != Kind.STRING) {
+        for (CustomVertex v : vertexes) {
+          if (v.hasAttribute(slot.name())) {
+            used.add(slot.name());
+            break;
+            }
+          }
+        }
+      }
+    List<String> columns = new ArrayList<>(used);
+    // edges by source
+    int[] sources = new int[m];
+    int[] targets = new int[m];
+    long[] outOffsets = new long[n + 1];
+    for (int e = 0; e < m; e++) {
+      sources[e] = index.get(graph.getEdgeSource(edges[e]));
+      targets[e] = index.get(graph.getEdgeTarget(edges[e]));
+      outOffsets[sources[e] + 1]++;
+      }
+    for (int i = 0; i < n; i++) {
+      outOffsets[i + 1] += outOffsets[i];
+      }
+    int[] order = new int[m];
+    long[] next = outOffsets.clone();
+    for (int e = 0; e < m; e++) {
+      order[(int)next[sources[e]]++] = e;
+      }
+    // incoming index
+    long[] inOffsets = new long[n + 1];
+    for (int e = 0; e < m; e++) {
+      inOffsets[targets[e] + 1]++;
+      }
+    for (int i = 0; i < n; i++) {
+      inOffsets[i + 1] += inOffsets[i];
+      }
+    boolean weighted = graph.getType().isWeighted();
+    try (Builder builder = new Builder(file, graph.getType().isDirected(), weighted, n, m, columns.toArray(new String[0]))) {
+      try (Appender ids = builder.ids(); Appender labelCodes = builder.labelCodes()) {
+        for (CustomVertex v : vertexes) {
+          ids.putLong(v.getId());
+          labelCodes.putInt(builder.code(v.getLbl()));
+          }
+        }
+      try (Appender out = builder.outOffsets()) {
+        for (long offset : outOffsets) {
+          out.putLong(offset);
+          }
+        }
+      try (Appender s = builder.sources(); Appender t = builder.targets(); Appender w = builder.weights()) {
+        for (int e : order) {
+          s.putInt(sources[e]);
+          t.putInt(targets[e]);
+          if (weighted) {
+            w.putDouble(graph.getEdgeWeight(edges[e]));
+            }
+          }
+        }
+      try (Appender in = builder.inOffsets()) {
+        for (long offset : inOffsets) {
+          in.putLong(offset);
+          }
+        }
+      next = inOffsets.clone();
+      for (int k = 0; k < m; k++) {
+        builder.inEdge(next[targets[order[k]]]++, k);
+        }
+      for (int c = 0; c < columns.size(); c++) {
+        try (Appender column = builder.column(c)) {
+          for (CustomVertex v : vertexes) {
+            try {
+              column.putDouble(v.getNumber(columns.get(c)));
+              }
+            catch (NumberFormatException e) {
+              column.putDouble(Double.NaN);
+              }
+            }
+          }
+        }
+      }
+    log.info("Stored graph: " + graph.getType() + "[" + n + ", " + m + "] to " + file);
+    }
+
+  /** Give the {@link FrozenGraph} of this {@link Graph},
+    * only {@link CustomVertex} ids and label codes are read into heap.
+    * @return The {@link FrozenGraph}. */
+  public FrozenGraph<Long> frozen() {
+    long[] ids        = new long[_n];
+    int[]  labelCodes = new int[_n];
+    for (int i = 0; i < _n; i++) {
+      ids[i]        = _ids.getLong(i);
+      labelCodes[i] = _labelCodes.getInt(i);
+      }
+    return new FrozenGraph<>(this, ids, labelCodes, _labels);
+    }
+
+  /** Give the {@link CustomVertex} id of a vertex.
+    * @param v The vertex.
+    * @return  The {@link CustomVertex} id. */
+  public long id(int v) {
+    return _ids.getLong(v);
+    }
+
+  /** Give the label of a vertex.
+    * @param v The vertex.
+    * @return  The {@link CustomVertex} label. */
+  public String label(int v) {
+    return _labels[_labelCodes.getInt(v)];
+    }
+
+  /** Give the names of stored numerical columns.
+    * @return The names of stored numerical {@link CustomVertex} attributes. */
+  public String[] columns() {
+    return _columns.clone();
+    }
+
+  /** Give the value of a numerical column.
+    * @param column The column index, see {@link #columns}.
+    * @param v      The vertex.
+    * @return       The value, <tt>NaN</tt> if not set. */
+  public double value(int column,
+                      int v) {
+    return _values[column].getDouble(v);
+    }
+
+  // Graph ---------------------------------------------------------------------
+
+  @Override
+  public Set<Long> getAllEdges(Integer sourceVertex,
+                               Integer targetVertex) {
+    if (!containsVertex(sourceVertex) || !containsVertex(targetVertex)) {
+      return null;
+      }
+    Set<Long> edges = new HashSet<>();
+    for (long e = _outOffsets.getLong(sourceVertex); e < _outOffsets.getLong(sourceVertex + 1); e++) {
+      if (_targets.getInt(e) == targetVertex) {
+        edges.add(e);
+        }
+      }
+    if (!_directed) {
+      for (long e = _outOffsets.getLong(targetVertex); e < _outOffsets.getLong(targetVertex + 1); e++) {
+        if (_targets.getInt(e) == sourceVertex) {
+          edges.add(e);
+          }
+        }
+      }
+    return edges;
+    }
+
+  @Override
+  public Long getEdge(Integer sourceVertex,
+                      Integer targetVertex) {
+    if (!containsVertex(sourceVertex) || !containsVertex(targetVertex)) {
+      return null;
+      }
+    for (long e = _outOffsets.getLong(sourceVertex); e < _outOffsets.getLong(sourceVertex + 1); e++) {
+      if (_targets.getInt(e) == targetVertex) {
+        return e;
+        }
+      }
+    if (!_directed) {
+      for (long e = _outOffsets.getLong(targetVertex); e < _outOffsets.getLong(targetVertex + 1); e++) {
+        if (_targets.getInt(e) == sourceVertex) {
+          return e;
+          }
+        }
+      }
+    return null;
+    }
+
+  @Override
+  public Supplier<Integer> getVertexSupplier() {
+    return null;
+    }
+
+  @Override
+  public Supplier<Long> getEdgeSupplier() {
+    return null;
+    }
+
+  @Override
+  public Long addEdge(Integer sourceVertex,
+                      Integer targetVertex) {
+    throw new UnsupportedOperationException(READ_ONLY);
+    }
+
+  @Override
+  public boolean addEdge(Integer sourceVertex,
+                         Integer targetVertex,
+                         Long    e) {
+    throw new UnsupportedOperationException(READ_ONLY);
+    }
+
+  @Override
+  public Integer addVertex() {
+    throw new UnsupportedOperationException(READ_ONLY);
+    }
+
+  @Override
+  public boolean addVertex(Integer v) {
+    throw new UnsupportedOperationException(READ_ONLY);
+    }
+
+  @Override
+  public boolean containsEdge(Long e) {
+    return e != null && e >= 0 && e < _m;
+    }
+
+  @Override
+  public boolean containsVertex(Integer v) {
+    return v != null && v >= 0 && v < _n;
+    }
+
+  @Override
+  public Set<Long> edgeSet() {
+    return new Range(0, _m, null);
+    }
+
+  @Override
+  public int degreeOf(Integer vertex) {
+    assertVertexExist(vertex);
+    long degree = outDegree(vertex) + inDegree(vertex);
+    return (int)Math.min(degree, Integer.MAX_VALUE);
+    }
+
+  @Override
+  public Set<Long> edgesOf(Integer vertex) {
+    assertVertexExist(vertex);
+    if (_directed) {
+      Set<Long> edges = new HashSet<>(outgoingEdgesOf(vertex));
+      edges.addAll(incomingEdgesOf(vertex));
+      return Collections.unmodifiableSet(edges);
+      }
+    return new Union(vertex);
+    }
+
+  @Override
+  public int inDegreeOf(Integer vertex) {
+    assertVertexExist(vertex);
+    return (int)(_directed ? inDegree(vertex) : Math.min(outDegree(vertex) + inDegree(vertex), Integer.MAX_VALUE));
+    }
+
+  @Override
+  public Set<Long> incomingEdgesOf(Integer vertex) {
+    assertVertexExist(vertex);
+    if (_directed) {
+      return new Range(_inOffsets.getLong(vertex), _inOffsets.getLong(vertex + 1), _inEdges);
+      }
+    return new Union(vertex);
+    }
+
+  @Override
+  public int outDegreeOf(Integer vertex) {
+    return _directed ? (int)Math.min(outDegree(vertex), Integer.MAX_VALUE) : inDegreeOf(vertex);
+    }
+
+  @Override
+  public Set<Long> outgoingEdgesOf(Integer vertex) {
+    assertVertexExist(vertex);
+    if (_directed) {
+      return new Range(_outOffsets.getLong(vertex), _outOffsets.getLong(vertex + 1), null);
+      }
+    return new Union(vertex);
+    }
+
+  @Override
+  public Long removeEdge(Integer sourceVertex,
+                         Integer targetVertex) {
+    throw new UnsupportedOperationException(READ_ONLY);
+    }
+
+  @Override
+  public boolean removeEdge(Long e) {
+    throw new UnsupportedOperationException(READ_ONLY);
+    }
+
+  @Override
+  public boolean removeVertex(Integer v) {
+    throw new UnsupportedOperationException(READ_ONLY);
+    }
+
+  @Override
+  public Set<Integer> vertexSet() {
+    return new AbstractSet<Integer>() {
+      @Override
+      public Iterator<Integer> iterator() {
+        return new Iterator<Integer>() {
+          @Override
+          public boolean hasNext() {
+            return _v < _n;
+            }
+          @Override
+          public Integer next() {
+            if (_v >= _n) {
+              throw new NoSuchElementException();
+              }
+            return _v++;
+            }
+          private int _v = 0;
+          };
+        }
+      @Override
+      public int size() {
+        return _n;
+        }
+      @Override
+      public boolean contains(Object o) {
+        return o instanceof Integer && containsVertex((Integer)o);
+        }
+      };
+    }
+
+  @Override
+  public Integer getEdgeSource(Long e) {
+    return _sources.getInt(e);
+    }
+
+  @Override
+  public Integer getEdgeTarget(Long e) {
+    return _targets.getInt(e);
+    }
+
+  @Override
+  public GraphType getType() {
+    return _type;
+    }
+
+  @Override
+  public double getEdgeWeight(Long e) {
+    return _weighted ? _weights.getDouble(e) : DEFAULT_EDGE_WEIGHT;
+    }
+
+  @Override
+  public void setEdgeWeight(Long   e,
+                            double weight) {
+    throw new UnsupportedOperationException(READ_ONLY);
+    }
+
+  /** Give the number of edges stored at a vertex.
+    * @param v The vertex.
+    * @return  The number of edges with <tt>v</tt> as the source. */
+  private long outDegree(int v) {
+    return _outOffsets.getLong(v + 1) - _outOffsets.getLong(v);
+    }
+
+  /** Give the number of edges indexed at a vertex.
+    * @param v The vertex.
+    * @return  The number of edges with <tt>v</tt> as the target. */
+  private long inDegree(int v) {
+    return _inOffsets.getLong(v + 1) - _inOffsets.getLong(v);
+    }
+
+  /** <code>Range</code> is a {@link Set} view of consecutive edges,
+    * either edge ids or positions in an index. */
+  private class Range extends AbstractSet<Long> {
+
+    Range(long   from,
+          long   to,
+          Region index) {
+      _from  = from;
+      _to    = to;
+      _index = index;
+      }
+
+    @Override
+    public Iterator<Long> iterator() {
+      return new Iterator<Long>() {
+        @Override
+        public boolean hasNext() {
+          return _i < _to;
+          }
+        @Override
+        public Long next() {
+          if (_i >= _to) {
+            throw new NoSuchElementException();
+            }
+          return _index == null ? _i++ : _index.getLong(_i++);
+          }
+        private long _i = _from;
+        };
+      }
+
+    @Override
+    public int size() {
+      return (int)Math.min(_to - _from, Integer.MAX_VALUE);
+      }
+
+    @Override
+    public boolean contains(Object o) {
+      if (!(o instanceof Long)) {
+        return false;
+        }
+      long e = (Long)o;
+      if (_index == null) {
+        return e >= _from && e < _to;
+        }
+      return super.contains(o);
+      }
+
+    private long _from;
+
+    private long _to;
+
+    private Region _index;
+
+    }
+
+  /** <code>Union</code> is a {@link Set} view of all edges of an undirected vertex:
+    * edges stored at the vertex and edges indexed at the vertex, self-loops only once. */
+  private class Union extends AbstractSet<Long> {
+
+    Union(int v) {
+      _v = v;
+      }
+
+    @Override
+    public Iterator<Long> iterator() {
+      return new Iterator<Long>() {
+        @Override
+        public boolean hasNext() {
+          while (_i >= _outTo && _e < 0 && _j < _inTo) {
+            long e = _inEdges.getLong(_j++);
+            if (_sources.getInt(e) != _v) {
+              _e = e;
+              }
+            }
+          return _i < _outTo || _e >= 0;
+          }
+        @Override
+        public Long next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+            }
+          if (_i < _outTo) {
+            return _i++;
+            }
+          long e = _e;
+          _e = -1;
+          return e;
+          }
+        private long _i     = _outOffsets.getLong(_v);
+        private long _outTo = _outOffsets.getLong(_v + 1);
+        private long _j     = _inOffsets.getLong(_v);
+        private long _inTo  = _inOffsets.getLong(_v + 1);
+        private long _e     = -1;
+        };
+      }
+
+    @Override
+    public int size() {
+      long size = outDegree(_v);
+      for (long j = _inOffsets.getLong(_v); j < _inOffsets.getLong(_v + 1); j++) {
+        if (_sources.getInt(_inEdges.getLong(j)) != _v) {
+          size++;
+          }
+        }
+      return (int)Math.min(size, Integer.MAX_VALUE);
+      }
+
+    @Override
+    public boolean contains(Object o) {
+      if (!(o instanceof Long) || !containsEdge((Long)o)) {
+        return false;
+        }
+      long e = (Long)o;
+      return _sources.getInt(e) == _v || _targets.getInt(e) == _v;
+      }
+
+    private int _v;
+
+    }
+
+  /** <code>Layout</code> gives positions of stored arrays, all 8-byte aligned. */
+  private static class Layout {
+
+    Layout(int     n,
+           long    m,
+           boolean weighted,
+           int     columns,
+           long    start) {
+      long p = align(start);
+      _ids        = p; p = align(p + 8L * n);
+      _labelCodes = p; p = align(p + 4L * n);
+      _outOffsets = p; p = align(p + 8L * (n + 1));
+      _sources    = p; p = align(p + 4L * m);
+      _targets    = p; p = align(p + 4L * m);
+      _weights    = p; p = align(p + (weighted ? 8L * m : 0));
+      _inOffsets  = p; p = align(p + 8L * (n + 1));
+      _inEdges    = p; p = align(p + 8L * m);
+      _columns    = new long[columns];
+      for (int c = 0; c < columns; c++) {
+        _columns[c] = p; p = align(p + 8L * n);
+        }
+      _end = p;
+      }
+
+    private static long align(long position) {
+      return (position + 7) & ~7L;
+      }
+
+    private long _ids;
+
+    private long _labelCodes;
+
+    private long _outOffsets;
+
+    private long _sources;
+
+    private long _targets;
+
+    private long _weights;
+
+    private long _inOffsets;
+
+    private long _inEdges;
+
+    private long[] _columns;
+
+    private long _end;
+
+    }
+
+  /** <code>Region</code> is a memory-mapped array, mapped in chunks,
+    * so it can exceed the <code>int</code> range of one {@link MappedByteBuffer}. */
+  private static class Region {
+
+    Region(FileChannel channel,
+           long        position,
+           long        bytes) throws IOException {
+      this(channel, position, bytes, FileChannel.MapMode.READ_ONLY);
+      }
+
+    Region(FileChannel         channel,
+           long                position,
+           long                bytes,
+           FileChannel.MapMode mode) throws IOException {
+      _chunks = new MappedByteBuffer[(int)((bytes + CHUNK - 1) >>> SHIFT)];
+      for (int c = 0; c < _chunks.length; c++) {
+        _chunks[c] = channel.map(mode,
+                                 position + ((long)c << SHIFT),
+                                 Math.min(CHUNK, bytes - ((long)c << SHIFT)));
+        _chunks[c].order(ORDER);
+        }
+      }
+
+    long getLong(long i) {
+      long b = i << 3;
+      return _chunks[(int)(b >>> SHIFT)].getLong((int)(b & MASK));
+      }
+
+    double getDouble(long i) {
+      long b = i << 3;
+      return _chunks[(int)(b >>> SHIFT)].getDouble((int)(b & MASK));
+      }
+
+    void putLong(long i,
+                 long value) {
+      long b = i << 3;
+      _chunks[(int)(b >>> SHIFT)].putLong((int)(b & MASK), value);
+      }
+
+    int getInt(long i) {
+      long b = i << 2;
+      return _chunks[(int)(b >>> SHIFT)].getInt((int)(b & MASK));
+      }
+
+    private MappedByteBuffer[] _chunks;
+
+    }
+
+  /** <code>Builder</code> writes a <tt>.csr</tt> file.
+    * Each array is filled sequentially by its own {@link Appender},
+    * arrays may be written in any order.
+    * The label dictionary is written on {@link #close}. */
+  public static class Builder implements AutoCloseable {
+
+    /** Create the file, with space for all arrays.
+      * @param file     The <tt>.csr</tt> file name.
+      * @param directed Whether the {@link Graph} is directed.
+      * @param weighted Whether the {@link Graph} is weighted.
+      * @param n        The number of vertices.
+      * @param m        The number of edges.
+      * @param columns  The names of numerical vertex columns.
+      * @throws IOException If the file cannot be created. */
+    public Builder(String   file,
+                   boolean  directed,
+                   boolean  weighted,
+                   int      n,
+                   long     m,
+                   String[] columns) throws IOException {
+      _channel = FileChannel.open(Paths.get(file),
+                                  StandardOpenOption.CREATE,
+                                  StandardOpenOption.READ,
+                                  StandardOpenOption.WRITE,
+                                  StandardOpenOption.TRUNCATE_EXISTING);
+      _m = m;
+      ByteBuffer header = ByteBuffer.allocate((int)MAX_HEADER).order(ORDER);
+      header.putInt(MAGIC);
+      header.putInt(VERSION);
+      header.put((byte)(directed ? 1 : 0));
+      header.put((byte)(weighted ? 1 : 0));
+      header.putShort((short)0);
+      header.putInt(n);
+      header.putLong(m);
+      header.putInt(columns.length);
+      for (String column : columns) {
+        putString(header, column);
+        }
+      _labelsPosition = header.position();
+      header.putLong(0);
+      _layout = new Layout(n, m, weighted, columns.length, header.position());
+      header.flip();
+      _channel.write(header, 0);
+      _channel.write(ByteBuffer.allocate(1), _layout._end - 1);
+      }
+
+    /** Give the code of a label, adding it to the dictionary.
+      * @param label The label.
+      * @return      The label code. */
+    public int code(String label) {
+      String l = label == null ? "" : label;
+      return _codes.computeIfAbsent(l, k -> {_labels.add(k); return _labels.size() - 1;});
+      }
+
+    /** @return The {@link Appender} of {@link CustomVertex} ids. */
+    public Appender ids() {
+      return new Appender(_channel, _layout._ids);
+      }
+
+    /** @return The {@link Appender} of label codes. */
+    public Appender labelCodes() {
+      return new Appender(_channel, _layout._labelCodes);
+      }
+
+    /** @return The {@link Appender} of the <tt>n + 1</tt> outgoing offsets. */
+    public Appender outOffsets() {
+      return new Appender(_channel, _layout._outOffsets);
+      }
+
+    /** @return The {@link Appender} of edge sources, ordered by source. */
+    public Appender sources() {
+      return new Appender(_channel, _layout._sources);
+      }
+
+    /** @return The {@link Appender} of edge targets, in the edge order. */
+    public Appender targets() {
+      return new Appender(_channel, _layout._targets);
+      }
+
+    /** @return The {@link Appender} of edge weights, in the edge order. */
+    public Appender weights() {
+      return new Appender(_channel, _layout._weights);
+      }
+
+    /** @return The {@link Appender} of the <tt>n + 1</tt> incoming offsets. */
+    public Appender inOffsets() {
+      return new Appender(_channel, _layout._inOffsets);
+      }
+
+    /** Set one entry of the incoming index.
+      * Entries are written in place, in any order.
+      * @param k The position in the index, see {@link #inOffsets}.
+      * @param e The edge id. */
+    public void inEdge(long k,
+                       long e) throws IOException {
+      if (_inEdges == null) {
+        _inEdges = new Region(_channel, _layout._inEdges, 8L * _m, FileChannel.MapMode.READ_WRITE);
+        }
+      _inEdges.putLong(k, e);
+      }
+
+    /** @param c The column index.
+      * @return  The {@link Appender} of one numerical vertex column. */
+    public Appender column(int c) {
+      return new Appender(_channel, _layout._columns[c]);
+      }
+
+    /** Write the label dictionary and close the file. */
+    @Override
+    public void close() throws IOException {
+      try {
+        try (Appender dictionary = new Appender(_channel, _layout._end)) {
+          dictionary.putInt(_labels.size());
+          for (String label : _labels) {
+            dictionary.putString(label);
+            }
+          }
+        ByteBuffer position = ByteBuffer.allocate(Long.BYTES).order(ORDER);
+        position.putLong(0, _layout._end);
+        _channel.write(position, _labelsPosition);
+        }
+      finally {
+        _channel.close();
+        }
+      }
+
+    private FileChannel _channel;
+
+    private Layout _layout;
+
+    private long _m;
+
+    private Region _inEdges;
+
+    private long _labelsPosition;
+
+    private List<String> _labels = new ArrayList<>();
+
+    private Map<String, Integer> _codes = new HashMap<>();
+
+    }
+
+  /** <code>Appender</code> writes consecutive values from a file position. */
+  public static class Appender implements AutoCloseable {
+
+    Appender(FileChannel channel,
+             long        position) {
+      _channel  = channel;
+      _position = position;
+      }
+
+    /** @param value The value to append. */
+    public void putLong(long value) throws IOException {
+      ensure(Long.BYTES);
+      _buffer.putLong(value);
+      }
+
+    /** @param value The value to append. */
+    public void putInt(int value) throws IOException {
+      ensure(Integer.BYTES);
+      _buffer.putInt(value);
+      }
+
+    /** @param value The value to append. */
+    public void putDouble(double value) throws IOException {
+      ensure(Double.BYTES);
+      _buffer.putDouble(value);
+      }
+
+    /** @param value The value to append. */
+    public void putString(String value) throws IOException {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      putInt(bytes.length);
+      int k;
+      for (int off = 0; off < bytes.length; off += k) {
+        ensure(1);
+        k = Math.min(bytes.length - off, _buffer.remaining());
+        _buffer.put(bytes, off, k);
+        }
+      }
+
+    private void ensure(int bytes) throws IOException {
+      if (_buffer.remaining() < bytes) {
+        flush();
+        }
+      }
+
+    private void flush() throws IOException {
+      _buffer.flip();
+      while (_buffer.hasRemaining()) {
+        _position += _channel.write(_buffer, _position);
+        }
+      _buffer.clear();
+      }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+      }
+
+    private FileChannel _channel;
+
+    private long _position;
+
+    private ByteBuffer _buffer = ByteBuffer.allocate(1 << 16).order(ORDER);
+
+    }
+
+  /** Write a {@link String}.
+    * @param buffer The {@link ByteBuffer} to write to.
+    * @param value  The {@link String}. */
+  private static void putString(ByteBuffer buffer,
+                                String     value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    buffer.putInt(bytes.length);
+    buffer.put(bytes);
+    }
+
+  /** Read a {@link String}.
+    * @param buffer The {@link ByteBuffer} to read from.
+    * @return       The {@link String}. */
+  private static String getString(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+  private boolean _directed;
+
+  private boolean _weighted;
+
+  private int _n;
+
+  private long _m;
+
+  private GraphType _type;
+
+  private String[] _columns;
+
+  private String[] _labels;
+
+  private Region _ids;
+
+  private Region _labelCodes;
+
+  private Region _outOffsets;
+
+  private Region _sources;
+
+  private Region _targets;
+
+  private Region _weights;
+
+  private Region _inOffsets;
+
+  private Region _inEdges;
+
+  private Region[] _values;
+
+  /** The file magic: <tt>GCSR</tt>. */
+  private static final int MAGIC = 0x47435352;
+
+  /** The format version. */
+  private static final int VERSION = 1;
+
+  /** The maximal header size. */
+  private static final long MAX_HEADER = 1 << 16;
+
+  /** The byte order of stored arrays. */
+  private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+  /** The size of mapped chunks. */
+  private static final int SHIFT = 30;
+
+  private static final long CHUNK = 1L << SHIFT;
+
+  private static final long MASK = CHUNK - 1;
+
+  private static final String READ_ONLY = "MappedGraph is read-only";
+
+  /** Logging . */
+  private static Logger log = LogManager.getLogger(MappedGraph.class);
+
+  }
@@ -0,0 +1,134 @@
+package com.Grapher.CustomGraph;
+
+// JGraphT
+import org.jgrapht.Graph;
+import org.jgrapht.ListenableGraph;
+import org.jgrapht.event.VertexSetListener;
+import org.jgrapht.event.GraphVertexChangeEvent;
+
+// Java
+import java.util.Map;
+import java.util.Set;
+import java.util.List;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+
+// Log4J
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/** <code>VertexLabelIndex</code> keeps {@link CustomVertex}s partitioned by their label.
+  * Each partition is a compact array in the {@link Graph} iteration order.
+  * The index is kept in sync with a {@link ListenableGraph} as its {@link VertexSetListener}.
+  * Added {@link CustomVertex}s are indexed lazily, at the next query,
+  * so importers can set the label after the {@link CustomVertex} has been added.
+  * The label of an indexed {@link CustomVertex} should not change.
+  * @author <a href="mailto:Julius.Hrivnac@cern.ch">J.Hrivnac</a> */
+public class VertexLabelIndex implements VertexSetListener<CustomVertex> {
+
+  /** Create the index and register it with the {@link ListenableGraph}.
+    * @param graph The {@link ListenableGraph} to index. */
+  public VertexLabelIndex(ListenableGraph<CustomVertex, CustomEdge> graph) {
+    _graph = graph;
+    _pending.addAll(graph.vertexSet());
+    graph.addVertexSetListener(this);
+    }
+
+  /** Stop following the {@link ListenableGraph}. */
+  public void close() {
+    _graph.removeVertexSetListener(this);
+    }
+
+  @Override
+  public synchronized void vertexAdded(GraphVertexChangeEvent<CustomVertex> e) {
+    _pending.add(e.getVertex());
+    }
+
+  @Override
+  public synchronized void vertexRemoved(GraphVertexChangeEvent<CustomVertex> e) {
+    _dirty = true;
+    }
+
+  /** Give all {@link CustomVertex}s with one label.
+    * @param lbl The label of the required {@link CustomVertex}s.
+    * @return    The unmodifiable {@link List} of {@link CustomVertex}s,
+    *            empty if there are no such {@link CustomVertex}s. */
+  public synchronized List<CustomVertex> vertexes(String lbl) {
+    update();
+    Partition partition = _partitions.get(lbl);
+    return partition == null ? Collections.emptyList() : partition.list();
+    }
+
+  /** Give all known labels.
+    * @return The labels, in the order of the first appearance. */
+  public synchronized Set<String> labels() {
+    update();
+    return Collections.unmodifiableSet(_partitions.keySet());
+    }
+
+  /** Bring the index up to date with the {@link Graph}. */
+  private void update() {
+    if (_dirty) {
+      log.debug("Rebuilding label index");
+      _partitions.clear();
+      _pending.clear();
+      _pending.addAll(_graph.vertexSet());
+      _dirty = false;
+      }
+    if (_pending.isEmpty()) {
+      return;
+      }
+    List<CustomVertex> unlabelled = new ArrayList<>();
+    String lbl;
+    for (CustomVertex v : _pending) {
+      lbl = v.getLbl();
+      if (lbl == null) {
+        unlabelled.add(v);
+        }
+      else {
+        _partitions.computeIfAbsent(lbl, k -> new Partition()).add(v);
+        }
+      }
+    _pending = unlabelled;
+    }
+
+  /** <code>Partition</code> is a growing array of {@link CustomVertex}s with one label. */
+  private static class Partition {
+
+    void add(CustomVertex v) {
+      if (_size == _vertexes.length) {
+        _vertexes = Arrays.copyOf(_vertexes, Math.max(16, 2 * _size));
+        }
+      _vertexes[_size++] = v;
+      _list = null;
+      }
+
+    List<CustomVertex> list() {
+      if (_list == null) {
+        _list = Collections.unmodifiableList(Arrays.asList(Arrays.copyOf(_vertexes, _size)));
+        }
+      return _list;
+      }
+
+    private CustomVertex[] _vertexes = new CustomVertex[0];
+
+    private int _size = 0;
+
+    private List<CustomVertex> _list;
+
+    }
+
+  private ListenableGraph<CustomVertex, CustomEdge> _graph;
+
+  private Map<String, Partition> _partitions = new LinkedHashMap<>();
+
+  private List<CustomVertex> _pending = new ArrayList<>();
+
+  private boolean _dirty = false;
+
+  /** Logging . */
+  private static Logger log = LogManager.getLogger(VertexLabelIndex.class);
+
+  }
@@ -18,7 +18,7 @@ public class Params {
     * @param novertex  Whether edge-less Vertices should be ignored on export.
     * @param script    The script (py or groovy) to run.
     * @param infile    The input file name.
-    * @param outfile   The output file name.
+    * @param outfile   The output file name(s), comma-separated.
     * @param algorithm The algorithm(s). */
   public Params(boolean quiet,
                 boolean show,
@@ -75,7 +75,8 @@ public class Params {
     }
     
   /** Give the output file name.
-    * @return The output file name. */
+    * @return The output file name,
+    *         or the comma-separated output file names. */
   public String outfile() {
     return _outfile;
     }
@@ -86,6 +87,27 @@ public class Params {
     return _algorithm;
     }
     
+  /** Give the Vertex labels to keep on import.
+    * @return The comma-separated Vertex labels to keep on import,
+    *         <tt>null</tt> to keep all Vertices. */
+  public String labels() {
+    return _labels;
+    }
+    
+  /** Give the predicates to apply on import.
+    * @return The comma-separated predicates like <tt>magpsf&lt;19</tt>,
+    *         <tt>null</tt> to keep all Vertices and Edges. */
+  public String predicates() {
+    return _predicates;
+    }
+    
+  /** Give the attributes to keep on import.
+    * @return The comma-separated attribute names to keep on import,
+    *         <tt>null</tt> to keep all attributes. */
+  public String attributes() {
+    return _attributes;
+    }
+    
   /** Set whether running in a quiet mode.
     * @param quiet Whether running in a quiet mode. */
   public void setQuiet(boolean quiet) {
@@ -123,7 +145,8 @@ public class Params {
     }
     
   /** Set the output file name.
-    * @param outfile The output file name. */
+    * @param outfile The output file name,
+    *                or the comma-separated output file names. */
   public void setOutfile(String outfile) {
     _outfile = outfile;
     }
@@ -133,6 +156,29 @@ public class Params {
   public void setAlgorithm(String algorithm) {
     _algorithm = algorithm;
     }
+    
+  /** Set the Vertex labels to keep on import.
+    * @param labels The comma-separated Vertex labels to keep on import,
+    *               <tt>null</tt> to keep all Vertices. */
+  public void setLabels(String labels) {
+    _labels = labels;
+    }
+    
+  /** Set the predicates to apply on import.
+    * Each predicate compares a numerical attribute with a constant
+    * using <tt>&lt;</tt>, <tt>&lt;=</tt>, <tt>&gt;</tt>, <tt>&gt;=</tt>, <tt>==</tt> or <tt>!=</tt>.
+    * @param predicates The comma-separated predicates like <tt>magpsf&lt;19</tt>,
+    *                   <tt>null</tt> to keep all Vertices and Edges. */
+  public void setPredicates(String predicates) {
+    _predicates = predicates;
+    }
+    
+  /** Set the attributes to keep on import.
+    * @param attributes The comma-separated attribute names to keep on import,
+    *                   <tt>null</tt> to keep all attributes. */
+  public void setAttributes(String attributes) {
+    _attributes = attributes;
+    }
                                    
   private boolean _quiet      = false;
   private boolean _show       = false;
@@ -142,6 +188,9 @@ public class Params {
   private String  _infile;
   private String  _outfile;
   private String  _algorithm;
+  private String  _labels;
+  private String  _predicates;
+  private String  _attributes;
 
   /** Logging . */
   private static Logger log = LogManager.getLogger(Params.class);